@@ -0,0 +1,13 @@
+-- Delta sync support
+-- Hibernate (ddl-auto=update) adds the new columns and table on startup.
+-- Run this once afterwards so rows created before the upgrade are picked up
+-- by the first full sync.
+
+UPDATE weekly_plan_workouts SET updated_at = NOW() WHERE updated_at IS NULL;
+UPDATE calendar_events SET updated_at = NOW() WHERE updated_at IS NULL;
+UPDATE training_logs SET updated_at = COALESCE(created_at, NOW()) WHERE updated_at IS NULL;
+
+-- Change feeds are always read per user, ordered by update time
+CREATE INDEX IF NOT EXISTS idx_training_logs_user_updated ON training_logs (user_id, updated_at);
+CREATE INDEX IF NOT EXISTS idx_calendar_events_user_updated ON calendar_events (user_id, updated_at);
+CREATE INDEX IF NOT EXISTS idx_weekly_plan_workouts_plan_updated ON weekly_plan_workouts (weekly_plan_id, updated_at);
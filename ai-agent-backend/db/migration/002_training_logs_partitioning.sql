@@ -0,0 +1,152 @@
+-- Monthly range partitioning for training_logs
+-- Every training log query filters on workout_date, so splitting the table by
+-- month lets Postgres prune to the partitions a query actually touches.
+--
+-- Run once with the backend stopped. Everything happens in one transaction
+-- and aborts if the copied row count does not match.
+-- Afterwards the backend keeps future partitions created
+-- (TrainingLogPartitionService) and can detach old ones into the
+-- training_logs_archive schema.
+
+BEGIN;
+
+CREATE SCHEMA IF NOT EXISTS training_logs_archive;
+
+ALTER TABLE training_logs RENAME TO training_logs_unpartitioned;
+ALTER INDEX IF EXISTS idx_training_logs_user_updated RENAME TO idx_training_logs_unpartitioned_user_updated;
+
+CREATE SEQUENCE training_logs_partitioned_id_seq;
+SELECT setval('training_logs_partitioned_id_seq',
+              COALESCE((SELECT MAX(id) FROM training_logs_unpartitioned), 0) + 1, false);
+
+-- Same columns as the TrainingLog entity. The partition key has to be part of
+-- the primary key; Hibernate still only uses id. The user_id foreign key is
+-- added back by Hibernate on the next startup (ddl-auto=update).
+CREATE TABLE training_logs (
+    id                BIGINT       NOT NULL DEFAULT nextval('training_logs_partitioned_id_seq'),
+    user_id           BIGINT       NOT NULL,
+    workout_date      DATE         NOT NULL,
+    exercise_name     VARCHAR(255) NOT NULL,
+    exercise_id       BIGINT,
+    sets              INTEGER,
+    reps              INTEGER,
+    weight            NUMERIC(10, 2),
+    weight_unit       VARCHAR(10),
+    rest_seconds      INTEGER,
+    duration_minutes  INTEGER,
+    calories_burned   INTEGER,
+    difficulty_rating INTEGER,
+    notes             TEXT,
+    created_at        TIMESTAMP(6),
+    updated_at        TIMESTAMP(6),
+    PRIMARY KEY (id, workout_date)
+) PARTITION BY RANGE (workout_date);
+
+ALTER SEQUENCE training_logs_partitioned_id_seq OWNED BY training_logs.id;
+
+-- Catches dates no monthly partition exists for yet (e.g. typos far in the future)
+CREATE TABLE training_logs_default PARTITION OF training_logs DEFAULT;
+
+-- Create the partition for the month containing p_month. Idempotent and safe
+-- to call from several nodes at once. Rows that already landed in the default
+-- partition for that month are moved into the new partition.
+CREATE OR REPLACE FUNCTION create_training_logs_partition(p_month DATE)
+RETURNS TEXT
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_start DATE := date_trunc('month', p_month)::date;
+    v_end   DATE := (date_trunc('month', p_month) + INTERVAL '1 month')::date;
+    v_name  TEXT := format('training_logs_y%sm%s', to_char(v_start, 'YYYY'), to_char(v_start, 'MM'));
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('training_logs_partitions'));
+
+    IF to_regclass('public.' || v_name) IS NOT NULL THEN
+        RETURN v_name;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM training_logs_default WHERE workout_date >= v_start AND workout_date < v_end) THEN
+        EXECUTE format('CREATE TABLE public.%I (LIKE training_logs INCLUDING DEFAULTS)', v_name);
+        EXECUTE format('WITH moved AS (DELETE FROM training_logs_default WHERE workout_date >= %L AND workout_date < %L RETURNING *) '
+                       'INSERT INTO public.%I SELECT * FROM moved', v_start, v_end, v_name);
+        EXECUTE format('ALTER TABLE training_logs ATTACH PARTITION public.%I FOR VALUES FROM (%L) TO (%L)',
+                       v_name, v_start, v_end);
+    ELSE
+        EXECUTE format('CREATE TABLE public.%I PARTITION OF training_logs FOR VALUES FROM (%L) TO (%L)',
+                       v_name, v_start, v_end);
+    END IF;
+
+    RETURN v_name;
+END;
+$$;
+
+-- Detach the partition for the month containing p_month and move it into the
+-- training_logs_archive schema. The data stays queryable there but is no
+-- longer scanned or indexed as part of training_logs. Returns NULL when
+-- there is nothing to archive, so running it again is a no-op. If the month
+-- was archived before and its partition has since been created again (e.g.
+-- by a late log), the new rows are added to the archived table.
+CREATE OR REPLACE FUNCTION archive_training_logs_partition(p_month DATE)
+RETURNS TEXT
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_start DATE := date_trunc('month', p_month)::date;
+    v_name  TEXT := format('training_logs_y%sm%s', to_char(v_start, 'YYYY'), to_char(v_start, 'MM'));
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('training_logs_partitions'));
+
+    IF to_regclass('public.' || v_name) IS NULL THEN
+        RETURN NULL;
+    END IF;
+
+    EXECUTE format('ALTER TABLE training_logs DETACH PARTITION public.%I', v_name);
+    IF to_regclass('training_logs_archive.' || v_name) IS NULL THEN
+        EXECUTE format('ALTER TABLE public.%I SET SCHEMA training_logs_archive', v_name);
+    ELSE
+        EXECUTE format('INSERT INTO training_logs_archive.%I SELECT * FROM public.%I', v_name, v_name);
+        EXECUTE format('DROP TABLE public.%I', v_name);
+    END IF;
+
+    RETURN 'training_logs_archive.' || v_name;
+END;
+$$;
+
+-- One partition per month that has data, plus the current month and the next three
+DO $$
+DECLARE
+    v_month DATE;
+BEGIN
+    FOR v_month IN
+        SELECT DISTINCT date_trunc('month', workout_date)::date FROM training_logs_unpartitioned
+        UNION
+        SELECT (date_trunc('month', CURRENT_DATE) + make_interval(months => n))::date FROM generate_series(0, 3) AS n
+    LOOP
+        PERFORM create_training_logs_partition(v_month);
+    END LOOP;
+END;
+$$;
+
+INSERT INTO training_logs (id, user_id, workout_date, exercise_name, exercise_id, sets, reps, weight, weight_unit,
+                           rest_seconds, duration_minutes, calories_burned, difficulty_rating, notes,
+                           created_at, updated_at)
+SELECT id, user_id, workout_date, exercise_name, exercise_id, sets, reps, weight, weight_unit,
+       rest_seconds, duration_minutes, calories_burned, difficulty_rating, notes,
+       created_at, updated_at
+FROM training_logs_unpartitioned;
+
+DO $$
+BEGIN
+    IF (SELECT COUNT(*) FROM training_logs) <> (SELECT COUNT(*) FROM training_logs_unpartitioned) THEN
+        RAISE EXCEPTION 'training_logs row count mismatch after copy, rolling back';
+    END IF;
+END;
+$$;
+
+DROP TABLE training_logs_unpartitioned;
+
+-- Created on the parent, so every current and future partition gets them
+CREATE INDEX idx_training_logs_user_date ON training_logs (user_id, workout_date);
+CREATE INDEX idx_training_logs_user_updated ON training_logs (user_id, updated_at);
+
+COMMIT;
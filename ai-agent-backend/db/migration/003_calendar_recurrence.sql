@@ -0,0 +1,17 @@
+-- Recurring calendar events (RRULE + EXDATE).
+-- Hibernate (ddl-auto=update) adds the columns on its own; this script makes
+-- them explicit and adds the index used by CalendarEventRepository.findInWindow.
+-- Safe to re-run.
+
+ALTER TABLE calendar_events ADD COLUMN IF NOT EXISTS recurrence_rule VARCHAR(500);
+ALTER TABLE calendar_events ADD COLUMN IF NOT EXISTS recurrence_until TIMESTAMP;
+ALTER TABLE calendar_events ADD COLUMN IF NOT EXISTS exception_dates TEXT;
+
+-- Single events: range scan on start time
+CREATE INDEX IF NOT EXISTS idx_calendar_events_user_start
+    ON calendar_events (user_id, start_time);
+
+-- Series: a small partial index, one row per series rather than per occurrence
+CREATE INDEX IF NOT EXISTS idx_calendar_events_user_series
+    ON calendar_events (user_id, recurrence_until)
+    WHERE recurrence_rule IS NOT NULL;
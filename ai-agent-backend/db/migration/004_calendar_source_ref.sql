@@ -0,0 +1,10 @@
+-- Generated calendar events remember where they came from
+-- (e.g. "plan:12:day:3" for workouts placed by auto-scheduling).
+-- Hibernate adds the column on startup; the index keeps re-runs of the
+-- scheduler from creating duplicates cheaply. Safe to re-run.
+
+ALTER TABLE calendar_events ADD COLUMN IF NOT EXISTS source_ref VARCHAR(100);
+
+CREATE INDEX IF NOT EXISTS idx_calendar_events_user_source
+    ON calendar_events (user_id, source_ref)
+    WHERE source_ref IS NOT NULL;
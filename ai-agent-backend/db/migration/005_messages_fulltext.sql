@@ -0,0 +1,14 @@
+-- Full-text search over chat history (MessageRepository.search).
+-- The tsvector is a generated column, so Postgres keeps it current on every
+-- insert and update; Hibernate does not map it and leaves it alone.
+-- Building the column rewrites the table once. Safe to re-run.
+
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS content_tsv tsvector
+    GENERATED ALWAYS AS (to_tsvector('english', coalesce(content, ''))) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_messages_content_tsv
+    ON messages USING GIN (content_tsv);
+
+-- Search is always scoped to one user's conversations
+CREATE INDEX IF NOT EXISTS idx_conversations_user
+    ON conversations (user_id);
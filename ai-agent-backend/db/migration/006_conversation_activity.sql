@@ -0,0 +1,29 @@
+-- Conversation list keyset (ConversationRepository.findSummaries).
+-- last_activity_at and message_count live on the conversation row and are
+-- kept by MessageService.saveMessage and ConversationArchiveService, so a
+-- page of the list is an index range scan instead of a count over every
+-- message of the user. Backfills from live and archived messages.
+-- Safe to re-run.
+
+ALTER TABLE conversations ADD COLUMN IF NOT EXISTS last_activity_at TIMESTAMP;
+ALTER TABLE conversations ADD COLUMN IF NOT EXISTS message_count INTEGER;
+
+UPDATE conversations c
+SET message_count = COALESCE(s.message_count, 0) + COALESCE(a.message_count, 0),
+    last_activity_at = COALESCE(GREATEST(s.last_activity, a.last_activity_at), c.created_at, now())
+FROM conversations c2
+LEFT JOIN (SELECT conversation_id, COUNT(*) AS message_count, MAX(created_at) AS last_activity
+           FROM messages GROUP BY conversation_id) s ON s.conversation_id = c2.id
+LEFT JOIN archived_conversations a ON a.conversation_id = c2.id
+WHERE c2.id = c.id
+  AND (c.message_count IS NULL OR c.last_activity_at IS NULL);
+
+ALTER TABLE conversations ALTER COLUMN message_count SET DEFAULT 0;
+ALTER TABLE conversations ALTER COLUMN message_count SET NOT NULL;
+ALTER TABLE conversations ALTER COLUMN last_activity_at SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_conversations_user_activity
+    ON conversations (user_id, last_activity_at DESC, id DESC);
+
+-- The keyset index leads with user_id, so the plain one from 005 is redundant
+DROP INDEX IF EXISTS idx_conversations_user;
@@ -0,0 +1,21 @@
+-- Keep archived conversations searchable (MessageRepository.search).
+-- ConversationArchiveService copies each message's tsvector here before the
+-- message moves to cold storage, and deletes the rows on rehydration.
+-- Hibernate creates the table on startup; this adds the GIN index it cannot.
+-- Conversations archived before this change are indexed from their frames by
+-- the next archiver runs. Safe to re-run.
+
+CREATE TABLE IF NOT EXISTS archived_message_terms (
+    message_id      BIGINT PRIMARY KEY,
+    conversation_id BIGINT NOT NULL,
+    user_id         BIGINT NOT NULL,
+    is_user         BOOLEAN NOT NULL,
+    created_at      TIMESTAMP,
+    content_tsv     tsvector
+);
+
+CREATE INDEX IF NOT EXISTS idx_archived_message_terms_content_tsv
+    ON archived_message_terms USING GIN (content_tsv);
+
+CREATE INDEX IF NOT EXISTS idx_archived_message_terms_conversation
+    ON archived_message_terms (conversation_id);
@@ -0,0 +1,55 @@
+package com.aiagent.main.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-process Caffeine caches for data read on almost every request. Each
+ * region has its own TTL and size limit, overridable with
+ * cache.regions.{name}.ttl-seconds and cache.regions.{name}.max-size.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String USERS = "users";
+    // Keyed by user id
+    public static final String USER_PROFILES = "userProfiles";
+
+    // Region -> {TTL seconds, max entries}
+    private static final Map<String, long[]> REGIONS = new LinkedHashMap<>();
+
+    static {
+        REGIONS.put(USERS, new long[]{600, 10_000});
+        REGIONS.put(USER_PROFILES, new long[]{600, 10_000});
+    }
+
+    @Bean
+    public CacheManager cacheManager(Environment environment) {
+        List<CaffeineCache> caches = new ArrayList<>();
+        REGIONS.forEach((name, defaults) -> {
+            long ttl = environment.getProperty("cache.regions." + name + ".ttl-seconds", Long.class, defaults[0]);
+            long maxSize = environment.getProperty("cache.regions." + name + ".max-size", Long.class, defaults[1]);
+            caches.add(new CaffeineCache(name, Caffeine.newBuilder()
+                    .expireAfterWrite(Duration.ofSeconds(ttl))
+                    .maximumSize(maxSize)
+                    .recordStats()
+                    .build()));
+        });
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(caches);
+        return cacheManager;
+    }
+}
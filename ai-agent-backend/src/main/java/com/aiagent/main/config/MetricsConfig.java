@@ -0,0 +1,73 @@
+package com.aiagent.main.config;
+
+import com.aiagent.main.service.EquipmentOccupancyService;
+import com.aiagent.main.service.GymEquipmentService;
+import com.aiagent.main.service.PlanTemplateCache;
+import com.aiagent.main.service.ReminderScheduler;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Publishes the in-process counters of the app's own components as metrics.
+ * Hikari pool, Caffeine cache, repository and HTTP endpoint metrics come from
+ * Spring Boot's auto-configuration; LLM calls are timed in AiModelClient.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder applicationMetrics(PlanTemplateCache planTemplateCache,
+                                          ReminderScheduler reminderScheduler,
+                                          EquipmentOccupancyService equipmentOccupancyService,
+                                          GymEquipmentService gymEquipmentService) {
+        return registry -> {
+            Supplier<Map<String, Object>> templates = planTemplateCache::getStats;
+            gauge(registry, "plan.template.cache.buckets", templates, "buckets");
+            counter(registry, "plan.template.cache.lookups", templates, "lookups");
+            counter(registry, "plan.template.cache.hits", templates, "hits");
+            counter(registry, "plan.template.cache.stored", templates, "templatesStored");
+            counter(registry, "plan.template.cache.rejected", templates, "templatesRejected");
+
+            Supplier<Map<String, Object>> reminders = reminderScheduler::getStats;
+            gauge(registry, "reminders.owned.slices", reminders, "ownedSlices");
+            gauge(registry, "reminders.pending", reminders, "pending");
+            counter(registry, "reminders.scheduled", reminders, "scheduled");
+            counter(registry, "reminders.sent", reminders, "sent");
+            counter(registry, "reminders.duplicates", reminders, "duplicates");
+            counter(registry, "reminders.stale", reminders, "stale");
+            counter(registry, "reminders.failed", reminders, "failed");
+
+            Supplier<Map<String, Object>> occupancy = equipmentOccupancyService::getStats;
+            gauge(registry, "occupancy.open.sessions", occupancy, "openSessions");
+            gauge(registry, "occupancy.subscribers", occupancy, "subscribers");
+            counter(registry, "occupancy.check.ins", occupancy, "checkIns");
+            counter(registry, "occupancy.check.outs", occupancy, "checkOuts");
+            counter(registry, "occupancy.expired.sessions", occupancy, "expiredSessions");
+
+            Gauge.builder("equipment.catalog.version", gymEquipmentService, GymEquipmentService::getCatalogVersion)
+                    .register(registry);
+            Gauge.builder("equipment.catalog.size", gymEquipmentService, s -> s.getAllEquipment().size())
+                    .register(registry);
+        };
+    }
+
+    private static void gauge(MeterRegistry registry, String name, Supplier<Map<String, Object>> stats, String key) {
+        Gauge.builder(name, stats, s -> value(s, key)).register(registry);
+    }
+
+    private static void counter(MeterRegistry registry, String name, Supplier<Map<String, Object>> stats, String key) {
+        FunctionCounter.builder(name, stats, s -> value(s, key)).register(registry);
+    }
+
+    private static double value(Supplier<Map<String, Object>> stats, String key) {
+        Object value = stats.get().get(key);
+        return value instanceof Number number ? number.doubleValue() : Double.NaN;
+    }
+}
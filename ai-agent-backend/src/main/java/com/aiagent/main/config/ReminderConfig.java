@@ -0,0 +1,17 @@
+package com.aiagent.main.config;
+
+import com.aiagent.main.service.LoggingReminderNotifier;
+import com.aiagent.main.service.ReminderNotifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ReminderConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(ReminderNotifier.class)
+    public ReminderNotifier reminderNotifier() {
+        return new LoggingReminderNotifier();
+    }
+}
@@ -3,13 +3,18 @@ package com.aiagent.main.controller;
 import com.aiagent.main.entity.CalendarEvent;
 import com.aiagent.main.entity.User;
 import com.aiagent.main.service.CalendarService;
+import com.aiagent.main.service.FreeBusyService;
 import com.aiagent.main.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -27,6 +32,9 @@ public class CalendarController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private FreeBusyService freeBusyService;
+    
     @GetMapping("/events")
     public ResponseEntity<List<CalendarEvent>> getEvents(@RequestParam Long userId) {
         try {
@@ -78,14 +86,63 @@ public class CalendarController {
             event.setStartTime(java.time.LocalDateTime.parse(startTimeStr.replace("Z", ""), formatter));
             event.setEndTime(java.time.LocalDateTime.parse(endTimeStr.replace("Z", ""), formatter));
             
+            // 重复规则 (RRULE)，可选
+            if (eventData.get("recurrenceRule") != null) {
+                event.setRecurrenceRule(eventData.get("recurrenceRule").toString());
+            }
+            
             CalendarEvent savedEvent = calendarService.saveEvent(event);
             return ResponseEntity.ok(savedEvent);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
     
+    @GetMapping("/events/range")
+    public ResponseEntity<List<Map<String, Object>>> getEventsInRange(@RequestParam Long userId,
+                                                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+                                                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        try {
+            if (!end.isAfter(start)) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.ok(calendarService.getOccurrences(userId, start, end));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    @GetMapping("/free-slots")
+    public ResponseEntity<List<Map<String, Object>>> getFreeSlots(@RequestParam Long userId,
+                                                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+                                                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+                                                                  @RequestParam(defaultValue = "30") int minMinutes) {
+        try {
+            if (!end.isAfter(start)) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.ok(freeBusyService.findFreeSlots(userId, start, end, minMinutes));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    @PostMapping("/events/{eventId}/exceptions")
+    public ResponseEntity<CalendarEvent> addException(@PathVariable Long eventId,
+                                                      @RequestParam Long userId,
+                                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime occurrenceStart) {
+        try {
+            return ResponseEntity.ok(calendarService.addException(eventId, userId, occurrenceStart));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
     @DeleteMapping("/events/{eventId}")
     public ResponseEntity<Void> deleteEvent(@PathVariable Long eventId) {
         try {
@@ -97,25 +154,31 @@ public class CalendarController {
     }
     
     @GetMapping("/export/{userId}")
-    public ResponseEntity<String> exportCalendar(@PathVariable Long userId, 
-                                               @RequestParam(defaultValue = "AI Agent Calendar") String calendarName) {
+    public ResponseEntity<StreamingResponseBody> exportCalendar(@PathVariable Long userId,
+                                               @RequestParam(defaultValue = "AI Agent Calendar") String calendarName,
+                                               WebRequest webRequest) {
         try {
             Optional<User> userOpt = userService.findById(userId);
             if (userOpt.isEmpty()) {
                 return ResponseEntity.notFound().build();
             }
-            User user = userOpt.get();
-            
-            List<CalendarEvent> events = calendarService.getEventsByUser(user);
-            String icsContent = calendarService.generateICalendarContent(events, calendarName);
-            
+
+            // Subscribed clients poll often; unchanged calendars answer 304 without touching the events
+            String etag = calendarService.getCalendarETag(userId, calendarName);
+            if (webRequest.checkNotModified(etag)) {
+                return null;
+            }
+
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.parseMediaType("text/calendar; charset=utf-8"));
             headers.setContentDispositionFormData("attachment", "ai-agent-calendar.ics");
-            
+            headers.setETag(etag);
+            headers.setCacheControl(CacheControl.noCache());
+
+            StreamingResponseBody body = out -> calendarService.writeICalendar(userId, calendarName, out);
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(icsContent);
+                    .body(body);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -2,6 +2,7 @@ package com.aiagent.main.controller;
 
 import com.aiagent.main.entity.Conversation;
 import com.aiagent.main.service.ConversationService;
+import com.aiagent.main.service.MessageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,6 +17,9 @@ public class ConversationController {
     @Autowired
     private ConversationService conversationService;
 
+    @Autowired
+    private MessageService messageService;
+
     @PostMapping("/create/{userId}")
     public ResponseEntity<?> createConversation(@PathVariable Long userId, @RequestBody Conversation conversation) {
         try {
@@ -32,6 +36,33 @@ public class ConversationController {
         return ResponseEntity.ok(conversations);
     }
 
+    @GetMapping("/user/{userId}/summaries")
+    public ResponseEntity<?> getConversationSummaries(@PathVariable Long userId,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(defaultValue = "20") int limit) {
+        try {
+            int pageSize = Math.min(Math.max(limit, 1), 100);
+            return ResponseEntity.ok(conversationService.getConversationSummaries(userId, cursor, pageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/user/{userId}/search")
+    public ResponseEntity<?> searchMessages(@PathVariable Long userId,
+                                            @RequestParam String q,
+                                            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(messageService.searchMessages(userId, q, Math.min(Math.max(limit, 1), 50)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(e.getMessage());
+        }
+    }
+
     @GetMapping("/{conversationId}")
     public ResponseEntity<?> getConversation(@PathVariable Long conversationId) {
         try {
@@ -42,4 +73,22 @@ public class ConversationController {
             return ResponseEntity.status(500).body(e.getMessage());
         }
     }
+
+    @GetMapping("/{conversationId}/messages")
+    public ResponseEntity<?> getMessages(@PathVariable Long conversationId,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "30") int limit) {
+        try {
+            // Also brings an archived conversation back before its messages are read
+            if (conversationService.findById(conversationId).isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            int pageSize = Math.min(Math.max(limit, 1), 100);
+            return ResponseEntity.ok(messageService.getMessagePage(conversationId, cursor, pageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(e.getMessage());
+        }
+    }
 }
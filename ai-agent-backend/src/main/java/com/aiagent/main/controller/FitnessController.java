@@ -2,8 +2,14 @@ package com.aiagent.main.controller;
 
 import com.aiagent.main.entity.ChatRequest;
 import com.aiagent.main.entity.ChatResponse;
+import com.aiagent.main.entity.EquipmentAlternative;
+import com.aiagent.main.entity.EquipmentCatalogVersion;
+import com.aiagent.main.entity.EquipmentOccupancy;
 import com.aiagent.main.entity.GymEquipment;
 import com.aiagent.main.service.AiAgentService;
+import com.aiagent.main.service.EquipmentAlternativesGraph;
+import com.aiagent.main.service.EquipmentCatalogImportService;
+import com.aiagent.main.service.EquipmentOccupancyService;
 import com.aiagent.main.service.GymEquipmentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,8 +20,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @RestController
@@ -26,6 +34,9 @@ public class FitnessController {
 
     private final AiAgentService aiAgentService;
     private final GymEquipmentService gymEquipmentService;
+    private final EquipmentAlternativesGraph equipmentAlternativesGraph;
+    private final EquipmentOccupancyService equipmentOccupancyService;
+    private final EquipmentCatalogImportService equipmentCatalogImportService;
 
     @PostMapping("/chat")
     @Operation(summary = "Chat with fitness AI agent", description = "Get fitness equipment alternatives from AI agent")
@@ -64,11 +75,72 @@ public class FitnessController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/equipment/{name}/alternatives")
+    @Operation(summary = "Get equipment alternatives", description = "Ranked substitutes for equipment that is taken, up to maxHops steps away in the alternatives graph")
+    public ResponseEntity<List<EquipmentAlternative>> getAlternatives(
+            @Parameter(description = "Equipment name") @PathVariable String name,
+            @Parameter(description = "Maximum substitution steps (1-3)") @RequestParam(defaultValue = "2") int maxHops,
+            @Parameter(description = "Maximum number of results") @RequestParam(defaultValue = "10") int limit) {
+        return equipmentAlternativesGraph
+                .findAlternatives(name, Math.min(Math.max(maxHops, 1), 3), Math.min(Math.max(limit, 1), 50))
+                .map(equipmentOccupancyService::preferFree)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/equipment/{name}/check-in")
+    @Operation(summary = "Check in to equipment", description = "Mark one unit of the equipment as in use; returns a session id for check-out")
+    public ResponseEntity<EquipmentOccupancyService.CheckIn> checkIn(
+            @Parameter(description = "Equipment name") @PathVariable String name) {
+        return gymEquipmentService.getEquipmentByName(name)
+                .map(equipmentOccupancyService::checkIn)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/equipment/{name}/check-out")
+    @Operation(summary = "Check out of equipment", description = "Free one unit of the equipment, by session id when known")
+    public ResponseEntity<?> checkOut(
+            @Parameter(description = "Equipment name") @PathVariable String name,
+            @Parameter(description = "Session id returned by check-in") @RequestParam(required = false) String sessionId) {
+        try {
+            return gymEquipmentService.getEquipmentByName(name)
+                    .map(equipment -> equipmentOccupancyService.checkOut(equipment, sessionId))
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/equipment/{name}/occupancy")
+    @Operation(summary = "Get equipment occupancy", description = "Units in use, capacity and estimated wait")
+    public ResponseEntity<EquipmentOccupancy> getOccupancy(
+            @Parameter(description = "Equipment name") @PathVariable String name) {
+        return gymEquipmentService.getEquipmentByName(name)
+                .map(equipmentOccupancyService::getOccupancy)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/occupancy")
+    @Operation(summary = "Get all occupancy", description = "Occupancy of all equipment that has seen a check-in")
+    public ResponseEntity<List<EquipmentOccupancy>> getAllOccupancy() {
+        return ResponseEntity.ok(equipmentOccupancyService.getAllOccupancy());
+    }
+
+    @GetMapping(value = "/occupancy/stream", produces = "text/event-stream")
+    @Operation(summary = "Stream occupancy", description = "Server-sent events: a snapshot on connect, then batched occupancy changes")
+    public SseEmitter streamOccupancy() {
+        return equipmentOccupancyService.subscribe();
+    }
+
     @GetMapping("/equipment/search")
-    @Operation(summary = "Search equipment", description = "Search gym equipment by keyword")
+    @Operation(summary = "Search equipment", description = "Typo-tolerant search over equipment name, muscles and description, best match first")
     public ResponseEntity<List<GymEquipment>> searchEquipment(
-            @Parameter(description = "Search keyword") @RequestParam String keyword) {
-        return ResponseEntity.ok(gymEquipmentService.searchEquipment(keyword));
+            @Parameter(description = "Search keyword") @RequestParam String keyword,
+            @Parameter(description = "Maximum number of results") @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(gymEquipmentService.searchEquipment(keyword, Math.min(Math.max(limit, 1), 100)));
     }
 
     @GetMapping("/equipment/muscle/{muscle}")
@@ -77,4 +149,38 @@ public class FitnessController {
             @Parameter(description = "Muscle group name") @PathVariable String muscle) {
         return ResponseEntity.ok(gymEquipmentService.getEquipmentByMuscleGroup(muscle));
     }
+
+    @PostMapping("/catalog/import")
+    @Operation(summary = "Import equipment catalog", description = "Bulk upsert equipment from a JSON array or CSV body as a new catalog version; replace=true also removes equipment not in the file")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Catalog imported (or validated, for a dry run)"),
+            @ApiResponse(responseCode = "400", description = "Invalid file or rows; nothing was written")
+    })
+    public ResponseEntity<?> importCatalog(
+            @RequestBody String body,
+            @Parameter(description = "json or csv") @RequestParam(defaultValue = "json") String format,
+            @Parameter(description = "Remove equipment missing from the file") @RequestParam(defaultValue = "false") boolean replace,
+            @Parameter(description = "Validate and count without writing") @RequestParam(defaultValue = "false") boolean dryRun) {
+        try {
+            var rows = "csv".equalsIgnoreCase(format)
+                    ? equipmentCatalogImportService.parseCsv(body)
+                    : equipmentCatalogImportService.parseJson(body);
+            return ResponseEntity.ok(equipmentCatalogImportService.importCatalog(rows, "api", replace, dryRun));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error importing equipment catalog", e);
+            return ResponseEntity.status(500).body(Map.of("error", "Catalog import failed: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/catalog/versions")
+    @Operation(summary = "Get catalog versions", description = "Current catalog version and the most recent imports")
+    public ResponseEntity<Map<String, Object>> getCatalogVersions() {
+        List<EquipmentCatalogVersion> versions = equipmentCatalogImportService.getVersions();
+        return ResponseEntity.ok(Map.of(
+                "current", gymEquipmentService.getCatalogVersion(),
+                "equipmentCount", gymEquipmentService.getAllEquipment().size(),
+                "imports", versions));
+    }
 }
@@ -2,6 +2,7 @@ package com.aiagent.main.controller;
 
 import com.aiagent.main.entity.User;
 import com.aiagent.main.repository.UserRepository;
+import com.aiagent.main.service.CacheInvalidationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -17,6 +18,9 @@ public class HealthController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private CacheInvalidationService cacheInvalidationService;
+
     @GetMapping
     public ResponseEntity<Map<String, Object>> health() {
         Map<String, Object> response = new HashMap<>();
@@ -33,4 +37,9 @@ public class HealthController {
         
         return ResponseEntity.ok(response);
     }
+
+    @GetMapping("/caches")
+    public ResponseEntity<Map<String, Object>> cacheStats() {
+        return ResponseEntity.ok(cacheInvalidationService.getStats());
+    }
 }
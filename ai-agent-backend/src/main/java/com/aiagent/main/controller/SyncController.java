@@ -0,0 +1,39 @@
+package com.aiagent.main.controller;
+
+import com.aiagent.main.entity.SyncResponse;
+import com.aiagent.main.service.SyncService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/sync")
+@RequiredArgsConstructor
+@Tag(name = "Sync Controller", description = "Delta sync for offline-first clients")
+public class SyncController {
+
+    private final SyncService syncService;
+
+    @GetMapping
+    @Operation(summary = "Get changes since cursor",
+            description = "Returns training logs, plan workouts and calendar events created, updated or deleted since the cursor")
+    public ResponseEntity<?> getChanges(
+            @Parameter(description = "User ID") @RequestParam Long userId,
+            @Parameter(description = "Cursor from the previous sync; omit for a full sync") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum rows per entity type") @RequestParam(defaultValue = "200") int limit) {
+        try {
+            SyncResponse response = syncService.getChanges(userId, cursor, limit);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error syncing changes for user: {}", userId, e);
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
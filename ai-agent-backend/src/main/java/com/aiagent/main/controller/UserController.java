@@ -1,6 +1,7 @@
 package com.aiagent.main.controller;
 
 import com.aiagent.main.entity.User;
+import com.aiagent.main.entity.UserResponse;
 import com.aiagent.main.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -20,7 +21,7 @@ public class UserController {
     public ResponseEntity<?> registerUser(@RequestBody User user) {
         try {
             User newUser = userService.registerUser(user);
-            return ResponseEntity.ok(newUser);
+            return ResponseEntity.ok(UserResponse.from(newUser));
         } catch (Exception e) {
             return ResponseEntity.status(409).body(Collections.singletonMap("error", e.getMessage()));
         }
@@ -30,7 +31,7 @@ public class UserController {
     public ResponseEntity<?> login(@RequestBody User loginRequest) {
         try {
             User user = userService.loginUser(loginRequest.getEmail(), loginRequest.getPassword());
-            return ResponseEntity.ok(user);
+            return ResponseEntity.ok(UserResponse.from(user));
         } catch (Exception e) {
             return ResponseEntity.status(401).body(Collections.singletonMap("error", e.getMessage()));
         }
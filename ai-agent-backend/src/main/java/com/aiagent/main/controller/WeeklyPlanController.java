@@ -2,11 +2,16 @@ package com.aiagent.main.controller;
 
 import com.aiagent.main.entity.WeeklyPlan;
 import com.aiagent.main.entity.WeeklyPlanWorkout;
-import com.aiagent.main.entity.GymEquipment;
+import com.aiagent.main.entity.WorkoutBatchRequest;
+import com.aiagent.main.entity.WorkoutCompletionRequest;
+import com.aiagent.main.entity.WorkoutScheduleRequest;
+import com.aiagent.main.service.FreeBusyService;
 import com.aiagent.main.service.WeeklyPlanService;
-import com.aiagent.main.service.GymEquipmentService;
+import com.aiagent.main.service.WorkoutBatchService;
+import com.aiagent.main.service.MuscleGroupResolver;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -22,15 +27,24 @@ public class WeeklyPlanController {
     private WeeklyPlanService weeklyPlanService;
 
     @Autowired
-    private GymEquipmentService gymEquipmentService;
+    private WorkoutBatchService workoutBatchService;
+
+    @Autowired
+    private MuscleGroupResolver muscleGroupResolver;
+
+    @Autowired
+    private FreeBusyService freeBusyService;
 
     /**
-     * Generate a new weekly plan using AI
+     * Generate a new weekly plan, mode=ai (default) or mode=local for the rule-based planner.
+     * regenerate=true asks the model for a fresh plan instead of reusing a cached one.
      */
     @PostMapping("/generate")
-    public ResponseEntity<?> generateWeeklyPlan(@RequestParam Long userId) {
+    public ResponseEntity<?> generateWeeklyPlan(@RequestParam Long userId,
+                                                @RequestParam(defaultValue = "ai") String mode,
+                                                @RequestParam(defaultValue = "false") boolean regenerate) {
         try {
-            WeeklyPlan plan = weeklyPlanService.generateWeeklyPlan(userId);
+            WeeklyPlan plan = weeklyPlanService.generateWeeklyPlan(userId, mode, regenerate);
             return ResponseEntity.ok(convertToDTO(plan));
         } catch (Exception e) {
             log.error("Error generating weekly plan", e);
@@ -72,20 +86,64 @@ public class WeeklyPlanController {
         }
     }
 
+    /**
+     * Plan template cache reuse rate and LLM calls avoided
+     */
+    @GetMapping("/template-cache/stats")
+    public ResponseEntity<?> getTemplateCacheStats() {
+        return ResponseEntity.ok(weeklyPlanService.getTemplateCacheStats());
+    }
+
+    /**
+     * Get plan history for user, one page at a time
+     */
+    @GetMapping("/history")
+    public ResponseEntity<?> getPlanHistory(@RequestParam Long userId,
+                                            @RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "10") int size) {
+        try {
+            int pageSize = Math.min(Math.max(size, 1), 50);
+            Slice<WeeklyPlan> plans = weeklyPlanService.getPlanHistory(userId, Math.max(page, 0), pageSize);
+            Map<String, Object> response = new HashMap<>();
+            response.put("plans", plans.getContent().stream().map(this::convertToDTO).toList());
+            response.put("page", plans.getNumber());
+            response.put("size", pageSize);
+            response.put("hasNext", plans.hasNext());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error getting plan history", e);
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * Toggle workout completion
      */
     @PutMapping("/workout/{workoutId}/toggle")
     public ResponseEntity<?> toggleWorkoutCompletion(@PathVariable Long workoutId, @RequestParam Long userId) {
         try {
-            weeklyPlanService.toggleWorkoutCompletion(workoutId, userId);
-            return ResponseEntity.ok(Map.of("success", true));
+            boolean completed = weeklyPlanService.toggleWorkoutCompletion(workoutId, userId);
+            return ResponseEntity.ok(Map.of("success", true, "completed", completed));
         } catch (Exception e) {
             log.error("Error toggling workout completion", e);
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
 
+    /**
+     * Mark a day or a list of workouts as complete
+     */
+    @PutMapping("/workouts/complete")
+    public ResponseEntity<?> completeWorkouts(@RequestBody WorkoutCompletionRequest request, @RequestParam Long userId) {
+        try {
+            int updated = weeklyPlanService.setWorkoutsCompleted(request, userId);
+            return ResponseEntity.ok(Map.of("success", true, "updated", updated));
+        } catch (Exception e) {
+            log.error("Error completing workouts", e);
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * Check if next week has a plan
      */
@@ -210,6 +268,36 @@ public class WeeklyPlanController {
         }
     }
 
+    /**
+     * Apply a batch of add/update/delete/move operations to a plan
+     */
+    @PatchMapping("/{planId}/workouts")
+    public ResponseEntity<?> applyWorkoutBatch(@PathVariable Long planId,
+                                               @RequestBody WorkoutBatchRequest request,
+                                               @RequestParam Long userId) {
+        try {
+            return ResponseEntity.ok(workoutBatchService.applyBatch(planId, userId, request));
+        } catch (Exception e) {
+            log.error("Error applying workout batch", e);
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Place the plan's training days into free calendar time
+     */
+    @PostMapping("/{planId}/schedule")
+    public ResponseEntity<?> scheduleWorkouts(@PathVariable Long planId,
+                                              @RequestBody(required = false) WorkoutScheduleRequest request,
+                                              @RequestParam Long userId) {
+        try {
+            return ResponseEntity.ok(freeBusyService.autoSchedule(planId, userId, request));
+        } catch (Exception e) {
+            log.error("Error scheduling workouts", e);
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * Convert WeeklyPlan entity to DTO for API response
      */
@@ -259,80 +347,16 @@ public class WeeklyPlanController {
      */
     private Map<Integer, String> calculateMuscleGroupsByDay(Map<Integer, List<Map<String, Object>>> workoutsByDay) {
         Map<Integer, String> muscleGroupsByDay = new HashMap<>();
-        
+
         for (Map.Entry<Integer, List<Map<String, Object>>> entry : workoutsByDay.entrySet()) {
-            Integer dayIndex = entry.getKey();
-            List<Map<String, Object>> workouts = entry.getValue();
-            
-            Set<String> allMuscles = new HashSet<>();
-            
-            for (Map<String, Object> workout : workouts) {
-                String workoutName = (String) workout.get("workoutName");
-                if (workoutName != null && !workoutName.isEmpty()) {
-                    // Try to find matching equipment
-                    Optional<GymEquipment> equipmentOpt = gymEquipmentService.getEquipmentByName(workoutName);
-                    
-                    if (equipmentOpt.isPresent()) {
-                        String primaryMuscles = equipmentOpt.get().getPrimaryMuscles();
-                        if (primaryMuscles != null && !primaryMuscles.isEmpty()) {
-                            // Split by comma and add each muscle
-                            String[] muscles = primaryMuscles.split(",");
-                            for (String muscle : muscles) {
-                                String trimmed = muscle.trim();
-                                if (!trimmed.isEmpty()) {
-                                    allMuscles.add(trimmed);
-                                }
-                            }
-                        }
-                    } else {
-                        // Try to search by keyword in workout name (only take first match)
-                        List<GymEquipment> searchResults = gymEquipmentService.searchEquipment(workoutName);
-                        if (!searchResults.isEmpty()) {
-                            GymEquipment equipment = searchResults.get(0);
-                            String primaryMuscles = equipment.getPrimaryMuscles();
-                            if (primaryMuscles != null && !primaryMuscles.isEmpty()) {
-                                String[] muscles = primaryMuscles.split(",");
-                                for (String muscle : muscles) {
-                                    String trimmed = muscle.trim();
-                                    if (!trimmed.isEmpty()) {
-                                        allMuscles.add(trimmed);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-            
-            // Format muscles for display
-            if (!allMuscles.isEmpty()) {
-                // Get unique muscles and format nicely
-                List<String> sortedMuscles = new ArrayList<>(allMuscles);
-                Collections.sort(sortedMuscles);
-                
-                // Take first 3 most common or all if less than 3
-                String display = sortedMuscles.stream()
-                        .limit(3)
-                        .map(muscle -> {
-                            // Simplify muscle names for display
-                            if (muscle.contains("Chest")) return "Chest";
-                            if (muscle.contains("Back")) return "Back";
-                            if (muscle.contains("Leg")) return "Legs";
-                            if (muscle.contains("Shoulder")) return "Shoulders";
-                            if (muscle.contains("Arm") || muscle.contains("Bicep") || muscle.contains("Tricep")) return "Arms";
-                            if (muscle.contains("Core") || muscle.contains("Abs")) return "Core";
-                            if (muscle.contains("Cardiovascular")) return "Cardio";
-                            return muscle;
-                        })
-                        .distinct()
-                        .collect(Collectors.joining(", "));
-                
-                muscleGroupsByDay.put(dayIndex, display);
-            } else {
-                muscleGroupsByDay.put(dayIndex, "");
-            }
+            List<String> workoutNames = entry.getValue().stream()
+                    .map(workout -> (String) workout.get("workoutName"))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            // Resolved against the in-memory catalog index, no equipment queries here
+            muscleGroupsByDay.put(entry.getKey(), muscleGroupResolver.describe(workoutNames));
         }
-        
+
         return muscleGroupsByDay;
     }
 }
@@ -0,0 +1,50 @@
+package com.aiagent.main.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Index entry of an archived conversation: where its frame sits in the
+ * segment, plus what the conversation list needs without opening it.
+ */
+@Entity
+@Table(name = "archived_conversations", indexes = {
+        @Index(name = "idx_archived_conversations_segment", columnList = "segment_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedConversation {
+
+    @Id
+    @Column(name = "conversation_id")
+    private Long conversationId;
+
+    @Column(name = "segment_id", nullable = false)
+    private Long segmentId;
+
+    @Column(name = "frame_offset", nullable = false)
+    private Integer frameOffset;
+
+    @Column(name = "frame_length", nullable = false)
+    private Integer frameLength;
+
+    @Column(name = "message_count", nullable = false)
+    private Integer messageCount;
+
+    @Column(name = "last_activity_at", nullable = false)
+    private LocalDateTime lastActivityAt;
+
+    @Column(name = "last_preview", length = 200)
+    private String lastPreview;
+
+    @Column(name = "last_message_from_user")
+    private Boolean lastMessageFromUser;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
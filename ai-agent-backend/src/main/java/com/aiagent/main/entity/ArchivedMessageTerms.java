@@ -0,0 +1,44 @@
+package com.aiagent.main.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Search terms of one archived message, so chat history search still finds
+ * conversations whose messages sit in cold storage. The text itself stays in
+ * the compressed frame; snippets for these hits are built from it on demand.
+ * Rows are written by ConversationArchiveService and removed on rehydration.
+ */
+@Entity
+@Table(name = "archived_message_terms", indexes = {
+        @Index(name = "idx_archived_message_terms_conversation", columnList = "conversation_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedMessageTerms {
+
+    @Id
+    @Column(name = "message_id")
+    private Long messageId;
+
+    @Column(name = "conversation_id", nullable = false)
+    private Long conversationId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "is_user", nullable = false)
+    private Boolean isUser;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    // Same as messages.content_tsv; written by SQL only (GIN index in db/migration/007)
+    @Column(name = "content_tsv", columnDefinition = "tsvector", insertable = false, updatable = false)
+    private String contentTsv;
+}
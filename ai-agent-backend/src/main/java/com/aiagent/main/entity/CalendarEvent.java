@@ -28,6 +28,31 @@ public class CalendarEvent {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
     
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // RFC 5545 RRULE value (e.g. FREQ=WEEKLY;BYDAY=MO,WE); null for single events
+    @Column(name = "recurrence_rule", length = 500)
+    private String recurrenceRule;
+    
+    // End of the last occurrence, null for series without an end; lets range queries skip finished series
+    @Column(name = "recurrence_until")
+    private LocalDateTime recurrenceUntil;
+    
+    // Cancelled occurrence starts (EXDATE), comma-separated ISO date-times
+    @Column(name = "exception_dates", columnDefinition = "TEXT")
+    private String exceptionDates;
+    
+    // Origin of generated events, e.g. "plan:12:day:3" for auto-scheduled workouts
+    @Column(name = "source_ref", length = 100)
+    private String sourceRef;
+    
+    @PrePersist
+    @PreUpdate
+    protected void onChange() {
+        updatedAt = LocalDateTime.now();
+    }
+    
     // 构造函数
     public CalendarEvent() {}
     
@@ -96,4 +121,44 @@ public class CalendarEvent {
     public void setUser(User user) {
         this.user = user;
     }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    public String getRecurrenceRule() {
+        return recurrenceRule;
+    }
+    
+    public void setRecurrenceRule(String recurrenceRule) {
+        this.recurrenceRule = recurrenceRule;
+    }
+    
+    public LocalDateTime getRecurrenceUntil() {
+        return recurrenceUntil;
+    }
+    
+    public void setRecurrenceUntil(LocalDateTime recurrenceUntil) {
+        this.recurrenceUntil = recurrenceUntil;
+    }
+    
+    public String getExceptionDates() {
+        return exceptionDates;
+    }
+    
+    public void setExceptionDates(String exceptionDates) {
+        this.exceptionDates = exceptionDates;
+    }
+    
+    public String getSourceRef() {
+        return sourceRef;
+    }
+    
+    public void setSourceRef(String sourceRef) {
+        this.sourceRef = sourceRef;
+    }
 }
@@ -1,13 +1,16 @@
 package com.aiagent.main.entity;
 
 import jakarta.persistence.*;
-import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "conversations")
+@Table(name = "conversations", indexes = {
+        // Keyset for the conversation list (ConversationRepository.findSummaries)
+        @Index(name = "idx_conversations_user_activity", columnList = "user_id, last_activity_at DESC, id DESC")
+})
 public class Conversation {
 
     @Id
@@ -20,23 +23,40 @@ public class Conversation {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // Kept by SQL on every message insert, archive and rehydrate; never written back from here
+    @Column(name = "last_activity_at", updatable = false)
+    private LocalDateTime lastActivityAt;
+
+    @Column(name = "message_count", updatable = false)
+    private Integer messageCount;
+
+    // Set while the messages live in cold storage (see ConversationArchiveService)
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
-    @JsonBackReference
+    @JsonIgnore
     private User user;
 
+    // Messages are read page by page (GET /api/conversations/{id}/messages), never with the conversation
     @OneToMany(mappedBy = "conversation", cascade = CascadeType.ALL, orphanRemoval = true)
+    @JsonIgnore
     private List<Message> messages = new ArrayList<>();
 
     // Constructors
     public Conversation() {
         this.createdAt = LocalDateTime.now();
+        this.lastActivityAt = createdAt;
+        this.messageCount = 0;
     }
 
     public Conversation(String title, User user) {
         this.title = title;
         this.user = user;
         this.createdAt = LocalDateTime.now();
+        this.lastActivityAt = createdAt;
+        this.messageCount = 0;
     }
 
     // Getters and Setters
@@ -64,6 +84,30 @@ public class Conversation {
         this.createdAt = createdAt;
     }
 
+    public LocalDateTime getLastActivityAt() {
+        return lastActivityAt;
+    }
+
+    public void setLastActivityAt(LocalDateTime lastActivityAt) {
+        this.lastActivityAt = lastActivityAt;
+    }
+
+    public Integer getMessageCount() {
+        return messageCount;
+    }
+
+    public void setMessageCount(Integer messageCount) {
+        this.messageCount = messageCount;
+    }
+
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+
+    public void setArchivedAt(LocalDateTime archivedAt) {
+        this.archivedAt = archivedAt;
+    }
+
     public User getUser() {
         return user;
     }
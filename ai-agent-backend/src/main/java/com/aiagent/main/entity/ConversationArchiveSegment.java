@@ -0,0 +1,43 @@
+package com.aiagent.main.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cold storage for the messages of idle conversations of one user. The blob
+ * is a sequence of independently deflated frames, one per conversation, so a
+ * single conversation can be read back without inflating the rest.
+ */
+@Entity
+@Table(name = "conversation_archive_segments", indexes = {
+        @Index(name = "idx_conversation_archive_segments_user", columnList = "user_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationArchiveSegment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "conversation_count", nullable = false)
+    private Integer conversationCount;
+
+    // Size of the frames before compression
+    @Column(name = "raw_bytes", nullable = false)
+    private Long rawBytes;
+
+    @Column(name = "data", nullable = false)
+    private byte[] data;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,23 @@
+package com.aiagent.main.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the conversation list: no messages, just what the sidebar shows
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ConversationSummary {
+    private Long id;
+    private String title;
+    private LocalDateTime createdAt;
+    private long messageCount;
+    private LocalDateTime lastActivityAt;
+    private String lastMessagePreview;
+    private Boolean lastMessageFromUser;
+}
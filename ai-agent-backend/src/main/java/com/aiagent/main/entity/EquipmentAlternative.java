@@ -0,0 +1,27 @@
+package com.aiagent.main.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A substitute for a piece of equipment, found by walking the alternatives graph
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EquipmentAlternative {
+    private String name;
+    // Null when the alternative is only mentioned, not a catalog row (e.g. push-ups)
+    private Long equipmentId;
+    private double score;
+    private int hops;
+    // Names from the requested equipment to this one, both ends included
+    private List<String> path;
+    private List<String> sharedMuscles;
+    // Filled in from live occupancy; null when not known
+    private Boolean available;
+    private Long estimatedWaitSeconds;
+}
@@ -0,0 +1,45 @@
+package com.aiagent.main.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One bulk import of the equipment catalog. The newest row is the catalog
+ * version readers are on; gym_equipment.catalog_version points at the import
+ * that last wrote each row.
+ */
+@Entity
+@Table(name = "equipment_catalog_versions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EquipmentCatalogVersion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // File name, "api" or "default catalog"
+    @Column(nullable = false)
+    private String source;
+
+    // Rows missing from a replace import were deleted
+    @Column(name = "replace_mode", nullable = false)
+    private Boolean replaceMode;
+
+    @Column(name = "row_count", nullable = false)
+    private Integer rowCount;
+
+    private Integer inserted;
+
+    private Integer updated;
+
+    private Integer removed;
+
+    @Column(name = "imported_at", nullable = false)
+    private LocalDateTime importedAt;
+}
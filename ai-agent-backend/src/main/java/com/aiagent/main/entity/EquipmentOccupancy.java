@@ -0,0 +1,22 @@
+package com.aiagent.main.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Live occupancy of one piece of equipment and the expected wait for it
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EquipmentOccupancy {
+    private Long equipmentId;
+    private String name;
+    private long inUse;
+    private int capacity;
+    private boolean available;
+    private long estimatedWaitSeconds;
+    private long averageSessionSeconds;
+    private long updatedAt;
+}
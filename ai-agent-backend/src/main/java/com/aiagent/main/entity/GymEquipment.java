@@ -36,4 +36,8 @@ public class GymEquipment {
 
     @Column(length = 2000)
     private String tips;
+
+    // Catalog import that last wrote this row
+    @Column(name = "catalog_version")
+    private Long catalogVersion;
 }
@@ -0,0 +1,24 @@
+package com.aiagent.main.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A message matching a chat history search, with a highlighted snippet
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MessageSearchHit {
+    private Long messageId;
+    private Long conversationId;
+    private String conversationTitle;
+    private Boolean isUser;
+    private LocalDateTime createdAt;
+    private double rank;
+    // HTML: the escaped message text with matches wrapped in <mark>
+    private String snippet;
+}
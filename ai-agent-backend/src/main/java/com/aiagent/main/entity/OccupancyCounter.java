@@ -0,0 +1,33 @@
+package com.aiagent.main.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Shared occupancy of one piece of equipment. Every node changes it with a
+ * single atomic UPDATE ... RETURNING, so all nodes see the same count.
+ */
+@Entity
+@Table(name = "occupancy_counters")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OccupancyCounter {
+
+    @Id
+    @Column(name = "equipment_id")
+    private Long equipmentId;
+
+    @Column(name = "in_use", nullable = false)
+    private long inUse;
+
+    // Moving average of session lengths, drives the wait estimate
+    @Column(name = "average_session_ms", nullable = false)
+    private double averageSessionMs;
+
+    // Epoch milliseconds of the last change
+    @Column(name = "updated_at", nullable = false)
+    private long updatedAt;
+}
@@ -0,0 +1,32 @@
+package com.aiagent.main.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An open check-in. The (equipment_id, started_at) index is the per-equipment
+ * queue that check-outs without a session id take the oldest entry from.
+ */
+@Entity
+@Table(name = "occupancy_sessions", indexes = {
+        @Index(name = "idx_occupancy_sessions_equipment_started", columnList = "equipment_id, started_at"),
+        @Index(name = "idx_occupancy_sessions_started", columnList = "started_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OccupancySession {
+
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    @Column(name = "equipment_id", nullable = false)
+    private Long equipmentId;
+
+    // Epoch milliseconds
+    @Column(name = "started_at", nullable = false)
+    private long startedAt;
+}
@@ -0,0 +1,35 @@
+package com.aiagent.main.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A reminder that has been sent; the unique key keeps a slice taken over by
+ * another node from sending it twice.
+ */
+@Entity
+@Table(name = "reminder_deliveries", indexes = {
+        @Index(name = "idx_reminder_deliveries_delivered_at", columnList = "delivered_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReminderDelivery {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "reminder_key", nullable = false, unique = true, length = 150)
+    private String reminderKey;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "delivered_at", nullable = false)
+    private LocalDateTime deliveredAt;
+}
@@ -0,0 +1,31 @@
+package com.aiagent.main.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ownership of one reminder time slice. Only the node holding an unexpired
+ * lease loads and fires the reminders of that slice.
+ */
+@Entity
+@Table(name = "reminder_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReminderLease {
+
+    // Start of the slice of fire times, UTC
+    @Id
+    @Column(name = "slice_start")
+    private LocalDateTime sliceStart;
+
+    @Column(name = "owner", nullable = false, length = 100)
+    private String owner;
+
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+}
@@ -0,0 +1,27 @@
+package com.aiagent.main.entity;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class SyncResponse {
+    // Opaque cursor to send back on the next sync call
+    private String cursor;
+    // True when the batch limit was hit and the client should call again right away
+    private boolean hasMore;
+    // True when the client must drop its local copy before applying this batch
+    private boolean fullResync;
+    private List<Map<String, Object>> trainingLogs;
+    private List<Map<String, Object>> workouts;
+    private List<Map<String, Object>> calendarEvents;
+    // Deleted ids keyed by "trainingLogs", "workouts" and "calendarEvents"
+    private Map<String, List<Long>> deleted;
+}
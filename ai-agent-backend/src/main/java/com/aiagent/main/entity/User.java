@@ -3,7 +3,8 @@ package com.aiagent.main.entity;
 import jakarta.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
-import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
 @Table(name = "users")
@@ -19,14 +20,17 @@ public class User {
     @Column(nullable = false, unique = true)
     private String email;
 
+    // Read from register/login bodies, never written into responses
     @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
 
     @Column(nullable = false)
     private String role = "USER";
 
+    // Never serialized: a user can own thousands of conversations (see UserResponse)
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
-    @JsonManagedReference
+    @JsonIgnore
     private List<Conversation> conversations = new ArrayList<>();
 
     // Constructors
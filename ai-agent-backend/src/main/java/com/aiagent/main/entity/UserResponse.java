@@ -0,0 +1,23 @@
+package com.aiagent.main.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * What clients get back for a user (register, login): the account fields
+ * only, never the password or the conversation graph
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserResponse {
+    private Long id;
+    private String username;
+    private String email;
+    private String role;
+
+    public static UserResponse from(User user) {
+        return new UserResponse(user.getId(), user.getUsername(), user.getEmail(), user.getRole());
+    }
+}
@@ -0,0 +1,51 @@
+package com.aiagent.main.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A list of edits applied to one weekly plan in a single transaction.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkoutBatchRequest {
+
+    private List<Operation> operations = new ArrayList<>();
+
+    /**
+     * op is one of add, update, delete, move. Fields follow the single-workout
+     * endpoints: update replaces sets/reps/weight/duration/notes like
+     * PUT /workout/{id} does, and leaves name, day and completed alone when null.
+     */
+    @Data
+    @NoArgsConstructor
+    public static class Operation {
+        private String op;
+
+        private Long workoutId;
+
+        // Echoed back with the generated id of an added workout
+        private String clientRef;
+
+        private Integer dayIndex;
+
+        private String workoutName;
+
+        private Integer sets;
+
+        private Integer reps;
+
+        private String weight;
+
+        private String duration;
+
+        private String notes;
+
+        private Boolean completed;
+    }
+}
@@ -0,0 +1,24 @@
+package com.aiagent.main.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Batch completion request: either a whole day of a plan (planId + dayIndex)
+ * or an explicit list of workout ids.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkoutCompletionRequest {
+    private Long planId;
+
+    private Integer dayIndex;
+
+    private List<Long> workoutIds;
+
+    private Boolean completed = true;
+}
@@ -0,0 +1,30 @@
+package com.aiagent.main.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Options for placing a plan's training days into free calendar time.
+ * Times of day are in the user's local time; utcOffsetMinutes converts them
+ * to the UTC times stored on calendar events.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkoutScheduleRequest {
+    private String earliest = "07:00";
+
+    private String latest = "21:00";
+
+    // Free time kept around each session
+    private Integer bufferMinutes = 15;
+
+    // Minimum time between the end of one session and the start of the next
+    private Integer minGapHours = 12;
+
+    // Move a session to a following rest day when its own day is full
+    private Boolean allowShift = true;
+
+    private Integer utcOffsetMinutes = 0;
+}
@@ -2,14 +2,64 @@ package com.aiagent.main.repository;
 
 import com.aiagent.main.entity.CalendarEvent;
 import com.aiagent.main.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface CalendarEventRepository extends JpaRepository<CalendarEvent, Long> {
     List<CalendarEvent> findByUserOrderByStartTimeAsc(User user);
     List<CalendarEvent> findByUserAndStartTimeBetweenOrderByStartTimeAsc(User user, LocalDateTime start, LocalDateTime end);
+
+    @Query("SELECT e FROM CalendarEvent e WHERE e.user.id = :userId AND " +
+           "(e.updatedAt > :sinceTime OR (e.updatedAt = :sinceTime AND e.id > :sinceId)) AND e.updatedAt <= :until " +
+           "ORDER BY e.updatedAt ASC, e.id ASC")
+    List<CalendarEvent> findChangedSince(Long userId, LocalDateTime sinceTime, Long sinceId, LocalDateTime until,
+                                         Pageable pageable);
+
+    // Cursor over a user's events for ICS export, so large calendars are not held in memory
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e FROM CalendarEvent e WHERE e.user.id = :userId ORDER BY e.startTime ASC, e.id ASC")
+    Stream<CalendarEvent> streamByUserId(Long userId);
+
+    // Calendar version: any insert, edit or delete changes the count or the latest updatedAt
+    @Query("SELECT COUNT(e), MAX(e.updatedAt) FROM CalendarEvent e WHERE e.user.id = :userId")
+    List<Object[]> findVersionStamp(Long userId);
+
+    // Single events overlapping [start, end) plus every series that can still have an occurrence there;
+    // series are expanded in memory for the window only
+    @Query("SELECT e FROM CalendarEvent e WHERE e.user.id = :userId AND e.startTime < :end AND " +
+           "((e.recurrenceRule IS NULL AND e.endTime > :start) OR " +
+           "(e.recurrenceRule IS NOT NULL AND (e.recurrenceUntil IS NULL OR e.recurrenceUntil > :start))) " +
+           "ORDER BY e.startTime ASC")
+    List<CalendarEvent> findInWindow(Long userId, LocalDateTime start, LocalDateTime end);
+
+    // Single events starting in [start, end) plus every series that can still have an occurrence
+    // starting there, across all users, for the reminder loader; reminders follow the start time,
+    // so zero-length events count
+    @Query("SELECT e FROM CalendarEvent e WHERE e.startTime < :end AND " +
+           "((e.recurrenceRule IS NULL AND e.startTime >= :start) OR " +
+           "(e.recurrenceRule IS NOT NULL AND (e.recurrenceUntil IS NULL OR e.recurrenceUntil >= :start))) " +
+           "ORDER BY e.startTime ASC")
+    List<CalendarEvent> findAllStartingInWindow(LocalDateTime start, LocalDateTime end);
+
+    // Events of any user changed in (since, until]
+    @Query("SELECT e FROM CalendarEvent e WHERE e.updatedAt > :since AND e.updatedAt <= :until " +
+           "ORDER BY e.updatedAt ASC, e.id ASC")
+    List<CalendarEvent> findAllChangedSince(LocalDateTime since, LocalDateTime until, Pageable pageable);
+
+    @Query("SELECT e.sourceRef FROM CalendarEvent e WHERE e.sourceRef IN :sourceRefs")
+    List<String> findExistingSourceRefs(Collection<String> sourceRefs);
 }
@@ -2,10 +2,40 @@ package com.aiagent.main.repository;
 
 import com.aiagent.main.entity.Conversation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface ConversationRepository extends JpaRepository<Conversation, Long> {
     List<Conversation> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    // Conversation list rows in one statement, keyset-paged by (last activity, id) descending
+    // straight off idx_conversations_user_activity; only the rows of the page look up their preview.
+    // Columns: id, title, created_at, message_count, last_activity, preview, is_user
+    @Query(value = "SELECT c.id, c.title, c.created_at, c.message_count, c.last_activity_at AS last_activity, " +
+                   "COALESCE(lm.preview, LEFT(a.last_preview, :previewLength)) AS preview, " +
+                   "COALESCE(lm.is_user, a.last_message_from_user) AS is_user " +
+                   "FROM (SELECT * FROM conversations " +
+                   "    WHERE user_id = :userId AND (last_activity_at, id) < (:cursorTime, :cursorId) " +
+                   "    ORDER BY last_activity_at DESC, id DESC LIMIT :limit) c " +
+                   "LEFT JOIN LATERAL (SELECT LEFT(m.content, :previewLength) AS preview, m.is_user " +
+                   "    FROM messages m WHERE m.conversation_id = c.id " +
+                   "    ORDER BY m.created_at DESC, m.id DESC LIMIT 1) lm ON true " +
+                   // Archived conversations have no messages rows; the archive index has their preview
+                   "LEFT JOIN archived_conversations a ON a.conversation_id = c.id " +
+                   "ORDER BY c.last_activity_at DESC, c.id DESC", nativeQuery = true)
+    List<Object[]> findSummaries(Long userId, LocalDateTime cursorTime, Long cursorId, int previewLength, int limit);
+
+    // Called with every message insert, in the same transaction
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE conversations SET message_count = message_count + 1, " +
+                   "last_activity_at = GREATEST(last_activity_at, :createdAt) WHERE id = :conversationId",
+           nativeQuery = true)
+    int recordMessage(Long conversationId, LocalDateTime createdAt);
 }
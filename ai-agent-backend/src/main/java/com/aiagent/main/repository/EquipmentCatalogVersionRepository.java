@@ -0,0 +1,16 @@
+package com.aiagent.main.repository;
+
+import com.aiagent.main.entity.EquipmentCatalogVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EquipmentCatalogVersionRepository extends JpaRepository<EquipmentCatalogVersion, Long> {
+
+    Optional<EquipmentCatalogVersion> findTopByOrderByIdDesc();
+
+    List<EquipmentCatalogVersion> findTop20ByOrderByIdDesc();
+}
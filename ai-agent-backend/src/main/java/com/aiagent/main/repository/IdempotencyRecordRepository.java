@@ -0,0 +1,41 @@
+package com.aiagent.main.repository;
+
+import com.aiagent.main.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByIdempotencyKey(String idempotencyKey);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.status = 'COMPLETED', r.responseStatus = :responseStatus, " +
+           "r.contentType = :contentType, r.responseBody = :responseBody, r.lockedUntil = NULL " +
+           "WHERE r.idempotencyKey = :key")
+    int complete(String key, Integer responseStatus, String contentType, byte[] responseBody);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key")
+    int deleteByKey(String key);
+
+    // Only removes the claim if it is still the abandoned one we looked at
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.createdAt = :createdAt " +
+           "AND (r.expiresAt < :now OR (r.status = 'IN_PROGRESS' AND r.lockedUntil < :now))")
+    int deleteIfStale(String key, LocalDateTime createdAt, LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(LocalDateTime now);
+}
@@ -1,11 +1,56 @@
 package com.aiagent.main.repository;
 
 import com.aiagent.main.entity.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
     List<Message> findByConversationIdOrderByCreatedAtAsc(Long conversationId);
+
+    // Newest messages of a conversation, newest first; the page size bounds the read
+    @Query("SELECT m FROM Message m WHERE m.conversation.id = :conversationId ORDER BY m.createdAt DESC, m.id DESC")
+    List<Message> findTail(Long conversationId, Pageable pageable);
+
+    // Messages older than the (createdAt, id) cursor, newest first
+    @Query("SELECT m FROM Message m WHERE m.conversation.id = :conversationId AND " +
+           "(m.createdAt < :cursorTime OR (m.createdAt = :cursorTime AND m.id < :cursorId)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<Message> findBefore(Long conversationId, LocalDateTime cursorTime, Long cursorId, Pageable pageable);
+
+    // HTML-escapes a "content" column before ts_headline, so the snippet is safe HTML whose only
+    // markup is the <mark> highlighting; shared with ConversationArchiveService for archived hits
+    String ESCAPED_CONTENT =
+            "replace(replace(replace(replace(content, '&', '&amp;'), '<', '&lt;'), '>', '&gt;'), '\"', '&quot;')";
+    String HEADLINE_OPTIONS = "'StartSel=<mark>, StopSel=</mark>, MaxWords=30, MinWords=10, MaxFragments=2'";
+
+    // Full-text search over one user's messages, live and archived (needs db/migration 005 and 007).
+    // Ranks every match, then builds snippets for the top rows only; ts_headline re-parses the text.
+    // Archived messages have no text here, so their snippet is null and MessageService fills it in
+    // from the archive.
+    // Columns: id, conversation_id, title, is_user, created_at, rank, snippet, archived
+    @Query(value = "SELECT r.id, r.conversation_id, r.title, r.is_user, r.created_at, r.rank, " +
+                   "ts_headline('english', " + ESCAPED_CONTENT + ", r.query, " + HEADLINE_OPTIONS + ") AS snippet, " +
+                   "r.archived " +
+                   "FROM (SELECT m.id, m.conversation_id, c.title, m.is_user, m.created_at, m.content, q.query, " +
+                   "      ts_rank_cd(m.content_tsv, q.query) AS rank, false AS archived " +
+                   "      FROM websearch_to_tsquery('english', :query) AS q(query) " +
+                   "      JOIN messages m ON m.content_tsv @@ q.query " +
+                   "      JOIN conversations c ON c.id = m.conversation_id " +
+                   "      WHERE c.user_id = :userId " +
+                   "      UNION ALL " +
+                   "      SELECT t.message_id, t.conversation_id, c.title, t.is_user, t.created_at, NULL, q.query, " +
+                   "      ts_rank_cd(t.content_tsv, q.query), true " +
+                   "      FROM websearch_to_tsquery('english', :query) AS q(query) " +
+                   "      JOIN archived_message_terms t ON t.content_tsv @@ q.query " +
+                   "      JOIN conversations c ON c.id = t.conversation_id " +
+                   "      WHERE t.user_id = :userId " +
+                   "      ORDER BY rank DESC, created_at DESC, id DESC LIMIT :limit) r " +
+                   "ORDER BY r.rank DESC, r.created_at DESC, r.id DESC", nativeQuery = true)
+    List<Object[]> search(Long userId, String query, int limit);
 }
@@ -0,0 +1,27 @@
+package com.aiagent.main.repository;
+
+import com.aiagent.main.entity.SyncTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SyncTombstoneRepository extends JpaRepository<SyncTombstone, Long> {
+
+    @Query("SELECT t FROM SyncTombstone t WHERE t.userId = :userId AND " +
+           "(t.deletedAt > :sinceTime OR (t.deletedAt = :sinceTime AND t.id > :sinceId)) AND t.deletedAt <= :until " +
+           "ORDER BY t.deletedAt ASC, t.id ASC")
+    List<SyncTombstone> findChangedSince(Long userId, LocalDateTime sinceTime, Long sinceId, LocalDateTime until,
+                                         Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SyncTombstone t WHERE t.deletedAt < :cutoff")
+    int deleteOlderThan(LocalDateTime cutoff);
+}
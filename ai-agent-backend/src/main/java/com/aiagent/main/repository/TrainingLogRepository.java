@@ -2,11 +2,13 @@ package com.aiagent.main.repository;
 
 import com.aiagent.main.entity.TrainingLog;
 import com.aiagent.main.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -19,9 +21,14 @@ public interface TrainingLogRepository extends JpaRepository<TrainingLog, Long>
     List<TrainingLog> findByUserAndWorkoutDate(User user, LocalDate workoutDate);
 
     // Find logs by user within date range
+    // training_logs is partitioned by month on workout_date; keep the date bounds in the WHERE clause so Postgres prunes
     @Query("SELECT tl FROM TrainingLog tl WHERE tl.user.id = :userId AND tl.workoutDate BETWEEN :startDate AND :endDate ORDER BY tl.workoutDate DESC")
     List<TrainingLog> findByUserIdAndDateRange(Long userId, LocalDate startDate, LocalDate endDate);
 
+    // Find the distinct days a user trained within date range
+    @Query("SELECT DISTINCT tl.workoutDate FROM TrainingLog tl WHERE tl.user.id = :userId AND tl.workoutDate BETWEEN :startDate AND :endDate")
+    List<LocalDate> findWorkoutDatesByUserIdAndDateRange(Long userId, LocalDate startDate, LocalDate endDate);
+
     // Find logs by user and exercise name
     List<TrainingLog> findByUserAndExerciseNameOrderByWorkoutDateDesc(User user, String exerciseName);
 
@@ -30,5 +37,12 @@ public interface TrainingLogRepository extends JpaRepository<TrainingLog, Long>
 
     // Find most recent log for a user
     TrainingLog findFirstByUserOrderByWorkoutDateDesc(User user);
+
+    // Find logs created or updated after the (sinceTime, sinceId) position and up to until, for delta sync
+    @Query("SELECT tl FROM TrainingLog tl WHERE tl.user.id = :userId AND " +
+           "(tl.updatedAt > :sinceTime OR (tl.updatedAt = :sinceTime AND tl.id > :sinceId)) AND tl.updatedAt <= :until " +
+           "ORDER BY tl.updatedAt ASC, tl.id ASC")
+    List<TrainingLog> findChangedSince(Long userId, LocalDateTime sinceTime, Long sinceId, LocalDateTime until,
+                                       Pageable pageable);
 }
 
@@ -1,20 +1,45 @@
 package com.aiagent.main.repository;
 
 import com.aiagent.main.entity.WeeklyPlan;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface WeeklyPlanRepository extends JpaRepository<WeeklyPlan, Long> {
 
-    @Query("SELECT wp FROM WeeklyPlan wp WHERE wp.user.id = :userId ORDER BY wp.startDate ASC")
+    @Query("SELECT wp FROM WeeklyPlan wp WHERE wp.user.id = :userId ORDER BY wp.startDate DESC")
     List<WeeklyPlan> findByUserIdOrderByStartDateDesc(Long userId);
 
+    // Read paths that render workouts fetch them in the same statement
+    @EntityGraph(attributePaths = "workouts")
+    @Query("SELECT wp FROM WeeklyPlan wp WHERE wp.user.id = :userId ORDER BY wp.startDate DESC, wp.id DESC")
+    List<WeeklyPlan> findWithWorkoutsByUserId(Long userId);
+
+    @EntityGraph(attributePaths = "workouts")
+    @Query("SELECT wp FROM WeeklyPlan wp WHERE wp.id = :planId")
+    Optional<WeeklyPlan> findWithWorkoutsById(Long planId);
+
+    @EntityGraph(attributePaths = "workouts")
+    @Query("SELECT wp FROM WeeklyPlan wp WHERE wp.user.id = :userId AND wp.startDate <= :date AND wp.endDate >= :date")
+    Optional<WeeklyPlan> findCurrentPlanWithWorkouts(Long userId, LocalDate date);
+
+    // Plan history is paged on ids first, a fetch join cannot be limited in SQL
+    @Query("SELECT wp.id FROM WeeklyPlan wp WHERE wp.user.id = :userId ORDER BY wp.startDate DESC, wp.id DESC")
+    Slice<Long> findIdsByUserId(Long userId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "workouts")
+    @Query("SELECT wp FROM WeeklyPlan wp WHERE wp.id IN :planIds ORDER BY wp.startDate DESC, wp.id DESC")
+    List<WeeklyPlan> findWithWorkoutsByIdIn(Collection<Long> planIds);
+
     @Query("SELECT wp FROM WeeklyPlan wp WHERE wp.user.id = :userId AND wp.startDate <= :date AND wp.endDate >= :date")
     Optional<WeeklyPlan> findCurrentPlan(Long userId, LocalDate date);
 
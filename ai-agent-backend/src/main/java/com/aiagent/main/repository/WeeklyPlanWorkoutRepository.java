@@ -1,11 +1,18 @@
 package com.aiagent.main.repository;
 
 import com.aiagent.main.entity.WeeklyPlanWorkout;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface WeeklyPlanWorkoutRepository extends JpaRepository<WeeklyPlanWorkout, Long> {
@@ -17,4 +24,38 @@ public interface WeeklyPlanWorkoutRepository extends JpaRepository<WeeklyPlanWor
     List<WeeklyPlanWorkout> findByWeeklyPlanIdAndDayIndex(Long planId, Integer dayIndex);
 
     void deleteByWeeklyPlanId(Long planId);
+
+    @Query("SELECT w FROM WeeklyPlanWorkout w JOIN FETCH w.weeklyPlan p WHERE p.user.id = :userId " +
+           "AND (w.updatedAt > :sinceTime OR (w.updatedAt = :sinceTime AND w.id > :sinceId)) " +
+           "AND w.updatedAt <= :until ORDER BY w.updatedAt ASC, w.id ASC")
+    List<WeeklyPlanWorkout> findChangedSince(Long userId, LocalDateTime sinceTime, Long sinceId, LocalDateTime until,
+                                             Pageable pageable);
+
+    // Flip completion in one statement; ownership is part of the WHERE clause and
+    // the new state comes back via RETURNING (empty when not found or not owned).
+    // Bulk statements skip @PreUpdate, so updated_at is set here for delta sync.
+    @Transactional
+    @Query(value = "UPDATE weekly_plan_workouts w SET completed = NOT w.completed, updated_at = :now " +
+                   "FROM weekly_plans p WHERE w.id = :workoutId AND w.weekly_plan_id = p.id " +
+                   "AND p.user_id = :userId RETURNING w.completed", nativeQuery = true)
+    Optional<Boolean> toggleCompleted(Long workoutId, Long userId, LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE WeeklyPlanWorkout w SET w.completed = :completed, w.updatedAt = :now " +
+           "WHERE w.weeklyPlan.id = :planId AND w.dayIndex = :dayIndex AND w.completed <> :completed " +
+           "AND w.weeklyPlan.id IN (SELECT p.id FROM WeeklyPlan p WHERE p.user.id = :userId)")
+    int setCompletedForDay(Long planId, Integer dayIndex, Long userId, Boolean completed, LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE WeeklyPlanWorkout w SET w.completed = :completed, w.updatedAt = :now " +
+           "WHERE w.id IN :workoutIds AND w.completed <> :completed " +
+           "AND w.weeklyPlan.id IN (SELECT p.id FROM WeeklyPlan p WHERE p.user.id = :userId)")
+    int setCompletedForIds(Collection<Long> workoutIds, Long userId, Boolean completed, LocalDateTime now);
+
+    // Open workouts of every plan covering the date; callers pick the day index matching it
+    @Query("SELECT w FROM WeeklyPlanWorkout w JOIN FETCH w.weeklyPlan p " +
+           "WHERE p.startDate <= :date AND p.endDate >= :date AND w.completed = false ORDER BY p.id ASC, w.id ASC")
+    List<WeeklyPlanWorkout> findOpenWorkoutsOn(LocalDate date);
 }
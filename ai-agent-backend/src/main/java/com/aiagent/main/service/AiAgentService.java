@@ -6,7 +6,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -17,11 +16,13 @@ import java.util.*;
 @Slf4j
 public class AiAgentService {
 
-    private final RestTemplate restTemplate;
+    private final AiModelClient aiModelClient;
     private final ObjectMapper objectMapper;
     private final ConversationService conversationService;
     private final MessageService messageService;
     private final GymEquipmentService gymEquipmentService;
+    private final EquipmentAlternativesGraph equipmentAlternativesGraph;
+    private final EquipmentOccupancyService equipmentOccupancyService;
 
     @Value("${ai.model.base-url}")
     private String aiModelBaseUrl;
@@ -32,6 +33,10 @@ public class AiAgentService {
     @Value("${ai.model.api-key:}")
     private String aiModelApiKey;
 
+    // Only the most recent messages go into the prompt
+    @Value("${ai.prompt.history-messages:20}")
+    private int historyMessages;
+
     private final Map<String, String> agentPrompts = new HashMap<>() {
         {
             put("general", "You are a helpful AI assistant. Provide clear and concise responses to user queries.");
@@ -46,14 +51,17 @@ public class AiAgentService {
         }
     };
 
-    public AiAgentService(RestTemplate restTemplate, ObjectMapper objectMapper,
+    public AiAgentService(AiModelClient aiModelClient, ObjectMapper objectMapper,
             ConversationService conversationService, MessageService messageService,
-            GymEquipmentService gymEquipmentService) {
-        this.restTemplate = restTemplate;
+            GymEquipmentService gymEquipmentService, EquipmentAlternativesGraph equipmentAlternativesGraph,
+            EquipmentOccupancyService equipmentOccupancyService) {
+        this.aiModelClient = aiModelClient;
         this.objectMapper = objectMapper;
         this.conversationService = conversationService;
         this.messageService = messageService;
         this.gymEquipmentService = gymEquipmentService;
+        this.equipmentAlternativesGraph = equipmentAlternativesGraph;
+        this.equipmentOccupancyService = equipmentOccupancyService;
     }
 
     public ChatResponse chat(String agentType, String message, Long conversationId) {
@@ -106,7 +114,7 @@ public class AiAgentService {
         String basePrompt = agentPrompts.getOrDefault(agentType, agentPrompts.get("general"));
 
         // Get conversation history for context
-        List<Message> messages = messageService.getMessagesByConversationId(conversation.getId());
+        List<Message> messages = messageService.getRecentMessages(conversation.getId(), historyMessages);
         StringBuilder context = new StringBuilder();
 
         for (Message msg : messages) {
@@ -120,15 +128,56 @@ public class AiAgentService {
         // Add fitness equipment knowledge base for fitness agent
         String equipmentKnowledge = "";
         if ("fitness".equals(agentType)) {
-            equipmentKnowledge = "\n\nFitness Equipment Knowledge Base:\n" + getEquipmentKnowledgeBase();
+            equipmentKnowledge = "\n\nFitness Equipment Knowledge Base:\n" + getEquipmentKnowledgeBase(message);
         }
 
         return basePrompt + equipmentKnowledge + "\n\nConversation History:\n" + context.toString() +
                 "\nCurrent User Message: " + message + "\n\nPlease respond:";
     }
 
-    private String getEquipmentKnowledgeBase() {
-        List<GymEquipment> equipmentList = gymEquipmentService.getAllEquipment();
+    private String getEquipmentKnowledgeBase(String message) {
+        // When the message names equipment, only it and its alternatives go into the prompt
+        List<GymEquipment> mentioned = equipmentAlternativesGraph.mentionedIn(message, 3);
+        if (mentioned.isEmpty()) {
+            return formatEquipment(gymEquipmentService.getAllEquipment());
+        }
+
+        Map<Long, GymEquipment> catalog = new HashMap<>();
+        gymEquipmentService.getAllEquipment().forEach(e -> catalog.put(e.getId(), e));
+        Map<Long, GymEquipment> relevant = new LinkedHashMap<>();
+        StringBuilder ranked = new StringBuilder();
+        for (GymEquipment equipment : mentioned) {
+            relevant.put(equipment.getId(), equipment);
+            // Free alternatives first, so the model suggests something usable right now
+            List<EquipmentAlternative> alternatives = equipmentOccupancyService.preferFree(
+                    equipmentAlternativesGraph.findAlternatives(equipment.getName(), 2, 8).orElse(List.of()));
+            EquipmentOccupancy occupancy = equipmentOccupancyService.getOccupancy(equipment);
+            StringJoiner line = new StringJoiner(", ", "\n" + equipment.getName() + " (" + describe(occupancy)
+                    + ") 的替代器械排序: ", "");
+            for (EquipmentAlternative alternative : alternatives) {
+                line.add(alternative.getName() + " (" + alternative.getScore() + ", "
+                        + (alternative.getAvailable() ? "空闲" : "约等 " + waitMinutes(alternative.getEstimatedWaitSeconds()) + " 分钟") + ")");
+                GymEquipment row = catalog.get(alternative.getEquipmentId());
+                if (row != null && relevant.size() < 12) {
+                    relevant.putIfAbsent(row.getId(), row);
+                }
+            }
+            ranked.append(line);
+        }
+        return formatEquipment(relevant.values()) + ranked;
+    }
+
+    private static String describe(EquipmentOccupancy occupancy) {
+        return occupancy.isAvailable()
+                ? "当前空闲 " + (occupancy.getCapacity() - occupancy.getInUse()) + "/" + occupancy.getCapacity()
+                : "当前已满, 预计等待 " + waitMinutes(occupancy.getEstimatedWaitSeconds()) + " 分钟";
+    }
+
+    private static long waitMinutes(long seconds) {
+        return Math.max(1, (seconds + 59) / 60);
+    }
+
+    private String formatEquipment(Collection<GymEquipment> equipmentList) {
         StringBuilder knowledge = new StringBuilder();
 
         for (GymEquipment equipment : equipmentList) {
@@ -186,17 +235,17 @@ public class AiAgentService {
         HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
         
         log.info("Calling AI model at URL: {}", url);
-        log.info("Request body: {}", requestBody);
+        log.debug("Request body: {}", requestBody);
         
         String response;
         try {
-            response = restTemplate.postForObject(url, entity, String.class);
+            response = aiModelClient.post("chat", url, entity, prompt.length());
         } catch (Exception e) {
             log.error("Error calling AI model at URL: {}", url, e);
             throw new RuntimeException("Failed to call AI model: " + e.getMessage(), e);
         }
 
-        log.info("Raw AI model response: {}", response);
+        log.debug("Raw AI model response: {}", response);
 
         if (response == null || response.trim().isEmpty()) {
             log.error("AI model returned null or empty response");
@@ -268,7 +317,7 @@ public class AiAgentService {
             throw new RuntimeException("Failed to parse AI response: " + e.getMessage(), e);
         }
 
-        log.info("Extracted AI response: {}", fullResponse);
+        log.debug("Extracted AI response: {}", fullResponse);
         
         String finalResponse = fullResponse.toString();
         if (finalResponse == null || finalResponse.trim().isEmpty()) {
@@ -0,0 +1,151 @@
+package com.aiagent.main.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends prompts to the configured model endpoint and records what each call
+ * costs.
+ *
+ * Per provider, model and purpose (chat, weekly-plan) it records:
+ * - llm.queue.wait: time waiting for a call slot
+ * - llm.first.byte: time until the response headers arrive. Non-streaming
+ *   Ollama sends them only once generation is done.
+ * - llm.request: total time, tagged with the outcome
+ * - llm.prompt.size and llm.response.size, in characters
+ * - llm.tokens: the token counts the provider reports
+ *
+ * ai.model.max-concurrent-calls caps calls in flight so a burst queues here
+ * instead of overloading the model host; 0 means no cap.
+ */
+@Service
+@Slf4j
+public class AiModelClient {
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Semaphore slots;
+
+    @Value("${ai.model.base-url}")
+    private String aiModelBaseUrl;
+
+    @Value("${ai.model.name}")
+    private String aiModelName;
+
+    public AiModelClient(RestTemplate restTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                         @Value("${ai.model.max-concurrent-calls:0}") int maxConcurrentCalls) {
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.slots = maxConcurrentCalls > 0 ? new Semaphore(maxConcurrentCalls, true) : null;
+        meterRegistry.gauge("llm.in.flight", inFlight);
+    }
+
+    /**
+     * POST the request and return the raw response body
+     */
+    public String post(String purpose, String url, HttpEntity<?> entity, int promptChars) {
+        Tags tags = Tags.of("provider", provider(), "model", aiModelName, "purpose", purpose);
+
+        long queued = System.nanoTime();
+        if (slots != null) {
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a model call slot", e);
+            }
+        }
+        long started = System.nanoTime();
+        Timer.builder("llm.queue.wait").tags(tags).publishPercentileHistogram().register(meterRegistry)
+                .record(started - queued, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("llm.prompt.size").baseUnit("chars").tags(tags).publishPercentileHistogram()
+                .register(meterRegistry).record(promptChars);
+
+        inFlight.incrementAndGet();
+        String outcome = "error";
+        try {
+            ResponseExtractor<ResponseEntity<String>> bodyExtractor = restTemplate.responseEntityExtractor(String.class);
+            String body = restTemplate.execute(url, HttpMethod.POST, restTemplate.httpEntityCallback(entity, String.class),
+                    response -> {
+                        Timer.builder("llm.first.byte").tags(tags).publishPercentileHistogram().register(meterRegistry)
+                                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                        ResponseEntity<String> responseEntity = bodyExtractor.extractData(response);
+                        return responseEntity != null ? responseEntity.getBody() : null;
+                    });
+            outcome = "success";
+            if (body != null) {
+                DistributionSummary.builder("llm.response.size").baseUnit("chars").tags(tags)
+                        .publishPercentileHistogram().register(meterRegistry).record(body.length());
+                recordTokens(tags, body);
+            }
+            return body;
+        } finally {
+            inFlight.decrementAndGet();
+            if (slots != null) {
+                slots.release();
+            }
+            Timer.builder("llm.request").tags(tags).tag("outcome", outcome).publishPercentileHistogram()
+                    .register(meterRegistry).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private String provider() {
+        if (aiModelBaseUrl.contains("generativelanguage.googleapis.com")) {
+            return "gemini";
+        }
+        if (aiModelBaseUrl.contains(":11434")) {
+            return "ollama";
+        }
+        return "openai";
+    }
+
+    // Ollama: prompt_eval_count/eval_count; OpenAI: usage; Gemini: usageMetadata
+    private void recordTokens(Tags tags, String body) {
+        try {
+            JsonNode root = objectMapper.readTree(body);
+            JsonNode usage = root.path("usage");
+            JsonNode gemini = root.path("usageMetadata");
+            count(tags, "prompt", firstNumber(root.path("prompt_eval_count"), usage.path("prompt_tokens"),
+                    gemini.path("promptTokenCount")));
+            count(tags, "completion", firstNumber(root.path("eval_count"), usage.path("completion_tokens"),
+                    gemini.path("candidatesTokenCount")));
+        } catch (Exception e) {
+            // Streamed or unexpected bodies carry no usage block
+            log.debug("No token usage in model response: {}", e.getMessage());
+        }
+    }
+
+    private static long firstNumber(JsonNode... nodes) {
+        for (JsonNode node : nodes) {
+            if (node.isNumber()) {
+                return node.asLong();
+            }
+        }
+        return -1;
+    }
+
+    private void count(Tags tags, String type, long tokens) {
+        if (tokens >= 0) {
+            meterRegistry.counter("llm.tokens", tags.and("type", type)).increment(tokens);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.aiagent.main.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps in-process caches coherent across nodes without extra infrastructure:
+ * writers send a compact "node|topic|key" message with Postgres NOTIFY, and
+ * every node LISTENs on a dedicated connection and evicts locally.
+ *
+ * NOTIFY is transactional, so other nodes hear about a change only once it
+ * is committed. Messages sent while a node is disconnected are lost; after
+ * reconnecting it publishes {@link CacheResyncEvent} so local caches start
+ * over. LISTEN needs a session, which transaction-mode poolers (e.g. the
+ * Supabase pooler on port 6543) do not keep, so the listener never reuses the
+ * application datasource: cache.bus.jdbc-url must name a direct or
+ * session-mode connection, and the bus stays off (with a warning) without one.
+ */
+@Service
+@Slf4j
+public class CacheCoherenceBus {
+
+    public static final String CHANNEL = "cache_invalidation";
+    // Topic for equipment catalog changes (see GymEquipmentService)
+    public static final String CATALOG = "catalog";
+    // Topic for live occupancy changes; the key is the equipment id (see EquipmentOccupancyService)
+    public static final String OCCUPANCY = "occupancy";
+    public static final String ALL = "*";
+
+    // NOTIFY payloads must stay under 8000 bytes
+    private static final int MAX_KEY_LENGTH = 1000;
+
+    // Supabase's transaction-mode port; LISTEN there silently never hears anything
+    private static final Pattern POOLER_URL = Pattern.compile(":6543/|[?&]pgbouncer=true", Pattern.CASE_INSENSITIVE);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+
+    @Value("${cache.bus.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.bus.jdbc-url:}")
+    private String jdbcUrl;
+
+    @Value("${cache.bus.username:${spring.datasource.username:}}")
+    private String username;
+
+    @Value("${cache.bus.password:${spring.datasource.password:}}")
+    private String password;
+
+    // Also the heartbeat interval that detects dead connections
+    @Value("${cache.bus.poll-millis:10000}")
+    private int pollMillis;
+
+    private volatile boolean running;
+    private volatile boolean connected;
+    private Thread listener;
+
+    public CacheCoherenceBus(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Tell the other nodes that an entry of a topic changed; the caller has
+     * already updated its own caches
+     */
+    public void publish(String topic, Object key) {
+        if (!enabled) {
+            return;
+        }
+        String value = key == null ? ALL : key.toString();
+        if (value.length() > MAX_KEY_LENGTH) {
+            value = ALL;
+        }
+        try {
+            jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class,
+                    CHANNEL, nodeId + "|" + topic + "|" + value);
+        } catch (Exception e) {
+            // Other nodes fall back to TTL expiry for this entry
+            log.warn("Could not publish cache invalidation {}:{}", topic, value, e);
+        }
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Cache coherence bus disabled");
+            return;
+        }
+        if (jdbcUrl == null || !jdbcUrl.startsWith("jdbc:postgresql:")) {
+            log.warn("Cache coherence bus disabled: cache.bus.jdbc-url must be a direct or session-mode " +
+                    "Postgres URL; other nodes' caches fall back to TTL expiry");
+            return;
+        }
+        if (POOLER_URL.matcher(jdbcUrl).find()) {
+            log.warn("Cache coherence bus disabled: {} is a transaction-mode pooler, which cannot LISTEN; " +
+                    "use a direct or session-mode URL", jdbcUrl.replaceAll("\\?.*", ""));
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "cache-coherence-bus");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    private void listen() {
+        boolean reconnect = false;
+        long backoff = 1000;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(jdbcUrl, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                connected = true;
+                backoff = 1000;
+                log.info("Cache coherence bus listening on {} (node {})", CHANNEL, nodeId);
+                if (reconnect) {
+                    eventPublisher.publishEvent(new CacheResyncEvent("cache bus reconnected"));
+                }
+                reconnect = true;
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollMillis);
+                    if (notifications == null || notifications.length == 0) {
+                        // Quiet period: make sure the connection is still alive
+                        try (Statement statement = connection.createStatement()) {
+                            statement.execute("SELECT 1");
+                        }
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        dispatch(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Cache coherence bus disconnected, retrying in {} ms: {}", backoff, e.getMessage());
+                }
+            } catch (Exception e) {
+                log.error("Error in cache coherence bus", e);
+            } finally {
+                connected = false;
+            }
+            if (running) {
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(backoff * 2, 30_000);
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        String[] parts = payload.split("\\|", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            // Malformed, or our own message: local caches were updated by the writer
+            return;
+        }
+        try {
+            eventPublisher.publishEvent(new RemoteInvalidationEvent(parts[1], parts[2]));
+        } catch (Exception e) {
+            log.error("Error applying cache invalidation {}", payload, e);
+        }
+    }
+}
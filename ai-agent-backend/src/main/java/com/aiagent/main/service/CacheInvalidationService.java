@@ -0,0 +1,110 @@
+package com.aiagent.main.service;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Evicts cache entries whose source rows changed outside the cached service
+ * methods, and reports per-region hit/miss counters.
+ *
+ * Regions are local to each node. {@link #invalidate} also tells the other
+ * nodes through the {@link CacheCoherenceBus}; TTLs bound staleness for
+ * anything the bus misses.
+ */
+@Service
+@Slf4j
+public class CacheInvalidationService {
+
+    private final CacheManager cacheManager;
+    private final CacheCoherenceBus cacheCoherenceBus;
+
+    public CacheInvalidationService(CacheManager cacheManager, CacheCoherenceBus cacheCoherenceBus) {
+        this.cacheManager = cacheManager;
+        this.cacheCoherenceBus = cacheCoherenceBus;
+    }
+
+    /**
+     * An entry changed: drop it here and on every other node
+     */
+    public void invalidate(String region, Object key) {
+        evict(region, key);
+        cacheCoherenceBus.publish(region, key);
+    }
+
+    /**
+     * Drop one entry of a region
+     */
+    public void evict(String region, Object key) {
+        Cache cache = cacheManager.getCache(region);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+
+    /**
+     * Drop every entry of a region
+     */
+    public void clear(String region) {
+        Cache cache = cacheManager.getCache(region);
+        if (cache != null) {
+            cache.clear();
+            log.debug("Cleared cache region {}", region);
+        }
+    }
+
+    @EventListener
+    public void onRemoteInvalidation(RemoteInvalidationEvent event) {
+        if (cacheManager.getCache(event.topic()) == null) {
+            return;
+        }
+        if (CacheCoherenceBus.ALL.equals(event.key())) {
+            clear(event.topic());
+        } else {
+            evict(event.topic(), toCacheKey(event.key()));
+        }
+    }
+
+    @EventListener
+    public void onResync(CacheResyncEvent event) {
+        cacheManager.getCacheNames().forEach(this::clear);
+        log.info("Cleared all cache regions: {}", event.reason());
+    }
+
+    // Region keys are user ids or names; ids travel as text on the bus
+    private static Object toCacheKey(String key) {
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            return key;
+        }
+    }
+
+    /**
+     * Size and hit/miss counters per region since startup
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            if (!(cacheManager.getCache(name) instanceof CaffeineCache cache)) {
+                continue;
+            }
+            CacheStats cacheStats = cache.getNativeCache().stats();
+            Map<String, Object> region = new LinkedHashMap<>();
+            region.put("size", cache.getNativeCache().estimatedSize());
+            region.put("hits", cacheStats.hitCount());
+            region.put("misses", cacheStats.missCount());
+            region.put("hitRate", cacheStats.hitRate());
+            region.put("evictions", cacheStats.evictionCount());
+            stats.put(name, region);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,8 @@
+package com.aiagent.main.service;
+
+/**
+ * Published locally after the cache coherence bus reconnects. Messages sent
+ * while it was down are lost, so every in-process cache should start over.
+ */
+public record CacheResyncEvent(String reason) {
+}
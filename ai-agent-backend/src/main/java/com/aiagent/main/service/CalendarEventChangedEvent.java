@@ -0,0 +1,7 @@
+package com.aiagent.main.service;
+
+/**
+ * Published after a calendar event is created, edited, deleted or gets an exception date
+ */
+public record CalendarEventChangedEvent(Long eventId) {
+}
@@ -1,15 +1,26 @@
 package com.aiagent.main.service;
 
 import com.aiagent.main.entity.CalendarEvent;
+import com.aiagent.main.entity.SyncTombstone;
 import com.aiagent.main.entity.User;
 import com.aiagent.main.repository.CalendarEventRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class CalendarService {
@@ -17,6 +28,15 @@ public class CalendarService {
     @Autowired
     private CalendarEventRepository calendarEventRepository;
     
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    
     public List<CalendarEvent> getEventsByUser(User user) {
         return calendarEventRepository.findByUserOrderByStartTimeAsc(user);
     }
@@ -26,62 +46,212 @@ public class CalendarService {
     }
     
     public CalendarEvent saveEvent(CalendarEvent event) {
-        return calendarEventRepository.save(event);
+        if (event.getRecurrenceRule() != null && !event.getRecurrenceRule().isBlank()) {
+            // Validates the rule (IllegalArgumentException) and stores it in canonical form
+            RecurrenceRule rule = RecurrenceRule.parse(event.getRecurrenceRule());
+            event.setRecurrenceRule(rule.toString());
+            LocalDateTime lastStart = rule.lastOccurrence(event.getStartTime());
+            event.setRecurrenceUntil(lastStart == null ? null
+                    : lastStart.plus(Duration.between(event.getStartTime(), event.getEndTime())));
+        } else {
+            event.setRecurrenceRule(null);
+            event.setRecurrenceUntil(null);
+            event.setExceptionDates(null);
+        }
+        CalendarEvent saved = calendarEventRepository.save(event);
+        eventPublisher.publishEvent(new CalendarEventChangedEvent(saved.getId()));
+        return saved;
+    }
+    
+    /**
+     * Events of a user overlapping [start, end), with recurring series expanded
+     * into their occurrences inside the window only
+     */
+    public List<Map<String, Object>> getOccurrences(Long userId, LocalDateTime start, LocalDateTime end) {
+        List<Map<String, Object>> occurrences = new ArrayList<>();
+        for (CalendarEvent event : calendarEventRepository.findInWindow(userId, start, end)) {
+            forEachOccurrence(event, start, end, (occurrenceStart, occurrenceEnd) ->
+                    occurrences.add(toOccurrence(event, occurrenceStart, occurrenceEnd)));
+        }
+        occurrences.sort(Comparator.comparing(o -> (LocalDateTime) o.get("startTime")));
+        return occurrences;
+    }
+    
+    /**
+     * Visit the occurrences of an event (one for single events) that overlap [start, end)
+     */
+    public void forEachOccurrence(CalendarEvent event, LocalDateTime start, LocalDateTime end,
+                                  BiConsumer<LocalDateTime, LocalDateTime> consumer) {
+        Duration duration = Duration.between(event.getStartTime(), event.getEndTime());
+        if (event.getRecurrenceRule() == null) {
+            if (event.getStartTime().isBefore(end) && event.getEndTime().isAfter(start)) {
+                consumer.accept(event.getStartTime(), event.getEndTime());
+            }
+            return;
+        }
+        Set<LocalDateTime> exceptions = parseExceptionDates(event.getExceptionDates());
+        RecurrenceRule.parse(event.getRecurrenceRule()).forEachOccurrence(
+                event.getStartTime(), duration.toMinutes(), start, end, occurrenceStart -> {
+                    if (!exceptions.contains(occurrenceStart)) {
+                        consumer.accept(occurrenceStart, occurrenceStart.plus(duration));
+                    }
+                });
+    }
+    
+    /**
+     * Visit the occurrence starts of an event that fall in [start, end), whatever their length
+     */
+    public void forEachOccurrenceStart(CalendarEvent event, LocalDateTime start, LocalDateTime end,
+                                       Consumer<LocalDateTime> consumer) {
+        if (event.getRecurrenceRule() == null) {
+            if (!event.getStartTime().isBefore(start) && event.getStartTime().isBefore(end)) {
+                consumer.accept(event.getStartTime());
+            }
+            return;
+        }
+        Set<LocalDateTime> exceptions = parseExceptionDates(event.getExceptionDates());
+        // A zero duration makes the rule match on the start alone
+        RecurrenceRule.parse(event.getRecurrenceRule()).forEachOccurrence(
+                event.getStartTime(), 0, start, end, occurrenceStart -> {
+                    if (!exceptions.contains(occurrenceStart)) {
+                        consumer.accept(occurrenceStart);
+                    }
+                });
+    }
+    
+    /**
+     * Cancel one occurrence of a recurring event
+     */
+    public CalendarEvent addException(Long eventId, Long userId, LocalDateTime occurrenceStart) {
+        CalendarEvent event = calendarEventRepository.findById(eventId)
+                .orElseThrow(() -> new RuntimeException("Event not found"));
+        if (!event.getUser().getId().equals(userId)) {
+            throw new RuntimeException("Event does not belong to this user");
+        }
+        if (event.getRecurrenceRule() == null) {
+            throw new IllegalArgumentException("Event is not recurring");
+        }
+        Set<LocalDateTime> exceptions = new TreeSet<>(parseExceptionDates(event.getExceptionDates()));
+        exceptions.add(occurrenceStart);
+        event.setExceptionDates(String.join(",", exceptions.stream().map(LocalDateTime::toString).toList()));
+        CalendarEvent saved = calendarEventRepository.save(event);
+        eventPublisher.publishEvent(new CalendarEventChangedEvent(eventId));
+        return saved;
+    }
+    
+    private Map<String, Object> toOccurrence(CalendarEvent event, LocalDateTime start, LocalDateTime end) {
+        Map<String, Object> occurrence = new LinkedHashMap<>();
+        occurrence.put("id", event.getId());
+        occurrence.put("title", event.getTitle());
+        occurrence.put("description", event.getDescription());
+        occurrence.put("location", event.getLocation());
+        occurrence.put("startTime", start);
+        occurrence.put("endTime", end);
+        occurrence.put("recurring", event.getRecurrenceRule() != null);
+        occurrence.put("recurrenceRule", event.getRecurrenceRule());
+        return occurrence;
+    }
+    
+    private static Set<LocalDateTime> parseExceptionDates(String exceptionDates) {
+        if (exceptionDates == null || exceptionDates.isBlank()) {
+            return Set.of();
+        }
+        Set<LocalDateTime> dates = new HashSet<>();
+        for (String value : exceptionDates.split(",")) {
+            if (!value.isBlank()) {
+                dates.add(LocalDateTime.parse(value.trim()));
+            }
+        }
+        return dates;
     }
     
     public void deleteEvent(Long eventId) {
+        calendarEventRepository.findById(eventId).ifPresent(event ->
+                syncService.recordDeletion(event.getUser().getId(), SyncTombstone.CALENDAR_EVENT, eventId));
         calendarEventRepository.deleteById(eventId);
+        eventPublisher.publishEvent(new CalendarEventChangedEvent(eventId));
     }
     
-    public String generateICalendarContent(List<CalendarEvent> events, String calendarName) {
-        StringBuilder ics = new StringBuilder();
-        
+    /**
+     * Version tag of a user's calendar export, changes whenever any event changes
+     */
+    public String getCalendarETag(Long userId, String calendarName) {
+        List<Object[]> rows = calendarEventRepository.findVersionStamp(userId);
+        Object[] stamp = rows.isEmpty() ? new Object[]{0L, null} : rows.get(0);
+        long count = stamp[0] != null ? ((Number) stamp[0]).longValue() : 0L;
+        LocalDateTime lastUpdated = (LocalDateTime) stamp[1];
+        String version = userId + "-" + count + "-"
+                + (lastUpdated != null ? lastUpdated.toInstant(ZoneOffset.UTC).toEpochMilli() : 0)
+                + "-" + Integer.toHexString(calendarName.hashCode());
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Stream a user's calendar as iCalendar without building it in memory.
+     * UIDs and DTSTAMPs come from the event row, so unchanged events look
+     * unchanged to subscribed clients.
+     */
+    @Transactional(readOnly = true)
+    public void writeICalendar(Long userId, String calendarName, OutputStream out) throws IOException {
+        IcsWriter ics = new IcsWriter(out);
+
         // iCalendar header
-        ics.append("BEGIN:VCALENDAR\n");
-        ics.append("VERSION:2.0\n");
-        ics.append("PRODID:-//AI Agent//Calendar Export//EN\n");
-        ics.append("CALSCALE:GREGORIAN\n");
-        ics.append("METHOD:PUBLISH\n");
-        ics.append("X-WR-CALNAME:").append(calendarName).append("\n");
-        ics.append("X-WR-CALDESC:AI Agent Calendar Export\n");
-        
-        // Add events
-        for (CalendarEvent event : events) {
-            ics.append("BEGIN:VEVENT\n");
-            ics.append("UID:").append(UUID.randomUUID().toString()).append("@aiagent.com\n");
-            ics.append("DTSTAMP:").append(formatDateTime(LocalDateTime.now())).append("\n");
-            ics.append("DTSTART:").append(formatDateTime(event.getStartTime())).append("\n");
-            ics.append("DTEND:").append(formatDateTime(event.getEndTime())).append("\n");
-            ics.append("SUMMARY:").append(escapeText(event.getTitle())).append("\n");
-            
-            if (event.getDescription() != null && !event.getDescription().isEmpty()) {
-                ics.append("DESCRIPTION:").append(escapeText(event.getDescription())).append("\n");
-            }
-            
-            if (event.getLocation() != null && !event.getLocation().isEmpty()) {
-                ics.append("LOCATION:").append(escapeText(event.getLocation())).append("\n");
+        ics.line("BEGIN:VCALENDAR");
+        ics.line("VERSION:2.0");
+        ics.line("PRODID:-//AI Agent//Calendar Export//EN");
+        ics.line("CALSCALE:GREGORIAN");
+        ics.line("METHOD:PUBLISH");
+        ics.text("X-WR-CALNAME", calendarName);
+        ics.line("X-WR-CALDESC:AI Agent Calendar Export");
+
+        try (Stream<CalendarEvent> events = calendarEventRepository.streamByUserId(userId)) {
+            Iterator<CalendarEvent> iterator = events.iterator();
+            while (iterator.hasNext()) {
+                CalendarEvent event = iterator.next();
+                writeEvent(ics, event);
+                // Keep the persistence context from growing with the calendar
+                entityManager.detach(event);
             }
-            
-            ics.append("STATUS:CONFIRMED\n");
-            ics.append("END:VEVENT\n");
         }
-        
+
         // iCalendar footer
-        ics.append("END:VCALENDAR\n");
-        
-        return ics.toString();
+        ics.line("END:VCALENDAR");
+        ics.flush();
+    }
+
+    private void writeEvent(IcsWriter ics, CalendarEvent event) throws IOException {
+        LocalDateTime stamp = event.getUpdatedAt() != null ? event.getUpdatedAt() : event.getStartTime();
+
+        ics.line("BEGIN:VEVENT");
+        ics.property("UID", "event-" + event.getId() + "@aiagent.com");
+        ics.property("DTSTAMP", formatDateTime(stamp));
+        ics.property("LAST-MODIFIED", formatDateTime(stamp));
+        ics.property("DTSTART", formatDateTime(event.getStartTime()));
+        ics.property("DTEND", formatDateTime(event.getEndTime()));
+
+        // Series go out as one VEVENT with RRULE/EXDATE; clients expand them
+        if (event.getRecurrenceRule() != null) {
+            ics.property("RRULE", event.getRecurrenceRule());
+            Set<LocalDateTime> exceptions = new TreeSet<>(parseExceptionDates(event.getExceptionDates()));
+            if (!exceptions.isEmpty()) {
+                ics.property("EXDATE", String.join(",", exceptions.stream().map(this::formatDateTime).toList()));
+            }
+        }
+        ics.text("SUMMARY", event.getTitle());
+
+        if (event.getDescription() != null && !event.getDescription().isEmpty()) {
+            ics.text("DESCRIPTION", event.getDescription());
+        }
+
+        if (event.getLocation() != null && !event.getLocation().isEmpty()) {
+            ics.text("LOCATION", event.getLocation());
+        }
+
+        ics.line("STATUS:CONFIRMED");
+        ics.line("END:VEVENT");
     }
     
     private String formatDateTime(LocalDateTime dateTime) {
         return dateTime.format(DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'"));
     }
-    
-    private String escapeText(String text) {
-        if (text == null) return "";
-        return text.replace("\\", "\\\\")
-                  .replace(",", "\\,")
-                  .replace(";", "\\;")
-                  .replace("\n", "\\n")
-                  .replace("\r", "");
-    }
 }
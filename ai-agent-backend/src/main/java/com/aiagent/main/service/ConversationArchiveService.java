@@ -0,0 +1,401 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.repository.MessageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Moves the messages of conversations idle for a while out of the messages
+ * table into compressed per-user segments, and brings them back when such a
+ * conversation is opened again.
+ *
+ * A segment holds one deflated frame per conversation; archived_conversations
+ * records the frame's offset and length, so rehydration reads just that
+ * frame. The conversation row itself stays, flagged with archived_at, and the
+ * conversation list keeps showing its preview and counts from the index.
+ * Messages come back with their original ids and timestamps, so paging
+ * cursors stay valid.
+ *
+ * Each archived message keeps a row in archived_message_terms with its
+ * tsvector, so chat history search still finds it; snippets for such hits
+ * are built from the frame ({@link #snippets}).
+ */
+@Service
+@Slf4j
+public class ConversationArchiveService {
+
+    private static final int FRAME_VERSION = 1;
+
+    // last_activity_at is kept on the conversation row; archiveSegment re-checks the messages under lock
+    private static final String CANDIDATES_SQL =
+            "SELECT c.id, c.user_id FROM conversations c " +
+            "WHERE c.archived_at IS NULL AND c.message_count > 0 AND c.last_activity_at < ? " +
+            "ORDER BY c.user_id, c.id LIMIT ?";
+
+    private static final String MESSAGES_SQL =
+            "SELECT id, content, is_user, created_at FROM messages WHERE conversation_id = ? ORDER BY created_at, id";
+
+    private static final String INSERT_SEGMENT_SQL =
+            "INSERT INTO conversation_archive_segments (user_id, conversation_count, raw_bytes, data, created_at) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    private static final String INSERT_INDEX_SQL =
+            "INSERT INTO archived_conversations (conversation_id, segment_id, frame_offset, frame_length, " +
+            "message_count, last_activity_at, last_preview, last_message_from_user, archived_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Same configuration as the generated messages.content_tsv column
+    private static final String INSERT_TERMS_SQL =
+            "INSERT INTO archived_message_terms (message_id, conversation_id, user_id, is_user, created_at, content_tsv) " +
+            "VALUES (?, ?, ?, ?, ?, to_tsvector('english', coalesce(?, ''))) ON CONFLICT (message_id) DO NOTHING";
+
+    // Frames archived before archived_message_terms existed
+    private static final String UNINDEXED_SQL =
+            "SELECT a.conversation_id, c.user_id, " +
+            "substring(s.data FROM a.frame_offset + 1 FOR a.frame_length) AS frame " +
+            "FROM archived_conversations a " +
+            "JOIN conversations c ON c.id = a.conversation_id " +
+            "JOIN conversation_archive_segments s ON s.id = a.segment_id " +
+            "WHERE NOT EXISTS (SELECT 1 FROM archived_message_terms t WHERE t.conversation_id = a.conversation_id) " +
+            "LIMIT ?";
+
+    private static final String RESTORE_SQL =
+            "INSERT INTO messages (id, content, is_user, created_at, conversation_id) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${conversation-archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${conversation-archive.idle-days:90}")
+    private int idleDays;
+
+    // Conversations per segment, and so per transaction
+    @Value("${conversation-archive.segment-size:200}")
+    private int segmentSize;
+
+    @Value("${conversation-archive.max-per-run:5000}")
+    private int maxPerRun;
+
+    private record StoredMessage(long id, String content, boolean isUser, LocalDateTime createdAt) {
+    }
+
+    private record Frame(long conversationId, byte[] data, long rawBytes, int messageCount,
+                         LocalDateTime lastActivity, String lastPreview, Boolean lastFromUser) {
+    }
+
+    public ConversationArchiveService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Archive conversations whose last message is older than the idle period
+     */
+    @Scheduled(cron = "${conversation-archive.cron:0 0 5 * * *}")
+    public void archiveIdleConversations() {
+        if (!enabled) {
+            return;
+        }
+        indexArchivedTerms();
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(idleDays);
+            List<Map<String, Object>> candidates = jdbcTemplate.queryForList(CANDIDATES_SQL,
+                    Timestamp.valueOf(cutoff), maxPerRun);
+
+            Map<Long, List<Long>> byUser = new LinkedHashMap<>();
+            for (Map<String, Object> row : candidates) {
+                byUser.computeIfAbsent(((Number) row.get("user_id")).longValue(), k -> new ArrayList<>())
+                        .add(((Number) row.get("id")).longValue());
+            }
+
+            int archived = 0;
+            for (Map.Entry<Long, List<Long>> user : byUser.entrySet()) {
+                List<Long> ids = user.getValue();
+                for (int from = 0; from < ids.size(); from += segmentSize) {
+                    List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + segmentSize));
+                    Integer count = transactionTemplate.execute(status -> archiveSegment(user.getKey(), chunk, cutoff));
+                    archived += count != null ? count : 0;
+                }
+            }
+            if (archived > 0) {
+                log.info("Archived {} idle conversations for {} users", archived, byUser.size());
+            }
+        } catch (Exception e) {
+            log.error("Error archiving idle conversations", e);
+        }
+    }
+
+    /**
+     * Move a conversation's messages back into the messages table if it is archived.
+     * Returns true when something was restored.
+     */
+    @Transactional
+    public boolean rehydrate(Long conversationId) {
+        // Deleting the index row first also locks it, so concurrent opens restore once
+        List<Map<String, Object>> entries = jdbcTemplate.queryForList(
+                "DELETE FROM archived_conversations WHERE conversation_id = ? " +
+                "RETURNING segment_id, frame_offset, frame_length", conversationId);
+        if (entries.isEmpty()) {
+            jdbcTemplate.update("UPDATE conversations SET archived_at = NULL WHERE id = ? AND archived_at IS NOT NULL",
+                    conversationId);
+            return false;
+        }
+        Map<String, Object> entry = entries.get(0);
+        long segmentId = ((Number) entry.get("segment_id")).longValue();
+        int offset = ((Number) entry.get("frame_offset")).intValue();
+        int length = ((Number) entry.get("frame_length")).intValue();
+
+        // substring on bytea is 1-based; only this frame leaves the database
+        byte[] frame = jdbcTemplate.queryForObject(
+                "SELECT substring(data FROM ? FOR ?) FROM conversation_archive_segments WHERE id = ?",
+                byte[].class, offset + 1, length, segmentId);
+        List<StoredMessage> messages = readFrame(frame);
+
+        jdbcTemplate.update("DELETE FROM archived_message_terms WHERE conversation_id = ?", conversationId);
+        jdbcTemplate.batchUpdate(RESTORE_SQL, messages, 500, (ps, message) -> {
+            ps.setLong(1, message.id());
+            ps.setString(2, message.content());
+            ps.setBoolean(3, message.isUser());
+            ps.setTimestamp(4, message.createdAt() != null ? Timestamp.valueOf(message.createdAt()) : null);
+            ps.setLong(5, conversationId);
+        });
+        // The frame is the full history, so it also settles the list columns
+        LocalDateTime lastActivity = messages.stream().map(StoredMessage::createdAt).filter(Objects::nonNull)
+                .max(Comparator.naturalOrder()).orElse(null);
+        jdbcTemplate.update("UPDATE conversations SET archived_at = NULL, message_count = ?, " +
+                "last_activity_at = GREATEST(last_activity_at, ?) WHERE id = ?",
+                messages.size(), lastActivity != null ? Timestamp.valueOf(lastActivity) : null, conversationId);
+        // Drop the segment once none of its frames is referenced any more
+        jdbcTemplate.update("DELETE FROM conversation_archive_segments s WHERE s.id = ? AND NOT EXISTS " +
+                "(SELECT 1 FROM archived_conversations a WHERE a.segment_id = s.id)", segmentId);
+
+        log.info("Rehydrated conversation {} ({} messages) from archive segment {}", conversationId, messages.size(), segmentId);
+        return true;
+    }
+
+    private int archiveSegment(Long userId, List<Long> conversationIds, LocalDateTime cutoff) {
+        LocalDateTime now = LocalDateTime.now();
+        ByteArrayOutputStream segment = new ByteArrayOutputStream();
+        List<Frame> frames = new ArrayList<>();
+        List<int[]> positions = new ArrayList<>();
+        Map<Long, List<StoredMessage>> archivedMessages = new HashMap<>();
+        long rawBytes = 0;
+
+        for (Long conversationId : conversationIds) {
+            // Lock the row so a concurrent chat cannot add a message while it is being archived
+            List<Long> locked = jdbcTemplate.queryForList(
+                    "SELECT id FROM conversations WHERE id = ? AND archived_at IS NULL FOR UPDATE", Long.class, conversationId);
+            if (locked.isEmpty()) {
+                continue;
+            }
+            List<StoredMessage> messages = jdbcTemplate.query(MESSAGES_SQL, (rs, i) -> new StoredMessage(
+                    rs.getLong("id"), rs.getString("content"), rs.getBoolean("is_user"),
+                    rs.getTimestamp("created_at") != null ? rs.getTimestamp("created_at").toLocalDateTime() : null),
+                    conversationId);
+            LocalDateTime lastActivity = messages.isEmpty() ? null : messages.get(messages.size() - 1).createdAt();
+            // Rows are ordered by created_at with NULLs last, so a null here means undated messages only
+            if (lastActivity == null || !lastActivity.isBefore(cutoff)) {
+                continue;
+            }
+            Frame frame = writeFrame(conversationId, messages);
+            archivedMessages.put(conversationId, messages);
+            positions.add(new int[]{segment.size(), frame.data().length});
+            segment.writeBytes(frame.data());
+            frames.add(frame);
+            rawBytes += frame.rawBytes();
+        }
+        if (frames.isEmpty()) {
+            return 0;
+        }
+
+        byte[] data = segment.toByteArray();
+        long segmentRawBytes = rawBytes;
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_SEGMENT_SQL, new String[]{"id"});
+            ps.setLong(1, userId);
+            ps.setInt(2, frames.size());
+            ps.setLong(3, segmentRawBytes);
+            ps.setBytes(4, data);
+            ps.setTimestamp(5, Timestamp.valueOf(now));
+            return ps;
+        }, keyHolder);
+        long segmentId = Objects.requireNonNull(keyHolder.getKey()).longValue();
+
+        List<Object[]> indexRows = new ArrayList<>();
+        List<Object[]> conversationRows = new ArrayList<>();
+        for (int i = 0; i < frames.size(); i++) {
+            Frame frame = frames.get(i);
+            indexRows.add(new Object[]{frame.conversationId(), segmentId, positions.get(i)[0], positions.get(i)[1],
+                    frame.messageCount(), Timestamp.valueOf(frame.lastActivity()), frame.lastPreview(),
+                    frame.lastFromUser(), Timestamp.valueOf(now)});
+            conversationRows.add(new Object[]{Timestamp.valueOf(now), frame.messageCount(),
+                    Timestamp.valueOf(frame.lastActivity()), frame.conversationId()});
+        }
+        jdbcTemplate.batchUpdate(INSERT_INDEX_SQL, indexRows);
+        archivedMessages.forEach((conversationId, messages) -> insertTerms(userId, conversationId, messages));
+        // Counts stay on the row while the messages are away, so the list needs no archive lookup to sort
+        jdbcTemplate.batchUpdate("UPDATE conversations SET archived_at = ?, message_count = ?, last_activity_at = ? " +
+                "WHERE id = ?", conversationRows);
+        jdbcTemplate.batchUpdate("DELETE FROM messages WHERE conversation_id = ?",
+                frames.stream().map(f -> new Object[]{f.conversationId()}).toList());
+
+        log.debug("Archived {} conversations of user {} into segment {} ({} -> {} bytes)",
+                frames.size(), userId, segmentId, rawBytes, data.length);
+        return frames.size();
+    }
+
+    private void insertTerms(long userId, long conversationId, List<StoredMessage> messages) {
+        jdbcTemplate.batchUpdate(INSERT_TERMS_SQL, messages, 500, (ps, message) -> {
+            ps.setLong(1, message.id());
+            ps.setLong(2, conversationId);
+            ps.setLong(3, userId);
+            ps.setBoolean(4, message.isUser());
+            ps.setTimestamp(5, message.createdAt() != null ? Timestamp.valueOf(message.createdAt()) : null);
+            ps.setString(6, message.content());
+        });
+    }
+
+    /**
+     * Give conversations archived before search covered the archive their
+     * search terms, a segment's worth per run
+     */
+    private void indexArchivedTerms() {
+        try {
+            List<Map<String, Object>> frames = jdbcTemplate.queryForList(UNINDEXED_SQL, segmentSize);
+            for (Map<String, Object> frame : frames) {
+                transactionTemplate.executeWithoutResult(status -> insertTerms(
+                        ((Number) frame.get("user_id")).longValue(),
+                        ((Number) frame.get("conversation_id")).longValue(),
+                        readFrame((byte[]) frame.get("frame"))));
+            }
+            if (!frames.isEmpty()) {
+                log.info("Indexed search terms of {} archived conversations", frames.size());
+            }
+        } catch (Exception e) {
+            log.error("Error indexing archived conversations for search", e);
+        }
+    }
+
+    /**
+     * Highlighted snippets for search hits in archived conversations, keyed by
+     * message id. Reads one frame per conversation; the text is escaped and
+     * highlighted by Postgres exactly like live hits.
+     */
+    public Map<Long, String> snippets(String query, Map<Long, Set<Long>> messageIdsByConversation) {
+        Map<Long, String> snippets = new HashMap<>();
+        if (messageIdsByConversation.isEmpty()) {
+            return snippets;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(messageIdsByConversation.size(), "?"));
+        List<Long> ids = new ArrayList<>();
+        List<String> contents = new ArrayList<>();
+        jdbcTemplate.query("SELECT a.conversation_id, " +
+                        "substring(s.data FROM a.frame_offset + 1 FOR a.frame_length) AS frame " +
+                        "FROM archived_conversations a JOIN conversation_archive_segments s ON s.id = a.segment_id " +
+                        "WHERE a.conversation_id IN (" + placeholders + ")",
+                rs -> {
+                    Set<Long> wanted = messageIdsByConversation.get(rs.getLong("conversation_id"));
+                    for (StoredMessage message : readFrame(rs.getBytes("frame"))) {
+                        if (wanted.contains(message.id())) {
+                            ids.add(message.id());
+                            contents.add(message.content());
+                        }
+                    }
+                },
+                messageIdsByConversation.keySet().toArray());
+        if (ids.isEmpty()) {
+            return snippets;
+        }
+        List<String> highlighted = jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "SELECT ts_headline('english', " + MessageRepository.ESCAPED_CONTENT + ", " +
+                    "websearch_to_tsquery('english', ?), " + MessageRepository.HEADLINE_OPTIONS + ") " +
+                    "FROM unnest(?) WITH ORDINALITY AS t(content, n) ORDER BY t.n");
+            ps.setString(1, query);
+            ps.setArray(2, connection.createArrayOf("text", contents.toArray()));
+            return ps;
+        }, (rs, i) -> rs.getString(1));
+        for (int i = 0; i < ids.size(); i++) {
+            snippets.put(ids.get(i), highlighted.get(i));
+        }
+        return snippets;
+    }
+
+    private static Frame writeFrame(long conversationId, List<StoredMessage> messages) {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(raw)) {
+            out.writeByte(FRAME_VERSION);
+            out.writeInt(messages.size());
+            for (StoredMessage message : messages) {
+                out.writeLong(message.id());
+                out.writeBoolean(message.isUser());
+                // Very old rows may have no timestamp; a negative nano field marks that
+                LocalDateTime createdAt = message.createdAt();
+                out.writeLong(createdAt != null ? createdAt.toEpochSecond(ZoneOffset.UTC) : 0);
+                out.writeInt(createdAt != null ? createdAt.getNano() : -1);
+                byte[] content = message.content().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(content.length);
+                out.write(content);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.size() / 4));
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed, new Deflater(Deflater.BEST_COMPRESSION))) {
+            raw.writeTo(deflater);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        StoredMessage last = messages.get(messages.size() - 1);
+        String preview = last.content().length() > 120 ? last.content().substring(0, 120) : last.content();
+        return new Frame(conversationId, compressed.toByteArray(), raw.size(), messages.size(),
+                last.createdAt(), preview, last.isUser());
+    }
+
+    private static List<StoredMessage> readFrame(byte[] frame) {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(frame)))) {
+            int version = in.readByte();
+            if (version != FRAME_VERSION) {
+                throw new IllegalStateException("Unknown archive frame version " + version);
+            }
+            int count = in.readInt();
+            List<StoredMessage> messages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long id = in.readLong();
+                boolean isUser = in.readBoolean();
+                long seconds = in.readLong();
+                int nanos = in.readInt();
+                LocalDateTime createdAt = nanos < 0 ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+                byte[] content = new byte[in.readInt()];
+                in.readFully(content);
+                messages.add(new StoredMessage(id, new String(content, StandardCharsets.UTF_8), isUser, createdAt));
+            }
+            return messages;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,22 +1,34 @@
 package com.aiagent.main.service;
 
 import com.aiagent.main.entity.Conversation;
+import com.aiagent.main.entity.ConversationSummary;
 import com.aiagent.main.entity.User;
 import com.aiagent.main.repository.ConversationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class ConversationService {
 
+    private static final int PREVIEW_LENGTH = 120;
+
     @Autowired
     private ConversationRepository conversationRepository;
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ConversationArchiveService conversationArchiveService;
+
     public Conversation createConversation(Long userId, String title) {
         Optional<User> user = userService.findById(userId);
         if (user.isEmpty()) {
@@ -31,7 +43,55 @@ public class ConversationService {
         return conversationRepository.findByUserIdOrderByCreatedAtDesc(userId);
     }
 
+    /**
+     * One page of the conversation list, most recently active first. Pass the
+     * returned nextCursor to get the following page.
+     */
+    public Map<String, Object> getConversationSummaries(Long userId, String cursor, int limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        // One extra row tells whether another page exists
+        List<Object[]> rows = conversationRepository.findSummaries(userId, position.time(), position.id(),
+                PREVIEW_LENGTH, limit + 1);
+
+        List<ConversationSummary> summaries = new ArrayList<>();
+        for (Object[] row : rows.subList(0, Math.min(limit, rows.size()))) {
+            summaries.add(new ConversationSummary(
+                    ((Number) row[0]).longValue(),
+                    (String) row[1],
+                    toLocalDateTime(row[2]),
+                    ((Number) row[3]).longValue(),
+                    toLocalDateTime(row[4]),
+                    (String) row[5],
+                    (Boolean) row[6]));
+        }
+
+        boolean hasMore = rows.size() > limit;
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("conversations", summaries);
+        page.put("hasMore", hasMore);
+        if (hasMore) {
+            ConversationSummary last = summaries.get(summaries.size() - 1);
+            page.put("nextCursor", new KeysetCursor(last.getLastActivityAt(), last.getId()).encode());
+        }
+        return page;
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
+    /**
+     * Find a conversation; archived ones get their messages restored first
+     */
     public Optional<Conversation> findById(Long id) {
-        return conversationRepository.findById(id);
+        Optional<Conversation> conversation = conversationRepository.findById(id);
+        conversation.filter(c -> c.getArchivedAt() != null).ifPresent(c -> {
+            conversationArchiveService.rehydrate(c.getId());
+            c.setArchivedAt(null);
+        });
+        return conversation;
     }
 }
@@ -0,0 +1,277 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.EquipmentAlternative;
+import com.aiagent.main.entity.GymEquipment;
+import com.aiagent.main.repository.GymEquipmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Substitution graph built from the free-text alternativeEquipments column.
+ *
+ * Every catalog row and every alternative it lists becomes a node. The node
+ * id is the normalized name without the generic word "machine", so
+ * "Leg Press" and "Leg Press Machine" are the same node. A listed
+ * alternative adds an undirected edge weighted 0.5 to 1.0 by the overlap of
+ * the two rows' primary muscles; when one side is not a catalog row its
+ * muscles are unknown and the edge gets the base weight.
+ *
+ * A path scores the product of its edge weights, decayed per extra hop, and
+ * the best path to each node within the hop limit is found with a
+ * Bellman-Ford search bounded to maxHops layers.
+ * The graph is rebuilt and swapped in whenever the catalog changes.
+ */
+@Service
+@Slf4j
+public class EquipmentAlternativesGraph {
+
+    private static final double BASE_EDGE_WEIGHT = 0.5;
+    private static final double HOP_DECAY = 0.8;
+    private static final Set<String> GENERIC_TOKENS = Set.of("machine");
+
+    private final GymEquipmentRepository gymEquipmentRepository;
+    private final EquipmentSearchIndex equipmentSearchIndex;
+
+    private volatile Graph graph;
+
+    public EquipmentAlternativesGraph(GymEquipmentRepository gymEquipmentRepository,
+            EquipmentSearchIndex equipmentSearchIndex) {
+        this.gymEquipmentRepository = gymEquipmentRepository;
+        this.equipmentSearchIndex = equipmentSearchIndex;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        refresh();
+    }
+
+    @EventListener
+    public void onCatalogChanged(EquipmentCatalogChangedEvent event) {
+        log.info("Equipment catalog changed ({}), rebuilding alternatives graph", event.reason());
+        refresh(event.snapshot().equipment());
+    }
+
+    /**
+     * Rebuild the graph from the current catalog and swap it in
+     */
+    public void refresh() {
+        refresh(gymEquipmentRepository.findAll());
+    }
+
+    public void refresh(List<GymEquipment> catalog) {
+        Graph built = new Graph(catalog);
+        graph = built;
+        log.info("Equipment alternatives graph built with {} nodes and {} edges", built.nodes.size(), built.edgeCount);
+    }
+
+    /**
+     * Ranked substitutes for the named equipment within maxHops, empty when the
+     * name matches nothing. Unknown spellings fall back to the fuzzy search.
+     */
+    public Optional<List<EquipmentAlternative>> findAlternatives(String name, int maxHops, int limit) {
+        Graph current = current();
+        Node start = resolve(current, name);
+        if (start == null) {
+            return Optional.empty();
+        }
+        return Optional.of(current.walk(start, maxHops, limit));
+    }
+
+    /**
+     * Catalog rows named in a chat message, for prompts that only need the
+     * relevant part of the catalog. Longer names win, "Barbell Bench Press"
+     * over "Bench Press".
+     */
+    public List<GymEquipment> mentionedIn(String message, int limit) {
+        if (message == null || message.isBlank()) {
+            return List.of();
+        }
+        Set<String> messageTokens = new HashSet<>(MuscleGroupResolver.tokens(message));
+        List<Node> mentioned = new ArrayList<>();
+        for (Node node : current().nodes.values()) {
+            if (node.equipment != null && messageTokens.containsAll(node.tokens)) {
+                mentioned.add(node);
+            }
+        }
+        mentioned.sort(Comparator.comparingInt((Node node) -> -node.tokens.size()).thenComparing(node -> node.name));
+        return mentioned.stream().limit(limit).map(node -> node.equipment).toList();
+    }
+
+    private Graph current() {
+        Graph current = graph;
+        if (current == null) {
+            refresh();
+            current = graph;
+        }
+        return current;
+    }
+
+    private Node resolve(Graph current, String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        Node node = current.nodes.get(canonicalId(name));
+        if (node != null) {
+            return node;
+        }
+        List<GymEquipment> hits = equipmentSearchIndex.search(name, EnumSet.of(EquipmentSearchIndex.Field.NAME), 1);
+        return hits.isEmpty() ? null : current.nodes.get(canonicalId(hits.get(0).getName()));
+    }
+
+    static String canonicalId(String name) {
+        List<String> tokens = MuscleGroupResolver.tokens(name);
+        List<String> significant = tokens.stream().filter(token -> !GENERIC_TOKENS.contains(token)).toList();
+        return String.join(" ", significant.isEmpty() ? tokens : significant);
+    }
+
+    /**
+     * Normalized individual muscles, e.g. "Pectoralis Major (Upper/Middle/Lower), Triceps"
+     * -> {"pectorali major", "tricep"}
+     */
+    static Set<String> muscles(String primaryMuscles) {
+        if (primaryMuscles == null) {
+            return Set.of();
+        }
+        Set<String> muscles = new LinkedHashSet<>();
+        for (String muscle : primaryMuscles.replaceAll("\\([^)]*\\)", "").split(",")) {
+            String normalized = MuscleGroupResolver.normalize(muscle);
+            if (!normalized.isEmpty()) {
+                muscles.add(normalized);
+            }
+        }
+        return muscles;
+    }
+
+    private static final class Node {
+        private final String id;
+        private final List<String> tokens;
+        private String name;
+        private GymEquipment equipment;
+        private Set<String> muscles = Set.of();
+        private final Map<Node, Double> edges = new HashMap<>();
+
+        Node(String id, String name) {
+            this.id = id;
+            this.tokens = List.of(id.split(" "));
+            this.name = name;
+        }
+    }
+
+    private record Candidate(Node node, double score, int hops, Candidate previous) {
+    }
+
+    /**
+     * Immutable after construction, safe to share between request threads
+     */
+    private static final class Graph {
+
+        private final Map<String, Node> nodes = new HashMap<>();
+        private int edgeCount;
+
+        Graph(List<GymEquipment> catalog) {
+            for (GymEquipment equipment : catalog) {
+                if (equipment.getName() == null) {
+                    continue;
+                }
+                Node node = node(equipment.getName());
+                // A catalog row names the node, even if an alternative mentioned it first
+                node.name = equipment.getName();
+                node.equipment = equipment;
+                node.muscles = muscles(equipment.getPrimaryMuscles());
+            }
+            for (GymEquipment equipment : catalog) {
+                if (equipment.getName() == null || equipment.getAlternativeEquipments() == null) {
+                    continue;
+                }
+                Node from = nodes.get(canonicalId(equipment.getName()));
+                for (String alternative : equipment.getAlternativeEquipments().split(",")) {
+                    if (alternative.isBlank()) {
+                        continue;
+                    }
+                    Node to = node(alternative.trim());
+                    if (to != from) {
+                        connect(from, to);
+                    }
+                }
+            }
+        }
+
+        private Node node(String name) {
+            return nodes.computeIfAbsent(canonicalId(name), id -> new Node(id, name));
+        }
+
+        private void connect(Node a, Node b) {
+            double weight = BASE_EDGE_WEIGHT;
+            if (!a.muscles.isEmpty() && !b.muscles.isEmpty()) {
+                Set<String> union = new HashSet<>(a.muscles);
+                union.addAll(b.muscles);
+                weight += (1 - BASE_EDGE_WEIGHT) * shared(a, b).size() / union.size();
+            }
+            if (!a.edges.containsKey(b)) {
+                edgeCount++;
+            }
+            a.edges.merge(b, weight, Math::max);
+            b.edges.merge(a, weight, Math::max);
+        }
+
+        private static List<String> shared(Node a, Node b) {
+            return a.muscles.stream().filter(b.muscles::contains).toList();
+        }
+
+        List<EquipmentAlternative> walk(Node start, int maxHops, int limit) {
+            // Bounded Bellman-Ford: layer h holds the best path to each node
+            // using exactly h hops. A node's best path overall may have used up
+            // the hop budget while a weaker, shorter one can still reach past it,
+            // so every layer is expanded, not just the overall winners.
+            Map<Node, Candidate> best = new HashMap<>();
+            Map<Node, Candidate> layer = Map.of(start, new Candidate(start, 1.0, 0, null));
+            for (int hops = 1; hops <= maxHops && !layer.isEmpty(); hops++) {
+                Map<Node, Candidate> next = new HashMap<>();
+                for (Candidate candidate : layer.values()) {
+                    double decay = candidate.hops() == 0 ? 1.0 : HOP_DECAY;
+                    for (Map.Entry<Node, Double> edge : candidate.node().edges.entrySet()) {
+                        Node node = edge.getKey();
+                        if (node == start) {
+                            continue;
+                        }
+                        double score = candidate.score() * edge.getValue() * decay;
+                        Candidate known = next.get(node);
+                        if (known == null || score > known.score()) {
+                            next.put(node, new Candidate(node, score, hops, candidate));
+                        }
+                    }
+                }
+                for (Candidate candidate : next.values()) {
+                    best.merge(candidate.node(), candidate,
+                            (known, found) -> found.score() > known.score() ? found : known);
+                }
+                layer = next;
+            }
+
+            // Edge weights are at most 1 and extra hops decay, so a best path
+            // never repeats a node
+            List<Candidate> results = best.values().stream()
+                    .sorted(Comparator.comparingDouble((Candidate candidate) -> -candidate.score())
+                            .thenComparing(candidate -> candidate.node().name))
+                    .limit(limit)
+                    .toList();
+
+            List<EquipmentAlternative> alternatives = new ArrayList<>(results.size());
+            for (Candidate result : results) {
+                LinkedList<String> path = new LinkedList<>();
+                for (Candidate step = result; step != null; step = step.previous()) {
+                    path.addFirst(step.node().name);
+                }
+                Node node = result.node();
+                alternatives.add(new EquipmentAlternative(node.name,
+                        node.equipment != null ? node.equipment.getId() : null,
+                        Math.round(result.score() * 1000) / 1000.0, result.hops(), path, shared(start, node), null, null));
+            }
+            return alternatives;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.aiagent.main.service;
+
+/**
+ * Published whenever gym equipment rows are added, changed or removed, so
+ * in-memory views of the catalog can rebuild themselves from the new snapshot.
+ */
+public record EquipmentCatalogChangedEvent(String reason, EquipmentCatalogSnapshot snapshot) {
+}
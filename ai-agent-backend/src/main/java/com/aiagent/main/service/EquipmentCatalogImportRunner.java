@@ -0,0 +1,67 @@
+package com.aiagent.main.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Command line catalog import:
+ *
+ *   java -jar ai-agent-backend.jar --spring.main.web-application-type=none \
+ *       --catalog.import=equipment.csv [--catalog.import.replace] [--catalog.import.dry-run]
+ *
+ * Imports the file and exits with 0 on success, 1 on failure. Pass
+ * --catalog.import.keep-running to carry on as a normal server afterwards.
+ */
+@Component
+@Slf4j
+public class EquipmentCatalogImportRunner implements ApplicationRunner {
+
+    private final EquipmentCatalogImportService importService;
+    private final ConfigurableApplicationContext context;
+
+    public EquipmentCatalogImportRunner(EquipmentCatalogImportService importService,
+                                        ConfigurableApplicationContext context) {
+        this.importService = importService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<String> files = args.getOptionValues("catalog.import");
+        if (files == null || files.isEmpty()) {
+            return;
+        }
+        boolean replace = flag(args, "catalog.import.replace");
+        boolean dryRun = flag(args, "catalog.import.dry-run");
+
+        int exitCode = 0;
+        for (String file : files) {
+            try {
+                EquipmentCatalogImportService.ImportResult result = importService.importFile(Path.of(file), replace, dryRun);
+                log.info("Catalog import of {}: {}", file, result);
+            } catch (Exception e) {
+                log.error("Catalog import of {} failed: {}", file, e.getMessage());
+                exitCode = 1;
+                break;
+            }
+        }
+
+        if (!flag(args, "catalog.import.keep-running")) {
+            int code = exitCode;
+            System.exit(SpringApplication.exit(context, () -> code));
+        }
+    }
+
+    // "--flag" and "--flag=true" both count
+    private static boolean flag(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        return values != null && (values.isEmpty() || Boolean.parseBoolean(values.get(0)));
+    }
+}
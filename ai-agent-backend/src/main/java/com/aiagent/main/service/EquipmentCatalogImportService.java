@@ -0,0 +1,340 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.EquipmentCatalogVersion;
+import com.aiagent.main.entity.GymEquipment;
+import com.aiagent.main.repository.EquipmentCatalogVersionRepository;
+import com.aiagent.main.repository.GymEquipmentRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Bulk loads the equipment catalog from JSON or CSV into a new catalog
+ * version.
+ *
+ * An import is one transaction: it takes an advisory lock so imports run one
+ * at a time, records a row in equipment_catalog_versions, upserts the rows in
+ * JDBC batches keyed by name and, in replace mode, deletes the rows the file
+ * no longer lists. Other connections see the old catalog or the new one,
+ * never a mix. After the commit every node reloads its catalog snapshot and
+ * swaps it in, and the views built from it (search index, alternatives
+ * graph, muscle groups, plan templates) follow.
+ */
+@Service
+@Slf4j
+public class EquipmentCatalogImportService {
+
+    // pg_advisory_xact_lock key for catalog imports
+    private static final long IMPORT_LOCK = 0x6571_7569_706dL;
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO gym_equipment (name, description, primary_muscles, alternative_equipments, " +
+            "workout_types, difficulty, tips, catalog_version) VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (name) DO UPDATE SET description = EXCLUDED.description, " +
+            "primary_muscles = EXCLUDED.primary_muscles, alternative_equipments = EXCLUDED.alternative_equipments, " +
+            "workout_types = EXCLUDED.workout_types, difficulty = EXCLUDED.difficulty, tips = EXCLUDED.tips, " +
+            "catalog_version = EXCLUDED.catalog_version";
+
+    private static final String VERSION_SQL =
+            "INSERT INTO equipment_catalog_versions (source, replace_mode, row_count, imported_at) " +
+            "VALUES (?, ?, ?, ?) RETURNING id";
+
+    private static final String DEFAULT_CATALOG = "catalog/default-equipment.json";
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    // Column lengths of gym_equipment
+    private static final Map<String, Integer> MAX_LENGTHS = Map.of(
+            "name", 255, "description", 2000, "primaryMuscles", 2000, "alternativeEquipments", 2000,
+            "workoutTypes", 1000, "difficulty", 1000, "tips", 2000);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final GymEquipmentRepository gymEquipmentRepository;
+    private final EquipmentCatalogVersionRepository catalogVersionRepository;
+    private final GymEquipmentService gymEquipmentService;
+
+    @Value("${catalog-import.batch-size:500}")
+    private int batchSize;
+
+    public EquipmentCatalogImportService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                         ObjectMapper objectMapper, GymEquipmentRepository gymEquipmentRepository,
+                                         EquipmentCatalogVersionRepository catalogVersionRepository,
+                                         GymEquipmentService gymEquipmentService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.gymEquipmentRepository = gymEquipmentRepository;
+        this.catalogVersionRepository = catalogVersionRepository;
+        this.gymEquipmentService = gymEquipmentService;
+    }
+
+    public record ImportResult(Long version, String source, boolean replace, boolean dryRun,
+                               int rows, int inserted, int updated, int removed) {
+    }
+
+    /**
+     * Seed an empty database with the bundled default catalog
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedIfEmpty() {
+        if (gymEquipmentRepository.count() > 0) {
+            return;
+        }
+        log.info("Initializing gym equipment database...");
+        try (InputStream in = new ClassPathResource(DEFAULT_CATALOG).getInputStream()) {
+            importCatalog(parseJson(new String(in.readAllBytes(), StandardCharsets.UTF_8)),
+                    "default catalog", false, false);
+        } catch (IOException e) {
+            log.error("Could not read {}", DEFAULT_CATALOG, e);
+        }
+    }
+
+    public List<EquipmentCatalogVersion> getVersions() {
+        return catalogVersionRepository.findTop20ByOrderByIdDesc();
+    }
+
+    /**
+     * Import a .json or .csv file, as used by the command line runner
+     */
+    public ImportResult importFile(Path file, boolean replace, boolean dryRun) throws IOException {
+        String content = Files.readString(file, StandardCharsets.UTF_8);
+        String name = file.getFileName().toString();
+        List<GymEquipment> rows = name.toLowerCase(Locale.ROOT).endsWith(".csv") ? parseCsv(content) : parseJson(content);
+        return importCatalog(rows, name, replace, dryRun);
+    }
+
+    /**
+     * Validate and write the rows as a new catalog version. Throws
+     * IllegalArgumentException listing the bad rows, before anything is written.
+     */
+    public ImportResult importCatalog(List<GymEquipment> rows, String source, boolean replace, boolean dryRun) {
+        List<GymEquipment> catalog = validate(rows);
+        if (dryRun) {
+            Set<String> existing = new HashSet<>(jdbcTemplate.queryForList("SELECT name FROM gym_equipment", String.class));
+            int updated = (int) catalog.stream().filter(row -> existing.contains(row.getName())).count();
+            Set<String> incoming = new HashSet<>();
+            catalog.forEach(row -> incoming.add(row.getName()));
+            int removed = replace ? (int) existing.stream().filter(name -> !incoming.contains(name)).count() : 0;
+            return new ImportResult(null, source, replace, true, catalog.size(), catalog.size() - updated, updated, removed);
+        }
+
+        long started = System.currentTimeMillis();
+        ImportResult result = transactionTemplate.execute(status -> write(catalog, source, replace));
+        log.info("Imported equipment catalog version {} from {}: {} rows, {} inserted, {} updated, {} removed in {} ms",
+                result.version(), source, result.rows(), result.inserted(), result.updated(), result.removed(),
+                System.currentTimeMillis() - started);
+        gymEquipmentService.notifyCatalogChanged("catalog version " + result.version() + " imported from " + source);
+        return result;
+    }
+
+    private ImportResult write(List<GymEquipment> catalog, String source, boolean replace) {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", IMPORT_LOCK);
+
+        Set<String> existing = new HashSet<>(jdbcTemplate.queryForList("SELECT name FROM gym_equipment", String.class));
+        Long version = jdbcTemplate.queryForObject(VERSION_SQL, Long.class, source, replace, catalog.size(),
+                Timestamp.valueOf(LocalDateTime.now()));
+
+        int inserted = 0;
+        for (int from = 0; from < catalog.size(); from += batchSize) {
+            List<Object[]> batch = new ArrayList<>();
+            for (GymEquipment row : catalog.subList(from, Math.min(catalog.size(), from + batchSize))) {
+                if (!existing.contains(row.getName())) {
+                    inserted++;
+                }
+                batch.add(new Object[]{row.getName(), row.getDescription(), row.getPrimaryMuscles(),
+                        row.getAlternativeEquipments(), row.getWorkoutTypes(), row.getDifficulty(), row.getTips(),
+                        version});
+            }
+            jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+        }
+
+        int removed = replace
+                ? jdbcTemplate.update("DELETE FROM gym_equipment WHERE catalog_version IS DISTINCT FROM ?", version)
+                : 0;
+        int updated = catalog.size() - inserted;
+        jdbcTemplate.update("UPDATE equipment_catalog_versions SET inserted = ?, updated = ?, removed = ? WHERE id = ?",
+                inserted, updated, removed, version);
+        return new ImportResult(version, source, replace, false, catalog.size(), inserted, updated, removed);
+    }
+
+    /**
+     * Trimmed rows, later duplicates of a name replacing earlier ones
+     */
+    private List<GymEquipment> validate(List<GymEquipment> rows) {
+        if (rows == null || rows.isEmpty()) {
+            throw new IllegalArgumentException("Catalog import contains no equipment");
+        }
+        List<String> errors = new ArrayList<>();
+        Map<String, GymEquipment> byName = new LinkedHashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            GymEquipment row = rows.get(i);
+            GymEquipment clean = new GymEquipment();
+            clean.setName(trim(row.getName()));
+            clean.setDescription(trim(row.getDescription()));
+            clean.setPrimaryMuscles(trim(row.getPrimaryMuscles()));
+            clean.setAlternativeEquipments(trim(row.getAlternativeEquipments()));
+            clean.setWorkoutTypes(trim(row.getWorkoutTypes()));
+            clean.setDifficulty(trim(row.getDifficulty()));
+            clean.setTips(trim(row.getTips()));
+
+            if (clean.getName() == null) {
+                errors.add("row " + (i + 1) + ": name is required");
+                continue;
+            }
+            checkLength(errors, i, "name", clean.getName());
+            checkLength(errors, i, "description", clean.getDescription());
+            checkLength(errors, i, "primaryMuscles", clean.getPrimaryMuscles());
+            checkLength(errors, i, "alternativeEquipments", clean.getAlternativeEquipments());
+            checkLength(errors, i, "workoutTypes", clean.getWorkoutTypes());
+            checkLength(errors, i, "difficulty", clean.getDifficulty());
+            checkLength(errors, i, "tips", clean.getTips());
+            byName.remove(clean.getName());
+            byName.put(clean.getName(), clean);
+        }
+        if (!errors.isEmpty()) {
+            String shown = String.join("; ", errors.subList(0, Math.min(errors.size(), MAX_REPORTED_ERRORS)));
+            throw new IllegalArgumentException(errors.size() + " invalid rows: " + shown
+                    + (errors.size() > MAX_REPORTED_ERRORS ? "; ..." : ""));
+        }
+        return new ArrayList<>(byName.values());
+    }
+
+    private static void checkLength(List<String> errors, int index, String field, String value) {
+        if (value != null && value.length() > MAX_LENGTHS.get(field)) {
+            errors.add("row " + (index + 1) + ": " + field + " is longer than " + MAX_LENGTHS.get(field) + " characters");
+        }
+    }
+
+    private static String trim(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    /**
+     * A JSON array of equipment, or an object with the array under "equipment"
+     */
+    public List<GymEquipment> parseJson(String content) {
+        try {
+            JsonNode root = objectMapper.readTree(content);
+            JsonNode array = root != null && root.isObject() ? root.get("equipment") : root;
+            if (array == null || !array.isArray()) {
+                throw new IllegalArgumentException("Expected a JSON array of equipment or {\"equipment\": [...]}");
+            }
+            return objectMapper.convertValue(array, new TypeReference<List<GymEquipment>>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    /**
+     * CSV with a header row naming the columns, in camelCase or snake_case
+     * (name, description, primaryMuscles, alternativeEquipments, workoutTypes,
+     * difficulty, tips). Fields containing commas are quoted, as alternatives
+     * always are.
+     */
+    public List<GymEquipment> parseCsv(String content) {
+        List<List<String>> records = readCsv(content);
+        if (records.isEmpty()) {
+            return List.of();
+        }
+        List<String> header = records.get(0).stream()
+                .map(column -> column.replace("_", "").trim().toLowerCase(Locale.ROOT))
+                .toList();
+        if (!header.contains("name")) {
+            throw new IllegalArgumentException("CSV header must include a name column");
+        }
+
+        List<GymEquipment> rows = new ArrayList<>(records.size() - 1);
+        for (List<String> record : records.subList(1, records.size())) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            GymEquipment row = new GymEquipment();
+            for (int column = 0; column < header.size() && column < record.size(); column++) {
+                String value = record.get(column);
+                switch (header.get(column)) {
+                    case "name" -> row.setName(value);
+                    case "description" -> row.setDescription(value);
+                    case "primarymuscles" -> row.setPrimaryMuscles(value);
+                    case "alternativeequipments" -> row.setAlternativeEquipments(value);
+                    case "workouttypes" -> row.setWorkoutTypes(value);
+                    case "difficulty" -> row.setDifficulty(value);
+                    case "tips" -> row.setTips(value);
+                    default -> {
+                        // Unknown columns are ignored
+                    }
+                }
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // RFC 4180: quoted fields may hold commas, newlines and "" for a quote
+    private static List<List<String>> readCsv(String content) {
+        List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = content.startsWith("\uFEFF") ? 1 : 0;
+        for (; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < content.length() && content.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < content.length() && content.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                record.add(field.toString());
+                field.setLength(0);
+                records.add(record);
+                record = new ArrayList<>();
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field in CSV");
+        }
+        if (field.length() > 0 || !record.isEmpty()) {
+            record.add(field.toString());
+            records.add(record);
+        }
+        return records;
+    }
+}
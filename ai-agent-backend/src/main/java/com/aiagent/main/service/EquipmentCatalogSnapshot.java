@@ -0,0 +1,30 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.GymEquipment;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable view of one catalog version. Readers take the current snapshot
+ * once and use it throughout, so an import swapped in meanwhile never shows
+ * them half of the old catalog and half of the new one.
+ */
+public record EquipmentCatalogSnapshot(long version, List<GymEquipment> equipment, Map<String, GymEquipment> byName) {
+
+    public static EquipmentCatalogSnapshot of(long version, List<GymEquipment> equipment) {
+        Map<String, GymEquipment> byName = new HashMap<>();
+        for (GymEquipment row : equipment) {
+            if (row.getName() != null) {
+                byName.put(row.getName(), row);
+            }
+        }
+        return new EquipmentCatalogSnapshot(version, List.copyOf(equipment), Map.copyOf(byName));
+    }
+
+    public Optional<GymEquipment> find(String name) {
+        return Optional.ofNullable(name != null ? byName.get(name) : null);
+    }
+}
@@ -0,0 +1,340 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.EquipmentAlternative;
+import com.aiagent.main.entity.EquipmentOccupancy;
+import com.aiagent.main.entity.GymEquipment;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live equipment occupancy, shared by every node through Postgres.
+ *
+ * Counts and open sessions live in occupancy_counters and occupancy_sessions,
+ * and every check-in, check-out and expiry is one atomic statement
+ * (a data-modifying CTE ending in UPDATE ... RETURNING), so concurrent members
+ * on different nodes never overwrite each other. Each check-out feeds the
+ * session length into a moving average, which drives the wait estimate.
+ * Subscribers of the SSE stream get the changed equipment once per publish
+ * interval rather than one event per check-in; changes made on other nodes
+ * arrive over the {@link CacheCoherenceBus}, and after a missed stretch the
+ * stream gets a full snapshot. Sessions that are never checked out expire
+ * after max-session-minutes.
+ */
+@Service
+@Slf4j
+public class EquipmentOccupancyService {
+
+    // Weight of the newest session in the moving average
+    private static final double SESSION_ALPHA = 0.2;
+
+    private static final String CHECK_IN_SQL =
+            "WITH session AS (INSERT INTO occupancy_sessions (id, equipment_id, started_at) VALUES (?, ?, ?)) " +
+            "INSERT INTO occupancy_counters (equipment_id, in_use, average_session_ms, updated_at) VALUES (?, 1, ?, ?) " +
+            "ON CONFLICT (equipment_id) DO UPDATE SET in_use = occupancy_counters.in_use + 1, " +
+            "updated_at = EXCLUDED.updated_at " +
+            "RETURNING in_use, average_session_ms, updated_at";
+
+    // Only the statement that deletes the session counts it, so retries cannot double-decrement
+    private static final String CHECK_OUT_SQL =
+            "WITH session AS (DELETE FROM occupancy_sessions WHERE id = ? AND equipment_id = ? RETURNING started_at) " +
+            "UPDATE occupancy_counters c SET in_use = GREATEST(0, c.in_use - 1), " +
+            "average_session_ms = c.average_session_ms + ? * ((? - session.started_at) - c.average_session_ms), " +
+            "updated_at = ? " +
+            "FROM session WHERE c.equipment_id = ? " +
+            "RETURNING c.in_use, c.average_session_ms, c.updated_at";
+
+    // Head of the per-equipment queue; concurrent check-outs skip each other's row
+    private static final String CHECK_OUT_OLDEST_SQL =
+            "WITH session AS (DELETE FROM occupancy_sessions WHERE id = (" +
+            "SELECT id FROM occupancy_sessions WHERE equipment_id = ? ORDER BY started_at LIMIT 1 " +
+            "FOR UPDATE SKIP LOCKED) RETURNING equipment_id) " +
+            "UPDATE occupancy_counters c SET in_use = GREATEST(0, c.in_use - 1), updated_at = ? " +
+            "FROM session WHERE c.equipment_id = session.equipment_id " +
+            "RETURNING c.in_use, c.average_session_ms, c.updated_at";
+
+    private static final String EXPIRE_SQL =
+            "WITH expired AS (DELETE FROM occupancy_sessions WHERE started_at < ? RETURNING equipment_id), " +
+            "counts AS (SELECT equipment_id, COUNT(*) AS n FROM expired GROUP BY equipment_id) " +
+            "UPDATE occupancy_counters c SET in_use = GREATEST(0, c.in_use - counts.n), updated_at = ? " +
+            "FROM counts WHERE c.equipment_id = counts.equipment_id " +
+            "RETURNING c.equipment_id, counts.n";
+
+    private static final String SELECT_SQL =
+            "SELECT c.equipment_id, e.name, c.in_use, c.average_session_ms, c.updated_at " +
+            "FROM occupancy_counters c JOIN gym_equipment e ON e.id = c.equipment_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheCoherenceBus cacheCoherenceBus;
+
+    @Value("${occupancy.default-capacity:1}")
+    private int defaultCapacity;
+
+    // Units per equipment, e.g. "Treadmill:6,Rowing Machine:2"
+    @Value("${occupancy.capacities:}")
+    private String capacitiesProperty;
+
+    // Starting point for the average session length before any check-out
+    @Value("${occupancy.default-session-minutes:10}")
+    private int defaultSessionMinutes;
+
+    @Value("${occupancy.max-session-minutes:90}")
+    private int maxSessionMinutes;
+
+    @Value("${occupancy.stream-timeout-minutes:30}")
+    private long streamTimeoutMinutes;
+
+    private final Map<String, Integer> capacities = new HashMap<>();
+    // Equipment to push to this node's subscribers
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    // Equipment changed on this node that the other nodes have not heard about yet
+    private final Set<Long> announce = ConcurrentHashMap.newKeySet();
+    private volatile boolean changedAll;
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    private final LongAdder checkIns = new LongAdder();
+    private final LongAdder checkOuts = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    public record CheckIn(String sessionId, EquipmentOccupancy occupancy) {
+    }
+
+    public EquipmentOccupancyService(JdbcTemplate jdbcTemplate, CacheCoherenceBus cacheCoherenceBus) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheCoherenceBus = cacheCoherenceBus;
+    }
+
+    @PostConstruct
+    void parseCapacities() {
+        if (capacitiesProperty == null || capacitiesProperty.isBlank()) {
+            return;
+        }
+        for (String entry : capacitiesProperty.split(",")) {
+            int separator = entry.lastIndexOf(':');
+            if (separator <= 0) {
+                log.warn("Ignoring occupancy capacity '{}', expected name:units", entry.trim());
+                continue;
+            }
+            try {
+                capacities.put(MuscleGroupResolver.normalize(entry.substring(0, separator)),
+                        Integer.parseInt(entry.substring(separator + 1).trim()));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring occupancy capacity '{}', expected name:units", entry.trim());
+            }
+        }
+    }
+
+    public CheckIn checkIn(GymEquipment equipment) {
+        String sessionId = UUID.randomUUID().toString();
+        long now = System.currentTimeMillis();
+        EquipmentOccupancy occupancy = jdbcTemplate.queryForObject(CHECK_IN_SQL, (rs, i) -> snapshot(equipment, rs),
+                sessionId, equipment.getId(), now, equipment.getId(), defaultSessionMinutes * 60_000.0, now);
+        checkIns.increment();
+        touch(equipment.getId());
+        return new CheckIn(sessionId, occupancy);
+    }
+
+    /**
+     * End a session. Without a session id the oldest open session on the
+     * equipment is ended instead, which frees the slot but teaches the wait
+     * estimate nothing, since that may not be the member who left.
+     */
+    public EquipmentOccupancy checkOut(GymEquipment equipment, String sessionId) {
+        long now = System.currentTimeMillis();
+        List<EquipmentOccupancy> updated;
+        if (sessionId != null && !sessionId.isBlank()) {
+            updated = jdbcTemplate.query(CHECK_OUT_SQL, (rs, i) -> snapshot(equipment, rs),
+                    sessionId, equipment.getId(), SESSION_ALPHA, now, now, equipment.getId());
+            if (updated.isEmpty()) {
+                throw new IllegalArgumentException("Unknown session for " + equipment.getName() + ": " + sessionId);
+            }
+        } else {
+            updated = jdbcTemplate.query(CHECK_OUT_OLDEST_SQL, (rs, i) -> snapshot(equipment, rs),
+                    equipment.getId(), now);
+            if (updated.isEmpty()) {
+                return getOccupancy(equipment);
+            }
+        }
+        checkOuts.increment();
+        touch(equipment.getId());
+        return updated.get(0);
+    }
+
+    public EquipmentOccupancy getOccupancy(GymEquipment equipment) {
+        List<EquipmentOccupancy> found = jdbcTemplate.query(
+                "SELECT in_use, average_session_ms, updated_at FROM occupancy_counters WHERE equipment_id = ?",
+                (rs, i) -> snapshot(equipment, rs), equipment.getId());
+        return found.isEmpty()
+                ? snapshot(equipment.getId(), equipment.getName(), 0, defaultSessionMinutes * 60_000.0, 0)
+                : found.get(0);
+    }
+
+    public List<EquipmentOccupancy> getAllOccupancy() {
+        return jdbcTemplate.query(SELECT_SQL + " ORDER BY e.name", this::snapshot);
+    }
+
+    private Map<Long, EquipmentOccupancy> findOccupancy(Collection<Long> equipmentIds) {
+        Map<Long, EquipmentOccupancy> found = new HashMap<>();
+        if (equipmentIds.isEmpty()) {
+            return found;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(equipmentIds.size(), "?"));
+        jdbcTemplate.query(SELECT_SQL + " WHERE c.equipment_id IN (" + placeholders + ")",
+                this::snapshot, equipmentIds.toArray())
+                .forEach(occupancy -> found.put(occupancy.getEquipmentId(), occupancy));
+        return found;
+    }
+
+    /**
+     * Fill in availability and reorder: free alternatives first in graph order,
+     * then taken ones by shortest wait. Alternatives outside the catalog
+     * (push-ups, outdoor running) need no equipment and count as free.
+     */
+    public List<EquipmentAlternative> preferFree(List<EquipmentAlternative> alternatives) {
+        List<EquipmentAlternative> ranked = new ArrayList<>(alternatives.size());
+        Map<Long, EquipmentOccupancy> occupancies = findOccupancy(alternatives.stream()
+                .map(EquipmentAlternative::getEquipmentId).filter(Objects::nonNull).distinct().toList());
+        for (EquipmentAlternative alternative : alternatives) {
+            EquipmentOccupancy occupancy = alternative.getEquipmentId() != null
+                    ? occupancies.get(alternative.getEquipmentId()) : null;
+            alternative.setAvailable(occupancy == null || occupancy.isAvailable());
+            alternative.setEstimatedWaitSeconds(occupancy != null ? occupancy.getEstimatedWaitSeconds() : 0L);
+            ranked.add(alternative);
+        }
+        ranked.sort(Comparator.comparing((EquipmentAlternative alternative) -> !alternative.getAvailable())
+                .thenComparing(EquipmentAlternative::getEstimatedWaitSeconds));
+        return ranked;
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMinutes * 60_000);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+        try {
+            emitter.send(SseEmitter.event().name("snapshot").data(getAllOccupancy()));
+        } catch (IOException e) {
+            emitters.remove(emitter);
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    /**
+     * Push the equipment that changed since the last run to every subscriber,
+     * and tell the other nodes about the changes made here
+     */
+    @Scheduled(fixedDelayString = "${occupancy.publish-interval-ms:1000}")
+    public void publishChanges() {
+        for (Iterator<Long> it = announce.iterator(); it.hasNext(); ) {
+            Long equipmentId = it.next();
+            it.remove();
+            cacheCoherenceBus.publish(CacheCoherenceBus.OCCUPANCY, equipmentId);
+        }
+        boolean all = changedAll;
+        if ((!all && changed.isEmpty()) || emitters.isEmpty()) {
+            changed.clear();
+            changedAll = false;
+            return;
+        }
+        List<Long> ids = new ArrayList<>(changed);
+        changed.removeAll(ids);
+        changedAll = false;
+
+        List<EquipmentOccupancy> updates = all ? getAllOccupancy() : new ArrayList<>(findOccupancy(ids).values());
+        if (updates.isEmpty()) {
+            return;
+        }
+        String name = all ? "snapshot" : "occupancy";
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name(name).data(updates));
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+            }
+        }
+    }
+
+    @EventListener
+    public void onRemoteInvalidation(RemoteInvalidationEvent event) {
+        if (!CacheCoherenceBus.OCCUPANCY.equals(event.topic())) {
+            return;
+        }
+        try {
+            changed.add(Long.parseLong(event.key()));
+        } catch (NumberFormatException e) {
+            changedAll = true;
+        }
+    }
+
+    @EventListener
+    public void onResync(CacheResyncEvent event) {
+        // Changes from other nodes may have been missed while disconnected
+        changedAll = true;
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void expireSessions() {
+        long now = System.currentTimeMillis();
+        long cutoff = now - maxSessionMinutes * 60_000L;
+        jdbcTemplate.query(EXPIRE_SQL, rs -> {
+            touch(rs.getLong("equipment_id"));
+            expired.add(rs.getLong("n"));
+        }, cutoff, now);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Object> counts = jdbcTemplate.queryForMap(
+                "SELECT (SELECT COUNT(*) FROM occupancy_counters) AS equipment, " +
+                "(SELECT COUNT(*) FROM occupancy_sessions) AS sessions");
+        stats.put("equipment", ((Number) counts.get("equipment")).longValue());
+        stats.put("openSessions", ((Number) counts.get("sessions")).longValue());
+        stats.put("subscribers", emitters.size());
+        stats.put("checkIns", checkIns.sum());
+        stats.put("checkOuts", checkOuts.sum());
+        stats.put("expiredSessions", expired.sum());
+        return stats;
+    }
+
+    private EquipmentOccupancy snapshot(GymEquipment equipment, ResultSet rs) throws SQLException {
+        return snapshot(equipment.getId(), equipment.getName(), rs.getLong("in_use"),
+                rs.getDouble("average_session_ms"), rs.getLong("updated_at"));
+    }
+
+    private EquipmentOccupancy snapshot(ResultSet rs, int rowNum) throws SQLException {
+        return snapshot(rs.getLong("equipment_id"), rs.getString("name"), rs.getLong("in_use"),
+                rs.getDouble("average_session_ms"), rs.getLong("updated_at"));
+    }
+
+    private EquipmentOccupancy snapshot(long equipmentId, String name, long used, double average, long updatedAt) {
+        int capacity = Math.max(1, capacities.getOrDefault(MuscleGroupResolver.normalize(name), defaultCapacity));
+        long waitMs = 0;
+        if (used >= capacity) {
+            // The first of `capacity` running sessions ends after about average / (capacity + 1);
+            // everyone beyond capacity is queued ahead and takes average / capacity each
+            waitMs = (long) (average / (capacity + 1) + (used - capacity) * average / capacity);
+        }
+        return new EquipmentOccupancy(equipmentId, name, used, capacity, used < capacity,
+                waitMs / 1000, (long) average / 1000, updatedAt);
+    }
+
+    private void touch(long equipmentId) {
+        changed.add(equipmentId);
+        announce.add(equipmentId);
+    }
+}
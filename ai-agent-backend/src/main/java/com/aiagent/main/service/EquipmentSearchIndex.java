@@ -0,0 +1,206 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.GymEquipment;
+import com.aiagent.main.repository.GymEquipmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Fuzzy equipment search over an in-memory trigram index.
+ *
+ * Name, primary muscles and description are folded to lower-case letters and
+ * digits with spaces removed, so "benchpress" and "Bench Press" produce the
+ * same trigrams, and each field gets its own posting lists. A query scores a
+ * row by the share of its trigrams found in each field, weighted by field.
+ * A query that is a substring of a field always scores the full weight for
+ * that field, so every row the old LIKE search found is still found.
+ * Like the muscle group index, the whole index is rebuilt and swapped in when
+ * the catalog changes.
+ */
+@Service
+@Slf4j
+public class EquipmentSearchIndex {
+
+    public enum Field {
+        NAME(1.0),
+        MUSCLES(0.6),
+        DESCRIPTION(0.4);
+
+        private final double weight;
+
+        Field(double weight) {
+            this.weight = weight;
+        }
+    }
+
+    // Rows scoring below this (name-only typo match of ~1/3) are dropped
+    private static final double MIN_SCORE = 0.3;
+
+    private final GymEquipmentRepository gymEquipmentRepository;
+
+    private volatile Index index;
+
+    public EquipmentSearchIndex(GymEquipmentRepository gymEquipmentRepository) {
+        this.gymEquipmentRepository = gymEquipmentRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        refresh();
+    }
+
+    @EventListener
+    public void onCatalogChanged(EquipmentCatalogChangedEvent event) {
+        log.info("Equipment catalog changed ({}), rebuilding search index", event.reason());
+        refresh(event.snapshot().equipment());
+    }
+
+    /**
+     * Rebuild the index from the current catalog and swap it in
+     */
+    public void refresh() {
+        refresh(gymEquipmentRepository.findAll());
+    }
+
+    public void refresh(List<GymEquipment> catalog) {
+        Index built = new Index(catalog);
+        index = built;
+        log.info("Equipment search index built with {} trigrams from {} equipment",
+                built.postings.values().stream().mapToInt(Map::size).sum(), catalog.size());
+    }
+
+    /**
+     * Equipment matching the query in any field, best match first
+     */
+    public List<GymEquipment> search(String query, int limit) {
+        return search(query, EnumSet.allOf(Field.class), limit);
+    }
+
+    public List<GymEquipment> search(String query, Set<Field> fields, int limit) {
+        if (query == null || limit <= 0) {
+            return List.of();
+        }
+        String folded = fold(query);
+        if (folded.isEmpty()) {
+            return List.of();
+        }
+        Index current = index;
+        if (current == null) {
+            refresh();
+            current = index;
+        }
+        return current.search(folded, fields, limit);
+    }
+
+    /**
+     * Lower-case letters and digits only, e.g. "Pull-up Bar" -> "pullupbar"
+     */
+    static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder folded = new StringBuilder(text.length());
+        text.toLowerCase(Locale.ROOT).codePoints()
+                .filter(Character::isLetterOrDigit)
+                .forEach(folded::appendCodePoint);
+        return folded.toString();
+    }
+
+    static Set<String> trigrams(String folded) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= folded.length(); i++) {
+            trigrams.add(folded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Immutable snapshot of the catalog, safe to share between request threads
+     */
+    private static final class Index {
+
+        private final GymEquipment[] rows;
+        private final String[][] texts;
+        private final Map<Field, Map<String, int[]>> postings = new EnumMap<>(Field.class);
+
+        Index(List<GymEquipment> catalog) {
+            rows = catalog.stream().filter(e -> e.getName() != null).toArray(GymEquipment[]::new);
+            texts = new String[Field.values().length][rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                texts[Field.NAME.ordinal()][i] = fold(rows[i].getName());
+                texts[Field.MUSCLES.ordinal()][i] = fold(rows[i].getPrimaryMuscles());
+                texts[Field.DESCRIPTION.ordinal()][i] = fold(rows[i].getDescription());
+            }
+
+            for (Field field : Field.values()) {
+                Map<String, List<Integer>> building = new HashMap<>();
+                String[] fieldTexts = texts[field.ordinal()];
+                for (int i = 0; i < rows.length; i++) {
+                    for (String trigram : trigrams(fieldTexts[i])) {
+                        building.computeIfAbsent(trigram, k -> new ArrayList<>()).add(i);
+                    }
+                }
+                Map<String, int[]> packed = new HashMap<>(building.size() * 4 / 3 + 1);
+                building.forEach((trigram, ids) -> packed.put(trigram,
+                        ids.stream().mapToInt(Integer::intValue).toArray()));
+                postings.put(field, packed);
+            }
+        }
+
+        List<GymEquipment> search(String folded, Set<Field> fields, int limit) {
+            double[] scores = new double[rows.length];
+            Set<String> queryTrigrams = trigrams(folded);
+
+            for (Field field : fields) {
+                String[] fieldTexts = texts[field.ordinal()];
+                if (queryTrigrams.isEmpty()) {
+                    // One or two characters: no trigrams, plain substring match
+                    for (int i = 0; i < rows.length; i++) {
+                        if (fieldTexts[i].contains(folded)) {
+                            scores[i] += field.weight;
+                        }
+                    }
+                    continue;
+                }
+
+                int[] shared = new int[rows.length];
+                for (String trigram : queryTrigrams) {
+                    int[] ids = postings.get(field).get(trigram);
+                    if (ids != null) {
+                        for (int id : ids) {
+                            shared[id]++;
+                        }
+                    }
+                }
+                for (int i = 0; i < rows.length; i++) {
+                    if (shared[i] == 0) {
+                        continue;
+                    }
+                    double similarity = shared[i] == queryTrigrams.size() && fieldTexts[i].contains(folded)
+                            ? 1.0
+                            // Missing trigrams may still be a typo, but never a full match
+                            : Math.min(0.95, (double) shared[i] / queryTrigrams.size());
+                    scores[i] += similarity * field.weight;
+                }
+            }
+
+            List<Integer> hits = new ArrayList<>();
+            for (int i = 0; i < rows.length; i++) {
+                if (scores[i] >= MIN_SCORE) {
+                    hits.add(i);
+                }
+            }
+            hits.sort(Comparator.<Integer>comparingDouble(i -> -scores[i])
+                    .thenComparing(i -> rows[i].getName()));
+            List<GymEquipment> results = new ArrayList<>(Math.min(limit, hits.size()));
+            for (int i = 0; i < hits.size() && i < limit; i++) {
+                results.add(rows[hits.get(i)]);
+            }
+            return results;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.CalendarEvent;
+import com.aiagent.main.entity.WeeklyPlan;
+import com.aiagent.main.entity.WeeklyPlanWorkout;
+import com.aiagent.main.entity.WorkoutScheduleRequest;
+import com.aiagent.main.repository.CalendarEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Free/busy view of a user's calendar and auto-scheduling of weekly plan
+ * sessions into free time.
+ *
+ * Busy time for a window (single events plus expanded recurring occurrences)
+ * is loaded with one query into an {@link IntervalTree}, so each candidate
+ * slot is checked in logarithmic time even for calendars with thousands of
+ * events.
+ */
+@Service
+@Slf4j
+public class FreeBusyService {
+
+    private static final Pattern MINUTES = Pattern.compile("(\\d+)\\s*(h|hr|hour|hours|m|min|mins|minutes)?", Pattern.CASE_INSENSITIVE);
+    private static final int DEFAULT_SESSION_MINUTES = 60;
+    private static final int MAX_SESSION_MINUTES = 150;
+    private static final int SLOT_STEP_MINUTES = 15;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO calendar_events (title, description, start_time, end_time, location, user_id, updated_at, source_ref) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final CalendarEventRepository calendarEventRepository;
+    private final CalendarService calendarService;
+    private final WeeklyPlanService weeklyPlanService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public FreeBusyService(CalendarEventRepository calendarEventRepository,
+                           CalendarService calendarService,
+                           WeeklyPlanService weeklyPlanService,
+                           JdbcTemplate jdbcTemplate,
+                           ApplicationEventPublisher eventPublisher) {
+        this.calendarEventRepository = calendarEventRepository;
+        this.calendarService = calendarService;
+        this.weeklyPlanService = weeklyPlanService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Free slots of at least minMinutes between start and end
+     */
+    public List<Map<String, Object>> findFreeSlots(Long userId, LocalDateTime start, LocalDateTime end, int minMinutes) {
+        IntervalTree busy = buildBusyTree(calendarEventRepository.findInWindow(userId, start, end), start, end);
+        List<Map<String, Object>> slots = new ArrayList<>();
+        for (long[] gap : busy.freeGaps(toMinutes(start), toMinutes(end), Math.max(1, minMinutes))) {
+            Map<String, Object> slot = new LinkedHashMap<>();
+            slot.put("start", fromMinutes(gap[0]));
+            slot.put("end", fromMinutes(gap[1]));
+            slot.put("minutes", gap[1] - gap[0]);
+            slots.add(slot);
+        }
+        return slots;
+    }
+
+    /**
+     * Place each training day of a plan into free calendar time and create
+     * the events in one batch. Days scheduled by an earlier run are skipped.
+     */
+    @Transactional
+    public Map<String, Object> autoSchedule(Long planId, Long userId, WorkoutScheduleRequest request) {
+        WeeklyPlan plan = weeklyPlanService.getPlanById(planId, userId)
+                .orElseThrow(() -> new RuntimeException("Plan not found"));
+        WorkoutScheduleRequest options = request != null ? request : new WorkoutScheduleRequest();
+        LocalTime earliest = LocalTime.parse(options.getEarliest());
+        LocalTime latest = LocalTime.parse(options.getLatest());
+        if (!latest.isAfter(earliest)) {
+            throw new RuntimeException("latest must be after earliest");
+        }
+        long buffer = Math.max(0, options.getBufferMinutes() != null ? options.getBufferMinutes() : 15);
+        long minGap = Math.max(0, options.getMinGapHours() != null ? options.getMinGapHours() : 12) * 60L;
+        long offset = options.getUtcOffsetMinutes() != null ? options.getUtcOffsetMinutes() : 0;
+        boolean allowShift = !Boolean.FALSE.equals(options.getAllowShift());
+
+        Map<Integer, List<WeeklyPlanWorkout>> sessions = plan.getWorkouts().stream()
+                .collect(Collectors.groupingBy(WeeklyPlanWorkout::getDayIndex, TreeMap::new, Collectors.toList()));
+
+        // One query for the whole week (plus a day either side for time zone shifts)
+        LocalDateTime windowStart = plan.getStartDate().minusDays(1).atStartOfDay();
+        LocalDateTime windowEnd = plan.getEndDate().plusDays(2).atStartOfDay();
+        List<CalendarEvent> events = calendarEventRepository.findInWindow(userId, windowStart, windowEnd);
+        IntervalTree busy = buildBusyTree(events, windowStart, windowEnd);
+
+        String refPrefix = "plan:" + planId + ":day:";
+        Set<Integer> alreadyScheduled = new HashSet<>();
+        for (CalendarEvent event : events) {
+            if (event.getSourceRef() != null && event.getSourceRef().startsWith(refPrefix)) {
+                alreadyScheduled.add(Integer.parseInt(event.getSourceRef().substring(refPrefix.length())));
+            }
+        }
+
+        List<long[]> booked = new ArrayList<>();
+        List<Map<String, Object>> scheduled = new ArrayList<>();
+        List<Integer> unscheduled = new ArrayList<>();
+        Set<Integer> usedDays = new HashSet<>(sessions.keySet());
+
+        for (Map.Entry<Integer, List<WeeklyPlanWorkout>> session : sessions.entrySet()) {
+            int dayIndex = session.getKey();
+            if (alreadyScheduled.contains(dayIndex)) {
+                continue;
+            }
+            long duration = sessionMinutes(session.getValue());
+
+            long[] slot = null;
+            int placedOn = dayIndex;
+            for (int day = dayIndex; day <= 6 && slot == null; day++) {
+                if (day != dayIndex && (!allowShift || usedDays.contains(day))) {
+                    continue;
+                }
+                LocalDate date = plan.getStartDate().plusDays(day);
+                long dayStart = toMinutes(date.atTime(earliest)) - offset;
+                long dayEnd = toMinutes(date.atTime(latest)) - offset;
+                slot = firstFit(busy, booked, dayStart, dayEnd, duration, buffer, minGap);
+                placedOn = day;
+            }
+
+            if (slot == null) {
+                unscheduled.add(dayIndex);
+                continue;
+            }
+            if (placedOn != dayIndex) {
+                usedDays.add(placedOn);
+            }
+            booked.add(slot);
+            busy.withExtra(slot[0], slot[1]);
+
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("dayIndex", dayIndex);
+            item.put("scheduledDayIndex", placedOn);
+            item.put("title", sessionTitle(session.getValue()));
+            item.put("description", sessionDescription(session.getValue()));
+            item.put("startTime", fromMinutes(slot[0]));
+            item.put("endTime", fromMinutes(slot[1]));
+            item.put("sourceRef", refPrefix + dayIndex);
+            scheduled.add(item);
+        }
+
+        insertEvents(userId, scheduled);
+        log.info("Auto-scheduled plan {} for user {}: {} sessions placed, {} unplaced, {} busy intervals",
+                planId, userId, scheduled.size(), unscheduled.size(), busy.size());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("scheduled", scheduled);
+        response.put("unscheduled", unscheduled);
+        response.put("alreadyScheduled", alreadyScheduled);
+        return response;
+    }
+
+    /**
+     * Earliest start on the 15-minute grid within [dayStart, dayEnd) that is
+     * free with buffers and far enough from sessions booked in this run
+     */
+    private long[] firstFit(IntervalTree busy, List<long[]> booked, long dayStart, long dayEnd,
+                            long duration, long buffer, long minGap) {
+        // Candidates: the start of the day and the end of every busy interval (plus buffer)
+        TreeSet<Long> candidates = new TreeSet<>();
+        candidates.add(roundUp(dayStart));
+        for (long[] interval : busy.overlapping(dayStart - buffer, dayEnd)) {
+            candidates.add(roundUp(interval[1] + buffer));
+        }
+        for (long start : candidates) {
+            long end = start + duration;
+            if (start < dayStart || end > dayEnd) {
+                continue;
+            }
+            if (!busy.isFree(start - buffer, end + buffer)) {
+                continue;
+            }
+            boolean spaced = true;
+            for (long[] other : booked) {
+                if (!(start >= other[1] + minGap || end + minGap <= other[0])) {
+                    spaced = false;
+                    break;
+                }
+            }
+            if (spaced) {
+                return new long[]{start, end};
+            }
+        }
+        return null;
+    }
+
+    private IntervalTree buildBusyTree(List<CalendarEvent> events, LocalDateTime start, LocalDateTime end) {
+        List<long[]> intervals = new ArrayList<>();
+        for (CalendarEvent event : events) {
+            calendarService.forEachOccurrence(event, start, end, (occurrenceStart, occurrenceEnd) ->
+                    intervals.add(new long[]{toMinutes(occurrenceStart), toMinutes(occurrenceEnd)}));
+        }
+        return new IntervalTree(intervals);
+    }
+
+    private void insertEvents(Long userId, List<Map<String, Object>> scheduled) {
+        if (scheduled.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Map<String, Object> item = scheduled.get(i);
+                        ps.setString(1, (String) item.get("title"));
+                        ps.setString(2, (String) item.get("description"));
+                        ps.setTimestamp(3, Timestamp.valueOf((LocalDateTime) item.get("startTime")));
+                        ps.setTimestamp(4, Timestamp.valueOf((LocalDateTime) item.get("endTime")));
+                        ps.setString(5, "");
+                        ps.setLong(6, userId);
+                        ps.setTimestamp(7, now);
+                        ps.setString(8, (String) item.get("sourceRef"));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return scheduled.size();
+                    }
+                },
+                keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < scheduled.size() && i < keys.size(); i++) {
+            long eventId = ((Number) keys.get(i).get("id")).longValue();
+            scheduled.get(i).put("eventId", eventId);
+            // Listeners (reminders) run once autoSchedule commits, as for CalendarService writes
+            eventPublisher.publishEvent(new CalendarEventChangedEvent(eventId));
+        }
+    }
+
+    /**
+     * Session length from the workouts' durations, or about three minutes per set
+     */
+    private static long sessionMinutes(List<WeeklyPlanWorkout> workouts) {
+        long total = 0;
+        for (WeeklyPlanWorkout workout : workouts) {
+            Long minutes = parseMinutes(workout.getDuration());
+            if (minutes != null) {
+                total += minutes;
+            } else if (workout.getSets() != null) {
+                total += workout.getSets() * 3L;
+            }
+        }
+        return total > 0 ? Math.min(MAX_SESSION_MINUTES, Math.max(20, total)) : DEFAULT_SESSION_MINUTES;
+    }
+
+    private static Long parseMinutes(String duration) {
+        if (duration == null) {
+            return null;
+        }
+        Matcher matcher = MINUTES.matcher(duration);
+        if (!matcher.find()) {
+            return null;
+        }
+        long value = Long.parseLong(matcher.group(1));
+        String unit = matcher.group(2);
+        return unit != null && unit.toLowerCase(Locale.ROOT).startsWith("h") ? value * 60 : value;
+    }
+
+    private static String sessionTitle(List<WeeklyPlanWorkout> workouts) {
+        String title = "Workout: " + workouts.stream().map(WeeklyPlanWorkout::getWorkoutName).collect(Collectors.joining(", "));
+        return title.length() > 200 ? title.substring(0, 197) + "..." : title;
+    }
+
+    private static String sessionDescription(List<WeeklyPlanWorkout> workouts) {
+        StringBuilder description = new StringBuilder();
+        for (WeeklyPlanWorkout workout : workouts) {
+            description.append(workout.getWorkoutName());
+            if (workout.getSets() != null && workout.getReps() != null) {
+                description.append(" - ").append(workout.getSets()).append("x").append(workout.getReps());
+            }
+            if (workout.getWeight() != null) {
+                description.append(" @ ").append(workout.getWeight());
+            }
+            if (workout.getDuration() != null) {
+                description.append(" (").append(workout.getDuration()).append(")");
+            }
+            description.append(System.lineSeparator());
+        }
+        return description.toString().trim();
+    }
+
+    private static long roundUp(long minutes) {
+        return Math.floorDiv(minutes + SLOT_STEP_MINUTES - 1, SLOT_STEP_MINUTES) * SLOT_STEP_MINUTES;
+    }
+
+    private static long toMinutes(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private static LocalDateTime fromMinutes(long minutes) {
+        return LocalDateTime.ofEpochSecond(minutes * 60, 0, ZoneOffset.UTC);
+    }
+}
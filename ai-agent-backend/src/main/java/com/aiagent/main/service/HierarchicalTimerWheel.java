@@ -0,0 +1,157 @@
+package com.aiagent.main.service;
+
+import java.util.*;
+
+/**
+ * Hierarchical timing wheel. Level 0 has one slot per tick, and every higher
+ * level has one slot per full turn of the level below it. With a 1 s tick and
+ * sizes {60, 60, 24}, that is seconds, minutes and hours, covering one day.
+ * Timers further out wait in an overflow map until the top level can hold
+ * them.
+ *
+ * Scheduling and cancelling are O(1). Advancing costs O(1) per tick plus
+ * re-slotting the entries of a higher-level slot once when its turn comes.
+ * Timers fire at the start of their tick, so at most one tick early.
+ *
+ * Not thread-safe; callers synchronize.
+ */
+public class HierarchicalTimerWheel<T> {
+
+    private record Timer<T>(String key, long fireAt, T payload) {
+    }
+
+    private final long tickMs;
+    private final int[] sizes;
+    private final long[] slotSpans;
+    private final List<List<Map<String, Timer<T>>>> levels = new ArrayList<>();
+    private final TreeMap<Long, Map<String, Timer<T>>> overflow = new TreeMap<>();
+    private final Map<String, Timer<T>> timers = new HashMap<>();
+    private final Map<String, Map<String, Timer<T>>> location = new HashMap<>();
+
+    private long currentTick;
+
+    public HierarchicalTimerWheel(long tickMs, int[] sizes, long startMs) {
+        this.tickMs = tickMs;
+        this.sizes = sizes.clone();
+        this.slotSpans = new long[sizes.length];
+        long span = 1;
+        for (int level = 0; level < sizes.length; level++) {
+            slotSpans[level] = span;
+            span *= sizes[level];
+            List<Map<String, Timer<T>>> slots = new ArrayList<>(sizes[level]);
+            for (int i = 0; i < sizes[level]; i++) {
+                slots.add(new HashMap<>());
+            }
+            levels.add(slots);
+        }
+        this.currentTick = startMs / tickMs;
+    }
+
+    /**
+     * Schedule (or reschedule) a timer. Returns false, without keeping it,
+     * when fireAt is already due; the caller should fire it right away.
+     */
+    public boolean schedule(String key, long fireAtMs, T payload) {
+        cancel(key);
+        long fireTick = fireAtMs / tickMs;
+        if (fireTick < currentTick) {
+            return false;
+        }
+        place(new Timer<>(key, fireTick, payload));
+        return true;
+    }
+
+    public boolean cancel(String key) {
+        Timer<T> timer = timers.remove(key);
+        if (timer == null) {
+            return false;
+        }
+        Map<String, Timer<T>> slot = location.remove(key);
+        if (slot != null) {
+            slot.remove(key);
+        }
+        return true;
+    }
+
+    public boolean contains(String key) {
+        return timers.containsKey(key);
+    }
+
+    public int size() {
+        return timers.size();
+    }
+
+    /**
+     * Move the wheel up to nowMs and return the payloads that became due, in firing order
+     */
+    public List<T> advance(long nowMs) {
+        List<T> due = new ArrayList<>();
+        long targetTick = nowMs / tickMs;
+        while (currentTick <= targetTick) {
+            // Higher levels first, so cascaded timers can still land in this tick's slot
+            for (int level = sizes.length - 1; level >= 1; level--) {
+                if (currentTick % slotSpans[level] == 0) {
+                    cascade(level);
+                }
+            }
+            if (currentTick % (slotSpans[sizes.length - 1] * sizes[sizes.length - 1]) == 0) {
+                pullOverflow();
+            }
+
+            Map<String, Timer<T>> slot = levels.get(0).get((int) (currentTick % sizes[0]));
+            if (!slot.isEmpty()) {
+                List<Timer<T>> expired = new ArrayList<>(slot.values());
+                slot.clear();
+                expired.sort(Comparator.comparingLong(Timer::fireAt));
+                for (Timer<T> timer : expired) {
+                    timers.remove(timer.key());
+                    location.remove(timer.key());
+                    due.add(timer.payload());
+                }
+            }
+            currentTick++;
+        }
+        return due;
+    }
+
+    private void place(Timer<T> timer) {
+        timers.put(timer.key(), timer);
+        long delta = timer.fireAt() - currentTick;
+        for (int level = 0; level < sizes.length; level++) {
+            if (delta < slotSpans[level] * sizes[level]) {
+                Map<String, Timer<T>> slot = levels.get(level).get((int) ((timer.fireAt() / slotSpans[level]) % sizes[level]));
+                slot.put(timer.key(), timer);
+                location.put(timer.key(), slot);
+                return;
+            }
+        }
+        Map<String, Timer<T>> bucket = overflow.computeIfAbsent(timer.fireAt(), k -> new HashMap<>());
+        bucket.put(timer.key(), timer);
+        location.put(timer.key(), bucket);
+    }
+
+    private void cascade(int level) {
+        Map<String, Timer<T>> slot = levels.get(level).get((int) ((currentTick / slotSpans[level]) % sizes[level]));
+        if (slot.isEmpty()) {
+            return;
+        }
+        List<Timer<T>> moving = new ArrayList<>(slot.values());
+        slot.clear();
+        for (Timer<T> timer : moving) {
+            location.remove(timer.key());
+            place(timer);
+        }
+    }
+
+    private void pullOverflow() {
+        long top = sizes.length - 1;
+        long horizon = currentTick + slotSpans[(int) top] * sizes[(int) top];
+        while (!overflow.isEmpty() && overflow.firstKey() < horizon) {
+            Map<String, Timer<T>> bucket = overflow.pollFirstEntry().getValue();
+            for (Timer<T> timer : bucket.values()) {
+                location.remove(timer.key());
+                place(timer);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.aiagent.main.service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal iCalendar (RFC 5545) content writer: CRLF line endings and folding
+ * of content lines longer than 75 octets, never splitting a UTF-8 sequence.
+ */
+public class IcsWriter implements Flushable {
+
+    private static final int MAX_LINE_OCTETS = 75;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] FOLD = {'\r', '\n', ' '};
+
+    private final OutputStream out;
+
+    public IcsWriter(OutputStream out) {
+        this.out = out instanceof BufferedOutputStream ? out : new BufferedOutputStream(out, 8192);
+    }
+
+    /**
+     * Write "NAME:value" with the value already escaped where needed
+     */
+    public IcsWriter property(String name, String value) throws IOException {
+        return line(name + ":" + value);
+    }
+
+    /**
+     * Write a TEXT property, escaping backslash, comma, semicolon and newlines
+     */
+    public IcsWriter text(String name, String value) throws IOException {
+        return property(name, escapeText(value));
+    }
+
+    public IcsWriter line(String line) throws IOException {
+        int octets = 0;
+        int i = 0;
+        while (i < line.length()) {
+            int codePoint = line.codePointAt(i);
+            int width = utf8Length(codePoint);
+            if (octets + width > MAX_LINE_OCTETS) {
+                out.write(FOLD);
+                // The leading space of a continuation line counts towards its length
+                octets = 1;
+            }
+            int next = i + Character.charCount(codePoint);
+            out.write(line.substring(i, next).getBytes(StandardCharsets.UTF_8));
+            octets += width;
+            i = next;
+        }
+        out.write(CRLF);
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    public static String escapeText(String text) {
+        if (text == null) return "";
+        return text.replace("\\", "\\\\")
+                  .replace(",", "\\,")
+                  .replace(";", "\\;")
+                  .replace("\n", "\\n")
+                  .replace("\r", "");
+    }
+
+    private static int utf8Length(int codePoint) {
+        if (codePoint < 0x80) return 1;
+        if (codePoint < 0x800) return 2;
+        if (codePoint < 0x10000) return 3;
+        return 4;
+    }
+}
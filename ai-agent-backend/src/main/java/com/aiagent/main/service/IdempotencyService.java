@@ -0,0 +1,213 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.IdempotencyRecord;
+import com.aiagent.main.repository.IdempotencyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Store behind the Idempotency-Key header.
+ *
+ * The first request with a key inserts an IN_PROGRESS row; the unique
+ * constraint on the key makes that the single winner across all nodes.
+ * Duplicates then wait for the winner to finish and replay its stored
+ * response. Waiters on the same node are woken directly, others poll.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private static final long MIN_POLL_MILLIS = 50;
+    private static final long MAX_POLL_MILLIS = 1000;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+
+    // Claims held by this node, so local duplicates do not have to poll the database
+    private final ConcurrentHashMap<String, CountDownLatch> localClaims = new ConcurrentHashMap<>();
+
+    @Value("${idempotency.ttl-hours:24}")
+    private int ttlHours;
+
+    @Value("${idempotency.lock-seconds:300}")
+    private int lockSeconds;
+
+    @Value("${idempotency.wait-timeout-seconds:120}")
+    private int waitTimeoutSeconds;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+    }
+
+    public enum ClaimStatus {
+        // Caller owns the key and must call complete() or release()
+        ACQUIRED,
+        // A previous request finished; replay the stored response
+        REPLAY,
+        // The key was already used for a different request
+        MISMATCH,
+        // The original request is still running after the wait timeout
+        IN_PROGRESS
+    }
+
+    public record Claim(ClaimStatus status, IdempotencyRecord stored) {
+    }
+
+    /**
+     * Claim a key for a request, waiting for a concurrent duplicate to finish if needed
+     */
+    public Claim claim(String key, String fingerprint) {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(waitTimeoutSeconds);
+        long pollMillis = MIN_POLL_MILLIS;
+
+        while (true) {
+            if (tryInsert(key, fingerprint)) {
+                localClaims.put(key, new CountDownLatch(1));
+                return new Claim(ClaimStatus.ACQUIRED, null);
+            }
+
+            Optional<IdempotencyRecord> existingOpt = idempotencyRecordRepository.findByIdempotencyKey(key);
+            if (existingOpt.isEmpty()) {
+                // Released or purged between our insert and lookup
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("Could not claim idempotency key " + key);
+                }
+                continue;
+            }
+            IdempotencyRecord existing = existingOpt.get();
+            LocalDateTime now = LocalDateTime.now();
+
+            if (!existing.getFingerprint().equals(fingerprint)) {
+                return new Claim(ClaimStatus.MISMATCH, existing);
+            }
+            boolean expired = existing.getExpiresAt().isBefore(now);
+            boolean abandoned = IdempotencyRecord.IN_PROGRESS.equals(existing.getStatus())
+                    && existing.getLockedUntil() != null && existing.getLockedUntil().isBefore(now);
+            if (expired || abandoned) {
+                log.warn("Taking over stale idempotency key {} (expired={}, abandoned={})", key, expired, abandoned);
+                idempotencyRecordRepository.deleteIfStale(key, existing.getCreatedAt(), now);
+                continue;
+            }
+            if (IdempotencyRecord.COMPLETED.equals(existing.getStatus())) {
+                return new Claim(ClaimStatus.REPLAY, existing);
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return new Claim(ClaimStatus.IN_PROGRESS, existing);
+            }
+            awaitOwner(key, Math.min(pollMillis, remaining));
+            pollMillis = Math.min(pollMillis * 2, MAX_POLL_MILLIS);
+        }
+    }
+
+    /**
+     * Store the final response for a claimed key
+     */
+    public void complete(String key, int responseStatus, String contentType, byte[] body) {
+        try {
+            idempotencyRecordRepository.complete(key, responseStatus, contentType, compress(body));
+        } finally {
+            wakeWaiters(key);
+        }
+    }
+
+    /**
+     * Give up a claimed key so a retry can run the request again
+     */
+    public void release(String key) {
+        try {
+            idempotencyRecordRepository.deleteByKey(key);
+        } finally {
+            wakeWaiters(key);
+        }
+    }
+
+    public byte[] responseBody(IdempotencyRecord stored) {
+        return decompress(stored.getResponseBody());
+    }
+
+    @Scheduled(cron = "${idempotency.purge-cron:0 15 * * * *}")
+    public void purgeExpired() {
+        int removed = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (removed > 0) {
+            log.info("Purged {} expired idempotency keys", removed);
+        }
+    }
+
+    private boolean tryInsert(String key, String fingerprint) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord claim = new IdempotencyRecord();
+        claim.setIdempotencyKey(key);
+        claim.setFingerprint(fingerprint);
+        claim.setStatus(IdempotencyRecord.IN_PROGRESS);
+        claim.setCreatedAt(now);
+        claim.setLockedUntil(now.plusSeconds(lockSeconds));
+        claim.setExpiresAt(now.plusHours(ttlHours));
+        try {
+            idempotencyRecordRepository.save(claim);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    private void awaitOwner(String key, long millis) {
+        try {
+            CountDownLatch latch = localClaims.get(key);
+            if (latch != null) {
+                latch.await(millis, TimeUnit.MILLISECONDS);
+            } else {
+                Thread.sleep(millis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for idempotent request", e);
+        }
+    }
+
+    private void wakeWaiters(String key) {
+        CountDownLatch latch = localClaims.remove(key);
+        if (latch != null) {
+            latch.countDown();
+        }
+    }
+
+    private static byte[] compress(byte[] body) {
+        if (body == null || body.length == 0) {
+            return new byte[0];
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] stored) {
+        if (stored == null || stored.length == 0) {
+            return new byte[0];
+        }
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(stored))) {
+            return gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
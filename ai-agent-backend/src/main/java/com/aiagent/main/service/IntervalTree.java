@@ -0,0 +1,143 @@
+package com.aiagent.main.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Static interval tree over half-open [start, end) intervals in epoch minutes.
+ *
+ * Intervals are sorted by start and viewed as an implicit balanced BST (the
+ * middle element of every range is its root); each node keeps the largest end
+ * in its subtree. Building costs O(n log n), an overlap test O(log n) and
+ * collecting k overlaps O(log n + k). New intervals are not inserted in place:
+ * scheduling adds its few picks to a side list instead (see {@link #withExtra}).
+ */
+public class IntervalTree {
+
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnd;
+    private final List<long[]> extra = new ArrayList<>();
+
+    public IntervalTree(List<long[]> intervals) {
+        long[][] sorted = intervals.stream()
+                .filter(i -> i[1] > i[0])
+                .sorted(Comparator.comparingLong((long[] i) -> i[0]))
+                .toArray(long[][]::new);
+        starts = new long[sorted.length];
+        ends = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            starts[i] = sorted[i][0];
+            ends[i] = sorted[i][1];
+        }
+        maxEnd = new long[sorted.length];
+        build(0, sorted.length - 1);
+    }
+
+    private long build(int lo, int hi) {
+        if (lo > hi) {
+            return Long.MIN_VALUE;
+        }
+        int mid = (lo + hi) >>> 1;
+        long max = Math.max(ends[mid], Math.max(build(lo, mid - 1), build(mid + 1, hi)));
+        maxEnd[mid] = max;
+        return max;
+    }
+
+    public int size() {
+        return starts.length + extra.size();
+    }
+
+    /**
+     * Record an interval added after the tree was built (e.g. a slot just booked)
+     */
+    public IntervalTree withExtra(long start, long end) {
+        extra.add(new long[]{start, end});
+        return this;
+    }
+
+    /**
+     * True when nothing overlaps [start, end)
+     */
+    public boolean isFree(long start, long end) {
+        for (long[] interval : extra) {
+            if (interval[0] < end && interval[1] > start) {
+                return false;
+            }
+        }
+        return !overlapsAny(0, starts.length - 1, start, end);
+    }
+
+    private boolean overlapsAny(int lo, int hi, long start, long end) {
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (maxEnd[mid] <= start) {
+                return false;
+            }
+            if (starts[mid] < end && ends[mid] > start) {
+                return true;
+            }
+            // Left subtree can still hold an interval reaching past start
+            if (overlapsAny(lo, mid - 1, start, end)) {
+                return true;
+            }
+            if (starts[mid] >= end) {
+                // Everything to the right starts even later
+                return false;
+            }
+            lo = mid + 1;
+        }
+        return false;
+    }
+
+    /**
+     * All intervals overlapping [start, end), sorted by start
+     */
+    public List<long[]> overlapping(long start, long end) {
+        List<long[]> result = new ArrayList<>();
+        collect(0, starts.length - 1, start, end, result);
+        for (long[] interval : extra) {
+            if (interval[0] < end && interval[1] > start) {
+                result.add(interval);
+            }
+        }
+        result.sort(Comparator.comparingLong((long[] i) -> i[0]));
+        return result;
+    }
+
+    private void collect(int lo, int hi, long start, long end, List<long[]> result) {
+        if (lo > hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (maxEnd[mid] <= start) {
+            return;
+        }
+        collect(lo, mid - 1, start, end, result);
+        if (starts[mid] < end && ends[mid] > start) {
+            result.add(new long[]{starts[mid], ends[mid]});
+        }
+        if (starts[mid] < end) {
+            collect(mid + 1, hi, start, end, result);
+        }
+    }
+
+    /**
+     * Free gaps of at least minLength inside [start, end)
+     */
+    public List<long[]> freeGaps(long start, long end, long minLength) {
+        List<long[]> gaps = new ArrayList<>();
+        long cursor = start;
+        for (long[] busy : overlapping(start, end)) {
+            if (busy[0] - cursor >= minLength) {
+                gaps.add(new long[]{cursor, busy[0]});
+            }
+            cursor = Math.max(cursor, busy[1]);
+        }
+        if (end - cursor >= minLength) {
+            gaps.add(new long[]{cursor, end});
+        }
+        return gaps;
+    }
+}
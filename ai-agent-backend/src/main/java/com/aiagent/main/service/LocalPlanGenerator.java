@@ -0,0 +1,354 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.*;
+import com.aiagent.main.repository.TrainingLogRepository;
+import com.aiagent.main.service.MuscleGroupResolver.MuscleGroup;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.util.*;
+
+/**
+ * Rule-based weekly plan generator. Builds a balanced split from the
+ * equipment catalog, the user's profile and the last four weeks of training
+ * logs without calling the AI model, so it answers in milliseconds and is
+ * fully deterministic for a given user, week and history.
+ *
+ * Rules in short:
+ * - training days follow recent frequency (3 to 6, capped at 4 from age 60)
+ * - strength groups never land on consecutive days, including the two days
+ *   before the plan starts
+ * - groups without volume in the history window get an extra exercise
+ * - sets/reps follow the training level, weights come from the latest log
+ */
+@Service
+@Slf4j
+public class LocalPlanGenerator {
+
+    private static final int HISTORY_DAYS = 28;
+
+    private static final int MAX_EXERCISES_PER_DAY = 5;
+
+    // Groups that need a day off before they are loaded again
+    private static final int RECOVERY_MASK = MuscleGroup.CHEST.bit() | MuscleGroup.BACK.bit()
+            | MuscleGroup.LEGS.bit() | MuscleGroup.SHOULDERS.bit() | MuscleGroup.ARMS.bit();
+
+    // Training day indexes per number of sessions, rest days spread out
+    private static final Map<Integer, int[]> TRAINING_DAYS = Map.of(
+            3, new int[]{0, 2, 4},
+            4, new int[]{0, 1, 3, 4},
+            5, new int[]{0, 1, 2, 4, 5},
+            6, new int[]{0, 1, 2, 3, 4, 5});
+
+    // Day focuses per number of sessions; the first group of a focus is its main group
+    private static final Map<Integer, List<List<MuscleGroup>>> SPLITS = Map.of(
+            3, List.of(
+                    List.of(MuscleGroup.CHEST, MuscleGroup.SHOULDERS, MuscleGroup.ARMS),
+                    List.of(MuscleGroup.LEGS, MuscleGroup.CORE),
+                    List.of(MuscleGroup.BACK, MuscleGroup.ARMS, MuscleGroup.CARDIO)),
+            4, List.of(
+                    List.of(MuscleGroup.CHEST, MuscleGroup.SHOULDERS),
+                    List.of(MuscleGroup.BACK, MuscleGroup.ARMS),
+                    List.of(MuscleGroup.LEGS, MuscleGroup.CORE),
+                    List.of(MuscleGroup.CARDIO, MuscleGroup.CORE)),
+            5, List.of(
+                    List.of(MuscleGroup.CHEST, MuscleGroup.ARMS),
+                    List.of(MuscleGroup.BACK),
+                    List.of(MuscleGroup.LEGS, MuscleGroup.CORE),
+                    List.of(MuscleGroup.SHOULDERS, MuscleGroup.ARMS),
+                    List.of(MuscleGroup.CARDIO, MuscleGroup.CORE)),
+            6, List.of(
+                    List.of(MuscleGroup.CHEST, MuscleGroup.ARMS),
+                    List.of(MuscleGroup.BACK),
+                    List.of(MuscleGroup.LEGS, MuscleGroup.CORE),
+                    List.of(MuscleGroup.SHOULDERS, MuscleGroup.ARMS),
+                    List.of(MuscleGroup.CARDIO, MuscleGroup.CORE),
+                    List.of(MuscleGroup.LEGS, MuscleGroup.CHEST)));
+
+    // Used when the catalog has nothing for a group
+    private static final Map<MuscleGroup, List<String>> BODYWEIGHT = Map.of(
+            MuscleGroup.CHEST, List.of("Push-ups"),
+            MuscleGroup.BACK, List.of("Inverted Rows"),
+            MuscleGroup.LEGS, List.of("Bodyweight Squats", "Walking Lunges"),
+            MuscleGroup.SHOULDERS, List.of("Pike Push-ups"),
+            MuscleGroup.ARMS, List.of("Bench Dips"),
+            MuscleGroup.CORE, List.of("Plank", "Dead Bug", "Hanging Leg Raises"),
+            MuscleGroup.CARDIO, List.of("Brisk Walk"),
+            MuscleGroup.FULL_BODY, List.of("Circuit Training"));
+
+    enum Level { BEGINNER, INTERMEDIATE, ADVANCED }
+
+    private final GymEquipmentService gymEquipmentService;
+    private final UserProfileService userProfileService;
+    private final TrainingLogRepository trainingLogRepository;
+    private final MuscleGroupResolver muscleGroupResolver;
+
+    public LocalPlanGenerator(GymEquipmentService gymEquipmentService,
+                              UserProfileService userProfileService,
+                              TrainingLogRepository trainingLogRepository,
+                              MuscleGroupResolver muscleGroupResolver) {
+        this.gymEquipmentService = gymEquipmentService;
+        this.userProfileService = userProfileService;
+        this.trainingLogRepository = trainingLogRepository;
+        this.muscleGroupResolver = muscleGroupResolver;
+    }
+
+    /**
+     * Build an unsaved plan for the week starting at startDate
+     */
+    public WeeklyPlan generate(User user, LocalDate startDate, LocalDate endDate) {
+        long started = System.nanoTime();
+        UserProfile profile = userProfileService.getByUserId(user.getId()).orElse(null);
+        List<TrainingLog> logs = trainingLogRepository.findByUserIdAndDateRange(
+                user.getId(), startDate.minusDays(HISTORY_DAYS), startDate.minusDays(1));
+        List<GymEquipment> catalog = gymEquipmentService.getAllEquipment();
+
+        History history = analyze(logs, startDate);
+        Level level = history.sessionsPerWeek < 1 ? Level.BEGINNER
+                : history.sessionsPerWeek < 4 ? Level.INTERMEDIATE : Level.ADVANCED;
+        Integer age = profile != null ? profile.getAge() : null;
+
+        int sessions = (int) Math.round(history.sessionsPerWeek);
+        sessions = Math.max(3, Math.min(6, sessions));
+        if (age != null && age >= 60) {
+            sessions = Math.min(sessions, 4);
+        }
+
+        int[] days = TRAINING_DAYS.get(sessions);
+        List<List<MuscleGroup>> focuses = arrange(SPLITS.get(sessions), days, history.recentMask);
+
+        WeeklyPlan plan = new WeeklyPlan();
+        plan.setUser(user);
+        plan.setStartDate(startDate);
+        plan.setEndDate(endDate);
+
+        // Same user and week always rotate to the same picks
+        long seed = user.getId() * 31 + startDate.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+        Set<String> usedThisWeek = new HashSet<>();
+
+        for (int i = 0; i < days.length; i++) {
+            List<MuscleGroup> focus = focuses.get(i);
+            int count = 0;
+            for (int g = 0; g < focus.size() && count < MAX_EXERCISES_PER_DAY; g++) {
+                MuscleGroup group = focus.get(g);
+                boolean main = g == 0;
+                int picks = main && group != MuscleGroup.CARDIO ? 2 : 1;
+                if (history.hasHistory && (history.setsByGroup.getOrDefault(group, 0) == 0) && group != MuscleGroup.CARDIO) {
+                    picks++;
+                }
+                for (int p = 0; p < picks && count < MAX_EXERCISES_PER_DAY; p++) {
+                    WeeklyPlanWorkout workout = pick(catalog, group, main, level, seed + i + p, usedThisWeek);
+                    if (workout == null) {
+                        break;
+                    }
+                    applyLoad(workout, group, main && p == 0, level, age, history);
+                    workout.setWeeklyPlan(plan);
+                    workout.setDayIndex(days[i]);
+                    workout.setCompleted(false);
+                    plan.getWorkouts().add(workout);
+                    count++;
+                }
+            }
+        }
+
+        log.info("Generated local plan for user {} in {} ms: {} sessions, level {}",
+                user.getId(), (System.nanoTime() - started) / 1_000_000, sessions, level);
+        return plan;
+    }
+
+    /**
+     * Summarize recent logs: frequency, per-group sets and what was trained just before the plan
+     */
+    private History analyze(List<TrainingLog> logs, LocalDate startDate) {
+        History history = new History();
+        Set<LocalDate> trainingDates = new HashSet<>();
+        for (TrainingLog entry : logs) {
+            trainingDates.add(entry.getWorkoutDate());
+            int mask = muscleGroupResolver.resolve(entry.getExerciseName());
+            int sets = entry.getSets() != null ? entry.getSets() : 1;
+            for (MuscleGroup group : MuscleGroup.values()) {
+                if ((mask & group.bit()) != 0) {
+                    history.setsByGroup.merge(group, sets, Integer::sum);
+                }
+            }
+            if (ChronoUnit.DAYS.between(entry.getWorkoutDate(), startDate) <= 2) {
+                history.recentMask |= mask;
+            }
+            // Logs come newest first, keep the latest weight per exercise
+            if (entry.getWeight() != null && entry.getWeight().compareTo(BigDecimal.ZERO) > 0) {
+                String weight = entry.getWeight().stripTrailingZeros().toPlainString();
+                // Rows synced without a unit: show the bare number rather than guess one
+                if (entry.getWeightUnit() != null && !entry.getWeightUnit().isBlank()) {
+                    weight += " " + entry.getWeightUnit();
+                }
+                history.lastWeight.putIfAbsent(MuscleGroupResolver.normalize(entry.getExerciseName()), weight);
+            }
+        }
+        history.hasHistory = !trainingDates.isEmpty();
+        history.sessionsPerWeek = trainingDates.size() / (HISTORY_DAYS / 7.0);
+        return history;
+    }
+
+    /**
+     * Order day focuses so no strength group is trained on consecutive days
+     */
+    private List<List<MuscleGroup>> arrange(List<List<MuscleGroup>> split, int[] days, int recentMask) {
+        List<List<MuscleGroup>> order = new ArrayList<>();
+        if (place(split, days, recentMask, new boolean[split.size()], order)) {
+            return order;
+        }
+        log.warn("No recovery-safe order for {} sessions, using default split order", split.size());
+        return split;
+    }
+
+    private boolean place(List<List<MuscleGroup>> split, int[] days, int recentMask,
+                          boolean[] used, List<List<MuscleGroup>> order) {
+        int position = order.size();
+        if (position == days.length) {
+            return true;
+        }
+        int previousMask = 0;
+        if (position > 0 && days[position] - days[position - 1] == 1) {
+            previousMask = mask(order.get(position - 1));
+        } else if (position == 0 && days[0] == 0) {
+            previousMask = recentMask;
+        }
+        for (int i = 0; i < split.size(); i++) {
+            if (used[i] || (mask(split.get(i)) & previousMask & RECOVERY_MASK) != 0) {
+                continue;
+            }
+            used[i] = true;
+            order.add(split.get(i));
+            if (place(split, days, recentMask, used, order)) {
+                return true;
+            }
+            order.remove(order.size() - 1);
+            used[i] = false;
+        }
+        return false;
+    }
+
+    private static int mask(List<MuscleGroup> focus) {
+        int mask = 0;
+        for (MuscleGroup group : focus) {
+            mask |= group.bit();
+        }
+        return mask;
+    }
+
+    /**
+     * Choose an exercise for a group, preferring unused equipment that suits the level
+     */
+    private WeeklyPlanWorkout pick(List<GymEquipment> catalog, MuscleGroup group, boolean main,
+                                   Level level, long seed, Set<String> usedThisWeek) {
+        List<GymEquipment> candidates = new ArrayList<>();
+        for (GymEquipment equipment : catalog) {
+            int mask = MuscleGroupResolver.maskForMuscles(equipment.getPrimaryMuscles());
+            boolean cardio = (mask & MuscleGroup.CARDIO.bit()) != 0;
+            if ((mask & group.bit()) != 0 && (group == MuscleGroup.CARDIO) == cardio) {
+                candidates.add(equipment);
+            }
+        }
+
+        // Main groups get compound movements, secondary groups get isolation work
+        candidates.sort(Comparator
+                .comparingInt((GymEquipment e) -> usedThisWeek.contains(e.getName()) ? 1 : 0)
+                .thenComparingInt(e -> suits(e, level) ? 0 : 1)
+                .thenComparingInt(e -> {
+                    int bits = Integer.bitCount(MuscleGroupResolver.maskForMuscles(e.getPrimaryMuscles()));
+                    return main ? -bits : bits;
+                })
+                .thenComparing(GymEquipment::getName));
+
+        if (!candidates.isEmpty()) {
+            GymEquipment best = candidates.get(0);
+            // Rotate among equally good options so consecutive weeks differ
+            List<GymEquipment> tier = new ArrayList<>();
+            for (GymEquipment candidate : candidates) {
+                if (usedThisWeek.contains(candidate.getName()) == usedThisWeek.contains(best.getName())
+                        && suits(candidate, level) == suits(best, level)) {
+                    tier.add(candidate);
+                }
+            }
+            GymEquipment chosen = tier.get(Math.floorMod(seed, tier.size()));
+            if (!usedThisWeek.contains(chosen.getName()) || bodyweightFor(group, usedThisWeek) == null) {
+                usedThisWeek.add(chosen.getName());
+                WeeklyPlanWorkout workout = new WeeklyPlanWorkout();
+                workout.setWorkoutName(chosen.getName());
+                workout.setNotes(chosen.getTips());
+                return workout;
+            }
+        }
+
+        String bodyweight = bodyweightFor(group, usedThisWeek);
+        if (bodyweight == null) {
+            return null;
+        }
+        usedThisWeek.add(bodyweight);
+        WeeklyPlanWorkout workout = new WeeklyPlanWorkout();
+        workout.setWorkoutName(bodyweight);
+        return workout;
+    }
+
+    private static String bodyweightFor(MuscleGroup group, Set<String> usedThisWeek) {
+        for (String name : BODYWEIGHT.getOrDefault(group, List.of())) {
+            if (!usedThisWeek.contains(name)) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private static boolean suits(GymEquipment equipment, Level level) {
+        String difficulty = equipment.getDifficulty() == null ? "" : equipment.getDifficulty().toLowerCase(Locale.ROOT);
+        return switch (level) {
+            case BEGINNER -> difficulty.contains("beginner");
+            case INTERMEDIATE -> difficulty.contains("intermediate") || difficulty.contains("beginner to");
+            case ADVANCED -> difficulty.contains("advanced");
+        };
+    }
+
+    /**
+     * Sets, reps, weight and duration from level, age and logged weights
+     */
+    private void applyLoad(WeeklyPlanWorkout workout, MuscleGroup group, boolean primary,
+                           Level level, Integer age, History history) {
+        if (group == MuscleGroup.CARDIO) {
+            workout.setDuration(level == Level.BEGINNER ? "20 min" : "30 min");
+            return;
+        }
+
+        int sets;
+        int reps;
+        switch (level) {
+            case BEGINNER -> { sets = 3; reps = 12; }
+            case INTERMEDIATE -> { sets = primary ? 4 : 3; reps = primary ? 10 : 12; }
+            default -> { sets = primary ? 4 : 3; reps = primary ? 8 : 10; }
+        }
+        if (age != null && age >= 50) {
+            sets = Math.min(sets, 3);
+            reps += 2;
+        }
+        if (group == MuscleGroup.CORE) {
+            reps = Math.max(reps, 15);
+        }
+
+        workout.setSets(sets);
+        workout.setReps(reps);
+        workout.setDuration((sets * 3) + " min");
+        String lastWeight = history.lastWeight.get(MuscleGroupResolver.normalize(workout.getWorkoutName()));
+        workout.setWeight(lastWeight != null ? lastWeight : "Weight you can lift for " + reps + " clean reps");
+    }
+
+    private static class History {
+        private boolean hasHistory;
+        private double sessionsPerWeek;
+        private int recentMask;
+        private final Map<MuscleGroup, Integer> setsByGroup = new EnumMap<>(MuscleGroup.class);
+        private final Map<String, String> lastWeight = new HashMap<>();
+    }
+}
@@ -0,0 +1,16 @@
+package com.aiagent.main.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local stand-in notifier that only writes reminders to the log
+ */
+@Slf4j
+public class LoggingReminderNotifier implements ReminderNotifier {
+
+    @Override
+    public void send(Reminder reminder) {
+        log.info("Reminder for user {}: {} \"{}\" starts at {}",
+                reminder.userId(), reminder.kind().toLowerCase(), reminder.title(), reminder.startTime());
+    }
+}
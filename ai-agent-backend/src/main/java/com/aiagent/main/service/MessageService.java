@@ -1,10 +1,24 @@
 package com.aiagent.main.service;
 
 import com.aiagent.main.entity.Message;
+import com.aiagent.main.entity.MessageSearchHit;
+import com.aiagent.main.repository.ConversationRepository;
 import com.aiagent.main.repository.MessageRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class MessageService {
@@ -12,11 +26,92 @@ public class MessageService {
     @Autowired
     private MessageRepository messageRepository;
 
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private ConversationArchiveService conversationArchiveService;
+
+    /**
+     * Save a message and bump its conversation's count and last activity. The
+     * conversation row is updated first, so the archiver (which locks it) and
+     * the insert never interleave.
+     */
+    @Transactional
     public Message saveMessage(Message message) {
+        conversationRepository.recordMessage(message.getConversation().getId(), message.getCreatedAt());
         return messageRepository.save(message);
     }
 
     public List<Message> getMessagesByConversationId(Long conversationId) {
         return messageRepository.findByConversationIdOrderByCreatedAtAsc(conversationId);
     }
+
+    /**
+     * The last limit messages of a conversation in chronological order
+     */
+    public List<Message> getRecentMessages(Long conversationId, int limit) {
+        List<Message> tail = new ArrayList<>(messageRepository.findTail(conversationId, PageRequest.of(0, limit)));
+        Collections.reverse(tail);
+        return tail;
+    }
+
+    /**
+     * One page of messages, newest first. Pass the returned nextCursor to load older ones.
+     */
+    public Map<String, Object> getMessagePage(Long conversationId, String cursor, int limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        // One extra row tells whether older messages exist
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<Message> rows = position == KeysetCursor.START
+                ? messageRepository.findTail(conversationId, page)
+                : messageRepository.findBefore(conversationId, position.time(), position.id(), page);
+
+        boolean hasMore = rows.size() > limit;
+        List<Message> messages = hasMore ? rows.subList(0, limit) : rows;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("messages", messages);
+        result.put("hasMore", hasMore);
+        if (hasMore) {
+            Message oldest = messages.get(messages.size() - 1);
+            result.put("nextCursor", new KeysetCursor(oldest.getCreatedAt(), oldest.getId()).encode());
+        }
+        return result;
+    }
+
+    /**
+     * Messages of a user matching a web-style search query ("quoted phrase",
+     * or, -exclude), best matches first
+     */
+    public List<MessageSearchHit> searchMessages(Long userId, String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query is empty");
+        }
+        List<MessageSearchHit> hits = new ArrayList<>();
+        Map<Long, Set<Long>> archived = new HashMap<>();
+        for (Object[] row : messageRepository.search(userId, query.trim(), limit)) {
+            MessageSearchHit hit = new MessageSearchHit(
+                    ((Number) row[0]).longValue(),
+                    ((Number) row[1]).longValue(),
+                    (String) row[2],
+                    (Boolean) row[3],
+                    row[4] instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) row[4],
+                    ((Number) row[5]).doubleValue(),
+                    (String) row[6]);
+            if (Boolean.TRUE.equals(row[7])) {
+                archived.computeIfAbsent(hit.getConversationId(), id -> new HashSet<>()).add(hit.getMessageId());
+            }
+            hits.add(hit);
+        }
+        // Hits in archived conversations carry no text; opening one restores it
+        if (!archived.isEmpty()) {
+            Map<Long, String> snippets = conversationArchiveService.snippets(query.trim(), archived);
+            hits.forEach(hit -> {
+                if (hit.getSnippet() == null) {
+                    hit.setSnippet(snippets.get(hit.getMessageId()));
+                }
+            });
+        }
+        return hits;
+    }
 }
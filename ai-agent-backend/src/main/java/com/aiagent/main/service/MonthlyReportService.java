@@ -151,15 +151,15 @@ public class MonthlyReportService {
     }
 
     private int calculateCurrentStreak(Long userId, LocalDate upToDate) {
+        LocalDate oldestDate = upToDate.minusYears(1);
+        // One range query over the last year instead of one query per day
+        Set<LocalDate> workoutDays = new HashSet<>(trainingLogRepository.findWorkoutDatesByUserIdAndDateRange(
+                userId, oldestDate.plusDays(1), upToDate));
+
         LocalDate checkDate = upToDate;
         int streak = 0;
 
-        while (checkDate.isAfter(upToDate.minusYears(1))) {
-            List<TrainingLog> dayLogs = trainingLogRepository.findByUserIdAndDateRange(
-                    userId, checkDate, checkDate);
-            if (dayLogs.isEmpty()) {
-                break;
-            }
+        while (checkDate.isAfter(oldestDate) && workoutDays.contains(checkDate)) {
             streak++;
             checkDate = checkDate.minusDays(1);
         }
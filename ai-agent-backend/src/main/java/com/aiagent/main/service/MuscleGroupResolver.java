@@ -0,0 +1,297 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.GymEquipment;
+import com.aiagent.main.repository.GymEquipmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves free-text workout names to the muscle groups they train, entirely
+ * in memory.
+ *
+ * The index is built from the equipment catalog: every equipment name (and,
+ * with a lower weight, every alternative it lists) maps to a bitmask of
+ * muscle groups derived from primaryMuscles. Lookups try the normalized name
+ * first and fall back to IDF-weighted token matching, so "Bench Press" finds
+ * "Barbell Bench Press" and common words like "machine" count for little.
+ * The index is rebuilt and swapped in whenever the catalog changes.
+ */
+@Service
+@Slf4j
+public class MuscleGroupResolver {
+
+    public enum MuscleGroup {
+        CHEST("Chest", "pectoral", "chest"),
+        BACK("Back", "latissimus", "rhomboid", "trapezius", "teres", "back"),
+        SHOULDERS("Shoulders", "deltoid", "shoulder"),
+        ARMS("Arms", "bicep", "tricep", "brachialis", "forearm", "arm"),
+        LEGS("Legs", "quadricep", "hamstring", "glute", "calf", "calves", "leg"),
+        CORE("Core", "core", "abs", "abdominal", "oblique"),
+        CARDIO("Cardio", "cardiovascular", "cardio"),
+        FULL_BODY("Full Body", "full body");
+
+        private final String displayName;
+        private final String[] keywords;
+
+        MuscleGroup(String displayName, String... keywords) {
+            this.displayName = displayName;
+            this.keywords = keywords;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public int bit() {
+            return 1 << ordinal();
+        }
+    }
+
+    // Matches below this share of the workout name's token weight are ignored
+    private static final double MIN_MATCH_SCORE = 0.5;
+    // Alternatives only approximate the muscles of the equipment that lists them
+    private static final double ALTERNATIVE_WEIGHT = 0.8;
+    private static final int MAX_MEMO_SIZE = 10_000;
+
+    private final GymEquipmentRepository gymEquipmentRepository;
+
+    private volatile Index index;
+
+    public MuscleGroupResolver(GymEquipmentRepository gymEquipmentRepository) {
+        this.gymEquipmentRepository = gymEquipmentRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        refresh();
+    }
+
+    @EventListener
+    public void onCatalogChanged(EquipmentCatalogChangedEvent event) {
+        log.info("Equipment catalog changed ({}), rebuilding muscle group index", event.reason());
+        refresh(event.snapshot().equipment());
+    }
+
+    /**
+     * Rebuild the index from the current catalog and swap it in
+     */
+    public void refresh() {
+        refresh(gymEquipmentRepository.findAll());
+    }
+
+    public void refresh(List<GymEquipment> catalog) {
+        index = new Index(catalog);
+        log.info("Muscle group index built with {} names from {} equipment", index.entries.size(), catalog.size());
+    }
+
+    /**
+     * Muscle group bitmask for a workout name, 0 when nothing matches
+     */
+    public int resolve(String workoutName) {
+        if (workoutName == null || workoutName.isBlank()) {
+            return 0;
+        }
+        Index current = index;
+        if (current == null) {
+            refresh();
+            current = index;
+        }
+        return current.resolve(workoutName);
+    }
+
+    /**
+     * Display names for the groups in a bitmask, in a fixed order
+     */
+    public static List<String> displayNames(int mask) {
+        List<String> names = new ArrayList<>();
+        for (MuscleGroup group : MuscleGroup.values()) {
+            if ((mask & group.bit()) != 0) {
+                names.add(group.getDisplayName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Bitmask for a comma-separated primaryMuscles value
+     */
+    public static int maskForMuscles(String primaryMuscles) {
+        if (primaryMuscles == null) {
+            return 0;
+        }
+        int mask = 0;
+        for (String muscle : primaryMuscles.split(",")) {
+            String normalized = muscle.trim().toLowerCase(Locale.ROOT);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            for (MuscleGroup group : MuscleGroup.values()) {
+                for (String keyword : group.keywords) {
+                    if (normalized.contains(keyword)) {
+                        mask |= group.bit();
+                        break;
+                    }
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Human-readable summary used in plan DTOs, at most three groups
+     */
+    public String describe(Collection<String> workoutNames) {
+        int mask = 0;
+        for (String name : workoutNames) {
+            mask |= resolve(name);
+        }
+        return displayNames(mask).stream().limit(3).collect(Collectors.joining(", "));
+    }
+
+    static String normalize(String name) {
+        return String.join(" ", tokens(name));
+    }
+
+    static List<String> tokens(String name) {
+        String[] raw = name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", " ").trim().split(" ");
+        List<String> tokens = new ArrayList<>(raw.length);
+        for (String token : raw) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            // Crude plural folding: "squats" and "squat" are the same exercise
+            if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+                token = token.substring(0, token.length() - 1);
+            }
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private record Entry(List<String> tokens, int mask, double weight) {
+    }
+
+    /**
+     * Immutable snapshot of the catalog, safe to share between request threads
+     */
+    private static final class Index {
+
+        private final Map<String, Integer> exact = new HashMap<>();
+        private final List<Entry> entries = new ArrayList<>();
+        private final Map<String, List<Integer>> postings = new HashMap<>();
+        private final Map<String, Double> idf = new HashMap<>();
+        private final Map<String, Integer> memo = new ConcurrentHashMap<>();
+
+        Index(List<GymEquipment> catalog) {
+            Map<String, Entry> byName = new LinkedHashMap<>();
+            for (GymEquipment equipment : catalog) {
+                int mask = maskForMuscles(equipment.getPrimaryMuscles());
+                if (mask == 0 || equipment.getName() == null) {
+                    continue;
+                }
+                addEntry(byName, equipment.getName(), mask, 1.0);
+                if (equipment.getAlternativeEquipments() != null) {
+                    for (String alternative : equipment.getAlternativeEquipments().split(",")) {
+                        addEntry(byName, alternative, mask, ALTERNATIVE_WEIGHT);
+                    }
+                }
+            }
+
+            for (Map.Entry<String, Entry> named : byName.entrySet()) {
+                Entry entry = named.getValue();
+                if (entry.weight() == 1.0) {
+                    exact.put(named.getKey(), entry.mask());
+                }
+                int position = entries.size();
+                entries.add(entry);
+                for (String token : new HashSet<>(entry.tokens())) {
+                    postings.computeIfAbsent(token, k -> new ArrayList<>()).add(position);
+                }
+            }
+
+            int total = Math.max(1, entries.size());
+            for (Map.Entry<String, List<Integer>> posting : postings.entrySet()) {
+                idf.put(posting.getKey(), Math.log(1.0 + (double) total / posting.getValue().size()));
+            }
+        }
+
+        private static void addEntry(Map<String, Entry> byName, String name, int mask, double weight) {
+            List<String> tokens = tokens(name);
+            if (tokens.isEmpty()) {
+                return;
+            }
+            String key = String.join(" ", tokens);
+            Entry existing = byName.get(key);
+            // A real equipment row beats an alternative mention of the same name
+            if (existing == null || existing.weight() < weight) {
+                byName.put(key, new Entry(tokens, mask, weight));
+            } else if (existing.weight() == weight && weight < 1.0) {
+                byName.put(key, new Entry(tokens, existing.mask() | mask, weight));
+            }
+        }
+
+        int resolve(String workoutName) {
+            List<String> tokens = tokens(workoutName);
+            if (tokens.isEmpty()) {
+                return 0;
+            }
+            String key = String.join(" ", tokens);
+            Integer cached = memo.get(key);
+            if (cached != null) {
+                return cached;
+            }
+
+            Integer exactMask = exact.get(key);
+            int mask = exactMask != null ? exactMask : fuzzyMatch(tokens);
+
+            if (memo.size() >= MAX_MEMO_SIZE) {
+                memo.clear();
+            }
+            memo.put(key, mask);
+            return mask;
+        }
+
+        private int fuzzyMatch(List<String> tokens) {
+            Set<String> queryTokens = new HashSet<>(tokens);
+            double queryWeight = 0;
+            Map<Integer, Double> matched = new HashMap<>();
+            for (String token : queryTokens) {
+                Double tokenIdf = idf.get(token);
+                if (tokenIdf == null) {
+                    // Unknown words still count against the match
+                    queryWeight += Math.log(1.0 + entries.size());
+                    continue;
+                }
+                queryWeight += tokenIdf;
+                for (Integer position : postings.get(token)) {
+                    matched.merge(position, tokenIdf, Double::sum);
+                }
+            }
+            if (matched.isEmpty() || queryWeight == 0) {
+                return 0;
+            }
+
+            int bestMask = 0;
+            double bestScore = 0;
+            int bestSize = Integer.MAX_VALUE;
+            for (Map.Entry<Integer, Double> candidate : matched.entrySet()) {
+                Entry entry = entries.get(candidate.getKey());
+                double score = candidate.getValue() / queryWeight * entry.weight();
+                int size = entry.tokens().size();
+                // Prefer higher scores, then the tighter name
+                if (score > bestScore || (score == bestScore && size < bestSize)) {
+                    bestScore = score;
+                    bestSize = size;
+                    bestMask = entry.mask();
+                }
+            }
+            return bestScore >= MIN_MATCH_SCORE ? bestMask : 0;
+        }
+    }
+}
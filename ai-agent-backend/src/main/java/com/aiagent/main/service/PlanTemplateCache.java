@@ -0,0 +1,277 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.User;
+import com.aiagent.main.entity.UserProfile;
+import com.aiagent.main.entity.WeeklyPlan;
+import com.aiagent.main.entity.WeeklyPlanWorkout;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reuses AI-generated plans across users with a similar profile.
+ *
+ * Users are grouped into buckets by age band, gender, weight class and the
+ * number of training days their history supports, plus the equipment catalog
+ * version. Each bucket keeps the few best-scoring plans the model produced
+ * for it; once a bucket is warm, new users in it get a random one of those
+ * templates with their own dates and loads instead of a model call. The
+ * template the user's current plan came from is skipped, so generating again
+ * gives a different plan; an explicit regenerate skips the cache entirely.
+ */
+@Service
+@Slf4j
+public class PlanTemplateCache {
+
+    private final GymEquipmentService gymEquipmentService;
+    private final UserProfileService userProfileService;
+    private final MuscleGroupResolver muscleGroupResolver;
+
+    @Value("${plan-template-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${plan-template-cache.templates-per-bucket:3}")
+    private int templatesPerBucket;
+
+    @Value("${plan-template-cache.min-templates:2}")
+    private int minTemplates;
+
+    @Value("${plan-template-cache.max-buckets:1000}")
+    private int maxBuckets;
+
+    // Access-ordered so the least recently used bucket is dropped first
+    private final LinkedHashMap<String, List<Template>> buckets = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<Template>> eldest) {
+            return size() > maxBuckets;
+        }
+    };
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public PlanTemplateCache(GymEquipmentService gymEquipmentService,
+                             UserProfileService userProfileService,
+                             MuscleGroupResolver muscleGroupResolver) {
+        this.gymEquipmentService = gymEquipmentService;
+        this.userProfileService = userProfileService;
+        this.muscleGroupResolver = muscleGroupResolver;
+    }
+
+    private record WorkoutSpec(int dayIndex, String name, Integer sets, Integer reps, String duration, String notes) {
+    }
+
+    private record Template(List<WorkoutSpec> workouts, int score, String fingerprint) {
+    }
+
+    /**
+     * Bucket key for a user; the local draft supplies the training-days band
+     */
+    public String bucketKey(User user, WeeklyPlan draft) {
+        UserProfile profile = userProfileService.getByUserId(user.getId()).orElse(null);
+        long trainingDays = draft.getWorkouts().stream().map(WeeklyPlanWorkout::getDayIndex).distinct().count();
+        return "v" + gymEquipmentService.getCatalogVersion()
+                + "|" + ageBand(profile)
+                + "|" + (profile != null && profile.getGender() != null ? profile.getGender().toLowerCase(Locale.ROOT) : "na")
+                + "|" + weightClass(profile)
+                + "|d" + trainingDays;
+    }
+
+    /**
+     * Which exercises on which days, the same for a template and every plan built from it
+     */
+    public String fingerprint(WeeklyPlan plan) {
+        if (plan == null) {
+            return null;
+        }
+        return plan.getWorkouts().stream()
+                .map(w -> w.getDayIndex() + ":" + MuscleGroupResolver.normalize(Objects.toString(w.getWorkoutName(), "")))
+                .sorted()
+                .reduce((a, b) -> a + "|" + b)
+                .orElse("");
+    }
+
+    /**
+     * A plan built from a cached template, or empty when the bucket is not warm
+     * yet. currentFingerprint is the plan being replaced, whose template is not
+     * served again.
+     */
+    public Optional<WeeklyPlan> instantiate(String key, User user, LocalDate startDate, LocalDate endDate,
+                                            WeeklyPlan draft, String currentFingerprint) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        lookups.incrementAndGet();
+        Template template;
+        synchronized (buckets) {
+            List<Template> templates = buckets.get(key);
+            if (templates == null || templates.size() < minTemplates) {
+                return Optional.empty();
+            }
+            List<Template> candidates = templates.stream()
+                    .filter(t -> !t.fingerprint().equals(currentFingerprint))
+                    .toList();
+            if (candidates.isEmpty()) {
+                return Optional.empty();
+            }
+            template = candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+        }
+        hits.incrementAndGet();
+
+        // Loads are personal: take the draft's weight for the same exercise when there is one
+        Map<String, String> draftWeights = new HashMap<>();
+        for (WeeklyPlanWorkout workout : draft.getWorkouts()) {
+            if (workout.getWeight() != null) {
+                draftWeights.putIfAbsent(MuscleGroupResolver.normalize(workout.getWorkoutName()), workout.getWeight());
+            }
+        }
+
+        WeeklyPlan plan = new WeeklyPlan();
+        plan.setUser(user);
+        plan.setStartDate(startDate);
+        plan.setEndDate(endDate);
+        for (WorkoutSpec spec : template.workouts()) {
+            WeeklyPlanWorkout workout = new WeeklyPlanWorkout();
+            workout.setWeeklyPlan(plan);
+            workout.setDayIndex(spec.dayIndex());
+            workout.setWorkoutName(spec.name());
+            workout.setSets(spec.sets());
+            workout.setReps(spec.reps());
+            workout.setDuration(spec.duration());
+            workout.setNotes(spec.notes());
+            String weight = draftWeights.get(MuscleGroupResolver.normalize(spec.name()));
+            if (weight == null && spec.reps() != null) {
+                weight = "Weight you can lift for " + spec.reps() + " clean reps";
+            }
+            workout.setWeight(weight);
+            workout.setCompleted(false);
+            plan.getWorkouts().add(workout);
+        }
+        log.info("Served plan for user {} from template bucket {}", user.getId(), key);
+        return Optional.of(plan);
+    }
+
+    /**
+     * Offer a freshly generated plan to its bucket; only well-formed plans are kept
+     */
+    public void store(String key, WeeklyPlan plan) {
+        if (!enabled) {
+            return;
+        }
+        Integer score = score(plan);
+        if (score == null) {
+            rejected.incrementAndGet();
+            return;
+        }
+
+        String fingerprint = fingerprint(plan);
+        List<WorkoutSpec> workouts = plan.getWorkouts().stream()
+                .sorted(Comparator.comparingInt(WeeklyPlanWorkout::getDayIndex))
+                .map(w -> new WorkoutSpec(w.getDayIndex(), w.getWorkoutName(), w.getSets(), w.getReps(),
+                        w.getDuration(), w.getNotes()))
+                .toList();
+
+        synchronized (buckets) {
+            List<Template> templates = buckets.computeIfAbsent(key, k -> new ArrayList<>());
+            if (templates.stream().anyMatch(t -> t.fingerprint().equals(fingerprint))) {
+                return;
+            }
+            if (templates.size() >= templatesPerBucket && templates.get(templates.size() - 1).score() >= score) {
+                return;
+            }
+            templates.add(new Template(workouts, score, fingerprint));
+            // Best first; stable sort keeps older templates ahead on ties
+            templates.sort(Comparator.comparingInt(Template::score).reversed());
+            while (templates.size() > templatesPerBucket) {
+                templates.remove(templates.size() - 1);
+            }
+        }
+        stored.incrementAndGet();
+    }
+
+    /**
+     * Quality score, or null when the plan should not be reused:
+     * 3-6 training days, at least two exercises per training day, and the
+     * more muscle groups the week covers the better
+     */
+    private Integer score(WeeklyPlan plan) {
+        Map<Integer, Integer> perDay = new HashMap<>();
+        int coverage = 0;
+        for (WeeklyPlanWorkout workout : plan.getWorkouts()) {
+            if (workout.getWorkoutName() == null || workout.getWorkoutName().isBlank()
+                    || workout.getDayIndex() == null || workout.getDayIndex() < 0 || workout.getDayIndex() > 6) {
+                return null;
+            }
+            perDay.merge(workout.getDayIndex(), 1, Integer::sum);
+            coverage |= muscleGroupResolver.resolve(workout.getWorkoutName());
+        }
+        if (perDay.size() < 3 || perDay.size() > 6 || perDay.values().stream().anyMatch(n -> n < 2)) {
+            return null;
+        }
+        return Integer.bitCount(coverage) * 10 + Math.min(plan.getWorkouts().size(), 30);
+    }
+
+    @EventListener
+    public void onCatalogChanged(EquipmentCatalogChangedEvent event) {
+        // Keys carry the catalog version, so old buckets are unreachable anyway; free them now
+        synchronized (buckets) {
+            buckets.clear();
+        }
+    }
+
+    /**
+     * Reuse counters since startup
+     */
+    public Map<String, Object> getStats() {
+        long lookupCount = lookups.get();
+        long hitCount = hits.get();
+        int bucketCount;
+        synchronized (buckets) {
+            bucketCount = buckets.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("buckets", bucketCount);
+        stats.put("lookups", lookupCount);
+        stats.put("hits", hitCount);
+        stats.put("reuseRate", lookupCount == 0 ? 0.0 : (double) hitCount / lookupCount);
+        stats.put("llmCallsAvoided", hitCount);
+        stats.put("templatesStored", stored.get());
+        stats.put("templatesRejected", rejected.get());
+        return stats;
+    }
+
+    private static String ageBand(UserProfile profile) {
+        Integer age = profile != null ? profile.getAge() : null;
+        if (age == null) return "na";
+        if (age < 25) return "a18";
+        if (age < 35) return "a25";
+        if (age < 45) return "a35";
+        if (age < 55) return "a45";
+        if (age < 65) return "a55";
+        return "a65";
+    }
+
+    private static String weightClass(UserProfile profile) {
+        if (profile == null || profile.getWeightKg() == null) {
+            return "na";
+        }
+        if (profile.getHeightCm() != null && profile.getHeightCm() > 0) {
+            double meters = profile.getHeightCm() / 100.0;
+            double bmi = profile.getWeightKg() / (meters * meters);
+            if (bmi < 18.5) return "bmi-under";
+            if (bmi < 25) return "bmi-normal";
+            if (bmi < 30) return "bmi-over";
+            return "bmi-obese";
+        }
+        return "w" + (int) (profile.getWeightKg() / 15) * 15;
+    }
+}
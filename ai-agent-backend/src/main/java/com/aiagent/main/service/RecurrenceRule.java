@@ -0,0 +1,231 @@
+package com.aiagent.main.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * The subset of RFC 5545 RRULE the calendar supports: FREQ=DAILY, WEEKLY or
+ * MONTHLY with INTERVAL, COUNT, UNTIL and (weekly) BYDAY.
+ *
+ * Occurrences are generated on demand for a window only. Rules without
+ * COUNT jump straight to the first period that can reach the window, so the
+ * cost depends on the window size, not on how long the series has been running.
+ */
+public final class RecurrenceRule {
+
+    public enum Frequency { DAILY, WEEKLY, MONTHLY }
+
+    private static final DateTimeFormatter UTC_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final Map<String, DayOfWeek> DAY_CODES = Map.of(
+            "MO", DayOfWeek.MONDAY, "TU", DayOfWeek.TUESDAY, "WE", DayOfWeek.WEDNESDAY,
+            "TH", DayOfWeek.THURSDAY, "FR", DayOfWeek.FRIDAY, "SA", DayOfWeek.SATURDAY, "SU", DayOfWeek.SUNDAY);
+
+    // Upper bound on generated candidates per call, protects against silly rules
+    private static final int MAX_ITERATIONS = 100_000;
+
+    private final Frequency frequency;
+    private final int interval;
+    private final Integer count;
+    private final LocalDateTime until;
+    private final List<DayOfWeek> byDay;
+
+    private RecurrenceRule(Frequency frequency, int interval, Integer count, LocalDateTime until, List<DayOfWeek> byDay) {
+        this.frequency = frequency;
+        this.interval = interval;
+        this.count = count;
+        this.until = until;
+        this.byDay = byDay;
+    }
+
+    /**
+     * Parse an RRULE value (with or without the "RRULE:" prefix)
+     */
+    public static RecurrenceRule parse(String rule) {
+        if (rule == null || rule.isBlank()) {
+            throw new IllegalArgumentException("Recurrence rule is empty");
+        }
+        String value = rule.trim();
+        if (value.regionMatches(true, 0, "RRULE:", 0, 6)) {
+            value = value.substring(6);
+        }
+
+        Frequency frequency = null;
+        int interval = 1;
+        Integer count = null;
+        LocalDateTime until = null;
+        List<DayOfWeek> byDay = new ArrayList<>();
+
+        for (String part : value.split(";")) {
+            String[] pair = part.split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid recurrence rule part: " + part);
+            }
+            String key = pair[0].trim().toUpperCase(Locale.ROOT);
+            String val = pair[1].trim().toUpperCase(Locale.ROOT);
+            switch (key) {
+                case "FREQ" -> {
+                    try {
+                        frequency = Frequency.valueOf(val);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unsupported recurrence frequency: " + val);
+                    }
+                }
+                case "INTERVAL" -> interval = Integer.parseInt(val);
+                case "COUNT" -> count = Integer.parseInt(val);
+                case "UNTIL" -> until = val.length() == 8
+                        ? LocalDate.parse(val, DATE_FORMAT).atTime(23, 59, 59)
+                        : LocalDateTime.parse(val.endsWith("Z") ? val : val + "Z", UTC_FORMAT);
+                case "BYDAY" -> {
+                    for (String code : val.split(",")) {
+                        DayOfWeek day = DAY_CODES.get(code.trim());
+                        if (day == null) {
+                            throw new IllegalArgumentException("Unsupported BYDAY value: " + code);
+                        }
+                        if (!byDay.contains(day)) {
+                            byDay.add(day);
+                        }
+                    }
+                }
+                case "WKST" -> {
+                    // Weeks always start on Monday here, which is the RFC default
+                }
+                default -> throw new IllegalArgumentException("Unsupported recurrence rule part: " + key);
+            }
+        }
+
+        if (frequency == null) {
+            throw new IllegalArgumentException("Recurrence rule needs FREQ");
+        }
+        if (interval < 1 || (count != null && count < 1)) {
+            throw new IllegalArgumentException("INTERVAL and COUNT must be positive");
+        }
+        if (count != null && until != null) {
+            throw new IllegalArgumentException("COUNT and UNTIL cannot both be set");
+        }
+        if (!byDay.isEmpty() && frequency != Frequency.WEEKLY) {
+            throw new IllegalArgumentException("BYDAY is only supported for weekly rules");
+        }
+        byDay.sort(Comparator.naturalOrder());
+        return new RecurrenceRule(frequency, interval, count, until, List.copyOf(byDay));
+    }
+
+    /**
+     * Visit occurrence starts of a series whose occurrences overlap [from, to)
+     */
+    public void forEachOccurrence(LocalDateTime dtStart, long durationMinutes, LocalDateTime from, LocalDateTime to,
+                                  Consumer<LocalDateTime> consumer) {
+        // An occurrence starting up to one duration before the window still overlaps it
+        LocalDateTime earliestStart = from.minusMinutes(Math.max(0, durationMinutes));
+        long period = 0;
+        if (count == null && earliestStart.isAfter(dtStart)) {
+            period = Math.max(0, periodsBetween(dtStart, earliestStart) - 1);
+        }
+
+        int emitted = 0;
+        for (int iterations = 0; iterations < MAX_ITERATIONS; period++) {
+            List<LocalDateTime> candidates = candidates(dtStart, period);
+            if (candidates.isEmpty()) {
+                iterations++;
+                continue;
+            }
+            for (LocalDateTime start : candidates) {
+                iterations++;
+                if (start.isBefore(dtStart)) {
+                    continue;
+                }
+                if ((until != null && start.isAfter(until)) || !start.isBefore(to)
+                        || (count != null && emitted >= count)) {
+                    return;
+                }
+                emitted++;
+                if (!start.isBefore(from) || start.plusMinutes(durationMinutes).isAfter(from)) {
+                    consumer.accept(start);
+                }
+            }
+        }
+    }
+
+    /**
+     * Start of the last occurrence, or null when the series never ends
+     */
+    public LocalDateTime lastOccurrence(LocalDateTime dtStart) {
+        if (until != null) {
+            return until;
+        }
+        if (count == null) {
+            return null;
+        }
+        LocalDateTime[] last = {dtStart};
+        forEachOccurrence(dtStart, 0, dtStart, LocalDateTime.MAX.minusYears(1), start -> last[0] = start);
+        return last[0];
+    }
+
+    private List<LocalDateTime> candidates(LocalDateTime dtStart, long period) {
+        long step = period * interval;
+        return switch (frequency) {
+            case DAILY -> List.of(dtStart.plusDays(step));
+            case MONTHLY -> {
+                LocalDateTime start = dtStart.plusMonths(step);
+                // The 31st does not exist in every month; such months are skipped, as in RFC 5545
+                yield start.getDayOfMonth() == dtStart.getDayOfMonth() ? List.of(start) : List.of();
+            }
+            case WEEKLY -> {
+                LocalDateTime base = dtStart.plusWeeks(step);
+                if (byDay.isEmpty()) {
+                    yield List.of(base);
+                }
+                LocalDateTime monday = base.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                List<LocalDateTime> starts = new ArrayList<>(byDay.size());
+                for (DayOfWeek day : byDay) {
+                    starts.add(monday.plusDays(day.getValue() - 1L));
+                }
+                yield starts;
+            }
+        };
+    }
+
+    private long periodsBetween(LocalDateTime dtStart, LocalDateTime target) {
+        long units = switch (frequency) {
+            case DAILY -> ChronoUnit.DAYS.between(dtStart, target);
+            case WEEKLY -> ChronoUnit.WEEKS.between(
+                    dtStart.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).toLocalDate().atStartOfDay(),
+                    target.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).toLocalDate().atStartOfDay());
+            case MONTHLY -> ChronoUnit.MONTHS.between(dtStart, target);
+        };
+        return units / interval;
+    }
+
+    /**
+     * Canonical RRULE value, UNTIL in UTC form
+     */
+    @Override
+    public String toString() {
+        StringBuilder rule = new StringBuilder("FREQ=").append(frequency);
+        if (interval != 1) {
+            rule.append(";INTERVAL=").append(interval);
+        }
+        if (count != null) {
+            rule.append(";COUNT=").append(count);
+        }
+        if (until != null) {
+            rule.append(";UNTIL=").append(until.format(UTC_FORMAT));
+        }
+        if (!byDay.isEmpty()) {
+            rule.append(";BYDAY=");
+            for (int i = 0; i < byDay.size(); i++) {
+                if (i > 0) {
+                    rule.append(',');
+                }
+                rule.append(byDay.get(i).name(), 0, 2);
+            }
+        }
+        return rule.toString();
+    }
+}
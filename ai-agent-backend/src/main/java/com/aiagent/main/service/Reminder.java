@@ -0,0 +1,14 @@
+package com.aiagent.main.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * A reminder due at fireAt for something starting at startTime.
+ * The key identifies it across nodes so it is delivered only once.
+ */
+public record Reminder(String key, String kind, Long userId, Long refId, String title,
+                       LocalDateTime startTime, LocalDateTime fireAt) {
+
+    public static final String EVENT = "EVENT";
+    public static final String WORKOUT = "WORKOUT";
+}
@@ -0,0 +1,10 @@
+package com.aiagent.main.service;
+
+/**
+ * Delivers reminders to users (push, email, ...). Declare a bean of this type
+ * to replace the logging stand-in.
+ */
+public interface ReminderNotifier {
+
+    void send(Reminder reminder);
+}
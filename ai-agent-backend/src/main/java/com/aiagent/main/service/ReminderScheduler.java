@@ -0,0 +1,456 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.CalendarEvent;
+import com.aiagent.main.entity.WeeklyPlan;
+import com.aiagent.main.entity.WeeklyPlanWorkout;
+import com.aiagent.main.repository.CalendarEventRepository;
+import com.aiagent.main.repository.WeeklyPlanWorkoutRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Sends reminders a configurable number of minutes before calendar events and
+ * planned workouts.
+ *
+ * Fire times are cut into fixed time slices. A node claims a slice through a
+ * lease row in reminder_leases, loads only the reminders firing in it (one
+ * query per slice, shortly before it starts) and keeps them in a
+ * {@link HierarchicalTimerWheel} until they are due. Leases are renewed while
+ * the slice is pending; when a node dies, its leases run out and another node
+ * loads the same slices. Deliveries are recorded under a unique key, so a
+ * reminder is sent once even if two nodes briefly held its slice.
+ *
+ * Edits made on this node reschedule right away; edits made elsewhere are
+ * picked up by a periodic scan of recently updated events. Every reminder is
+ * checked against the database before it is sent, which covers deletions.
+ */
+@Service
+@Slf4j
+public class ReminderScheduler {
+
+    private static final int CHANGE_SCAN_LIMIT = 500;
+
+    private static final String CLAIM_SQL =
+            "INSERT INTO reminder_leases (slice_start, owner, lease_until) VALUES (?, ?, ?) " +
+            "ON CONFLICT (slice_start) DO UPDATE SET owner = EXCLUDED.owner, lease_until = EXCLUDED.lease_until " +
+            "WHERE reminder_leases.owner = EXCLUDED.owner OR reminder_leases.lease_until < ?";
+
+    private static final String DELIVERY_SQL =
+            "INSERT INTO reminder_deliveries (reminder_key, user_id, delivered_at) VALUES (?, ?, ?) " +
+            "ON CONFLICT (reminder_key) DO NOTHING";
+
+    private final CalendarEventRepository calendarEventRepository;
+    private final WeeklyPlanWorkoutRepository weeklyPlanWorkoutRepository;
+    private final CalendarService calendarService;
+    private final ReminderNotifier notifier;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${reminders.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reminders.lead-minutes:30}")
+    private int leadMinutes;
+
+    @Value("${reminders.slice-minutes:15}")
+    private int sliceMinutes;
+
+    // How far ahead slices are claimed and loaded
+    @Value("${reminders.lookahead-minutes:60}")
+    private int lookaheadMinutes;
+
+    @Value("${reminders.lease-seconds:120}")
+    private int leaseSeconds;
+
+    // Planned workouts without a calendar slot are assumed to start at this time (UTC)
+    @Value("${reminders.workout-time:08:00}")
+    private String workoutTime;
+
+    @Value("${reminders.delivery-retention-days:7}")
+    private int deliveryRetentionDays;
+
+    @Value("${reminders.node-id:}")
+    private String configuredNodeId;
+
+    private final Object lock = new Object();
+    private final HierarchicalTimerWheel<Reminder> wheel;
+    // Owned slices and the timer keys loaded for each
+    private final TreeMap<LocalDateTime, Set<String>> ownedSlices = new TreeMap<>();
+    private final Map<Long, Set<String>> keysByEvent = new HashMap<>();
+    private LocalDateTime lastChangeScan = LocalDateTime.now();
+    private String nodeId;
+
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public ReminderScheduler(CalendarEventRepository calendarEventRepository,
+                             WeeklyPlanWorkoutRepository weeklyPlanWorkoutRepository,
+                             CalendarService calendarService,
+                             ReminderNotifier notifier,
+                             JdbcTemplate jdbcTemplate) {
+        this.calendarEventRepository = calendarEventRepository;
+        this.weeklyPlanWorkoutRepository = weeklyPlanWorkoutRepository;
+        this.calendarService = calendarService;
+        this.notifier = notifier;
+        this.jdbcTemplate = jdbcTemplate;
+        // One-second ticks; seconds, minutes and hours levels cover a day
+        this.wheel = new HierarchicalTimerWheel<>(1000, new int[]{60, 60, 24}, System.currentTimeMillis());
+    }
+
+    private String nodeId() {
+        if (nodeId == null) {
+            nodeId = configuredNodeId != null && !configuredNodeId.isBlank()
+                    ? configuredNodeId
+                    : ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+        return nodeId;
+    }
+
+    /**
+     * Fire due reminders
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        List<Reminder> due;
+        synchronized (lock) {
+            due = wheel.advance(System.currentTimeMillis());
+            for (Reminder reminder : due) {
+                forget(reminder);
+            }
+        }
+        for (Reminder reminder : due) {
+            deliver(reminder);
+        }
+    }
+
+    /**
+     * Claim and load upcoming slices, renew leases on pending ones and pick up
+     * edits made on other nodes
+     */
+    @Scheduled(fixedDelayString = "${reminders.load-interval-ms:30000}", initialDelay = 10000)
+    public void loadSlices() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime now = nowUtc();
+            LocalDateTime first = sliceStart(now);
+            LocalDateTime horizon = now.plusMinutes(lookaheadMinutes);
+
+            synchronized (lock) {
+                // Slices whose fire window has passed need no lease any more
+                ownedSlices.headMap(first, false).clear();
+            }
+
+            for (LocalDateTime slice = first; slice.isBefore(horizon); slice = slice.plusMinutes(sliceMinutes)) {
+                boolean owned;
+                synchronized (lock) {
+                    owned = ownedSlices.containsKey(slice);
+                }
+                if (claim(slice, now)) {
+                    if (!owned) {
+                        loadSlice(slice, now);
+                    }
+                } else if (owned) {
+                    log.warn("Lost reminder lease for slice {}, dropping its timers", slice);
+                    dropSlice(slice);
+                }
+            }
+
+            scanChanges();
+        } catch (Exception e) {
+            log.error("Error loading reminder slices", e);
+        }
+    }
+
+    /**
+     * Remove lease rows and delivery records nobody needs any more
+     */
+    @Scheduled(cron = "${reminders.purge-cron:0 45 * * * *}")
+    public void purge() {
+        try {
+            LocalDateTime now = nowUtc();
+            int leases = jdbcTemplate.update("DELETE FROM reminder_leases WHERE lease_until < ?",
+                    Timestamp.valueOf(now.minusDays(1)));
+            int deliveries = jdbcTemplate.update("DELETE FROM reminder_deliveries WHERE delivered_at < ?",
+                    Timestamp.valueOf(now.minusDays(deliveryRetentionDays)));
+            log.debug("Purged {} reminder leases and {} delivery records", leases, deliveries);
+        } catch (Exception e) {
+            log.error("Error purging reminder bookkeeping", e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCalendarEventChanged(CalendarEventChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            calendarEventRepository.findById(event.eventId())
+                    .ifPresentOrElse(this::reschedule, () -> cancelEvent(event.eventId()));
+        } catch (Exception e) {
+            log.error("Error rescheduling reminders for event {}", event.eventId(), e);
+        }
+    }
+
+    /**
+     * Counters since startup
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            stats.put("node", nodeId());
+            stats.put("ownedSlices", ownedSlices.size());
+            stats.put("pending", wheel.size());
+        }
+        stats.put("scheduled", scheduled.get());
+        stats.put("sent", sent.get());
+        stats.put("duplicates", duplicates.get());
+        stats.put("stale", stale.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+
+    private boolean claim(LocalDateTime slice, LocalDateTime now) {
+        LocalDateTime leaseUntil = now.plusSeconds(leaseSeconds);
+        return jdbcTemplate.update(CLAIM_SQL, Timestamp.valueOf(slice), nodeId(),
+                Timestamp.valueOf(leaseUntil), Timestamp.valueOf(now)) > 0;
+    }
+
+    /**
+     * Load every reminder firing in [slice, slice + sliceMinutes)
+     */
+    private void loadSlice(LocalDateTime slice, LocalDateTime now) {
+        LocalDateTime sliceEnd = slice.plusMinutes(sliceMinutes);
+        // Things starting lead minutes after the slice fire inside it
+        LocalDateTime from = slice.plusMinutes(leadMinutes);
+        LocalDateTime to = sliceEnd.plusMinutes(leadMinutes);
+
+        List<Reminder> reminders = new ArrayList<>();
+        for (CalendarEvent event : calendarEventRepository.findAllStartingInWindow(from, to)) {
+            collectEventReminders(event, from, to, reminders);
+        }
+        collectWorkoutReminders(from, to, reminders);
+
+        synchronized (lock) {
+            ownedSlices.put(slice, new HashSet<>());
+        }
+        for (Reminder reminder : reminders) {
+            schedule(reminder, now);
+        }
+        log.debug("Loaded {} reminders for slice {}", reminders.size(), slice);
+    }
+
+    private void collectEventReminders(CalendarEvent event, LocalDateTime from, LocalDateTime to, List<Reminder> reminders) {
+        calendarService.forEachOccurrenceStart(event, from, to, start ->
+                reminders.add(new Reminder(eventKey(event.getId(), start), Reminder.EVENT, event.getUser().getId(),
+                        event.getId(), event.getTitle(), start, start.minusMinutes(leadMinutes))));
+    }
+
+    private void collectWorkoutReminders(LocalDateTime from, LocalDateTime to, List<Reminder> reminders) {
+        LocalTime time = LocalTime.parse(workoutTime);
+        for (LocalDate date = from.toLocalDate(); !date.isAfter(to.toLocalDate()); date = date.plusDays(1)) {
+            LocalDateTime start = date.atTime(time);
+            if (start.isBefore(from) || !start.isBefore(to)) {
+                continue;
+            }
+            LocalDate day = date;
+            Map<String, List<WeeklyPlanWorkout>> sessions = weeklyPlanWorkoutRepository.findOpenWorkoutsOn(date).stream()
+                    .filter(w -> w.getDayIndex() != null
+                            && w.getDayIndex() == ChronoUnit.DAYS.between(w.getWeeklyPlan().getStartDate(), day))
+                    .collect(Collectors.groupingBy(w -> sourceRef(w.getWeeklyPlan().getId(), w.getDayIndex()),
+                            LinkedHashMap::new, Collectors.toList()));
+            if (sessions.isEmpty()) {
+                continue;
+            }
+            // Sessions placed on the calendar are reminded through their event
+            calendarEventRepository.findExistingSourceRefs(sessions.keySet()).forEach(sessions::remove);
+
+            for (Map.Entry<String, List<WeeklyPlanWorkout>> session : sessions.entrySet()) {
+                WeeklyPlan plan = session.getValue().get(0).getWeeklyPlan();
+                String title = session.getValue().stream().map(WeeklyPlanWorkout::getWorkoutName)
+                        .limit(3).collect(Collectors.joining(", "));
+                reminders.add(new Reminder("workout:" + session.getKey() + ":" + date, Reminder.WORKOUT,
+                        plan.getUser().getId(), plan.getId(), title, start, start.minusMinutes(leadMinutes)));
+            }
+        }
+    }
+
+    /**
+     * Replace the timers of one event with its current occurrences in the slices this node owns
+     */
+    private void reschedule(CalendarEvent event) {
+        cancelEvent(event.getId());
+        LocalDateTime first;
+        LocalDateTime last;
+        synchronized (lock) {
+            if (ownedSlices.isEmpty()) {
+                return;
+            }
+            first = ownedSlices.firstKey();
+            last = ownedSlices.lastKey().plusMinutes(sliceMinutes);
+        }
+        List<Reminder> reminders = new ArrayList<>();
+        collectEventReminders(event, first.plusMinutes(leadMinutes), last.plusMinutes(leadMinutes), reminders);
+        LocalDateTime now = nowUtc();
+        for (Reminder reminder : reminders) {
+            schedule(reminder, now);
+        }
+    }
+
+    private void scanChanges() {
+        LocalDateTime until = LocalDateTime.now();
+        List<CalendarEvent> changed = calendarEventRepository.findAllChangedSince(lastChangeScan, until,
+                PageRequest.of(0, CHANGE_SCAN_LIMIT));
+        for (CalendarEvent event : changed) {
+            reschedule(event);
+        }
+        // A full page may have more behind it; continue from the last row next time
+        lastChangeScan = changed.size() == CHANGE_SCAN_LIMIT ? changed.get(changed.size() - 1).getUpdatedAt() : until;
+    }
+
+    private void schedule(Reminder reminder, LocalDateTime now) {
+        LocalDateTime slice = sliceStart(reminder.fireAt());
+        boolean fireNow;
+        synchronized (lock) {
+            Set<String> sliceKeys = ownedSlices.get(slice);
+            // Reminders in slices owned by another node (or none yet) are that node's business
+            if (sliceKeys == null && !reminder.fireAt().isBefore(now)) {
+                return;
+            }
+            fireNow = !wheel.schedule(reminder.key(), reminder.fireAt().toInstant(ZoneOffset.UTC).toEpochMilli(), reminder);
+            if (!fireNow) {
+                if (sliceKeys != null) {
+                    sliceKeys.add(reminder.key());
+                }
+                if (Reminder.EVENT.equals(reminder.kind())) {
+                    keysByEvent.computeIfAbsent(reminder.refId(), id -> new HashSet<>()).add(reminder.key());
+                }
+            }
+        }
+        scheduled.incrementAndGet();
+        if (fireNow && !reminder.startTime().isBefore(now)) {
+            // Loaded late (slice taken over or just edited), but the start is still ahead
+            deliver(reminder);
+        }
+    }
+
+    private void cancelEvent(Long eventId) {
+        synchronized (lock) {
+            Set<String> keys = keysByEvent.remove(eventId);
+            if (keys != null) {
+                for (String key : keys) {
+                    wheel.cancel(key);
+                    ownedSlices.values().forEach(sliceKeys -> sliceKeys.remove(key));
+                }
+            }
+        }
+    }
+
+    private void dropSlice(LocalDateTime slice) {
+        synchronized (lock) {
+            Set<String> keys = ownedSlices.remove(slice);
+            if (keys != null) {
+                for (String key : keys) {
+                    wheel.cancel(key);
+                }
+                keysByEvent.values().forEach(eventKeys -> eventKeys.removeAll(keys));
+            }
+        }
+    }
+
+    // Caller holds the lock
+    private void forget(Reminder reminder) {
+        Set<String> sliceKeys = ownedSlices.get(sliceStart(reminder.fireAt()));
+        if (sliceKeys != null) {
+            sliceKeys.remove(reminder.key());
+        }
+        if (Reminder.EVENT.equals(reminder.kind())) {
+            Set<String> eventKeys = keysByEvent.get(reminder.refId());
+            if (eventKeys != null && eventKeys.remove(reminder.key()) && eventKeys.isEmpty()) {
+                keysByEvent.remove(reminder.refId());
+            }
+        }
+    }
+
+    private void deliver(Reminder reminder) {
+        try {
+            if (!stillValid(reminder)) {
+                stale.incrementAndGet();
+                return;
+            }
+            int inserted = jdbcTemplate.update(DELIVERY_SQL, reminder.key(), reminder.userId(),
+                    Timestamp.valueOf(nowUtc()));
+            if (inserted == 0) {
+                duplicates.incrementAndGet();
+                return;
+            }
+            notifier.send(reminder);
+            sent.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            log.error("Error sending reminder {}", reminder.key(), e);
+        }
+    }
+
+    /**
+     * The event or session may have moved, been cancelled or been completed since it was loaded
+     */
+    private boolean stillValid(Reminder reminder) {
+        if (Reminder.EVENT.equals(reminder.kind())) {
+            return calendarEventRepository.findById(reminder.refId()).map(event -> {
+                boolean[] found = {false};
+                calendarService.forEachOccurrenceStart(event, reminder.startTime(), reminder.startTime().plusMinutes(1),
+                        start -> found[0] |= start.equals(reminder.startTime()));
+                return found[0];
+            }).orElse(false);
+        }
+        String[] parts = reminder.key().split(":");
+        // workout:plan:{planId}:day:{dayIndex}:{date}
+        Long planId = Long.parseLong(parts[2]);
+        Integer dayIndex = Integer.parseInt(parts[4]);
+        if (!calendarEventRepository.findExistingSourceRefs(List.of(sourceRef(planId, dayIndex))).isEmpty()) {
+            return false;
+        }
+        return weeklyPlanWorkoutRepository.findByWeeklyPlanIdAndDayIndex(planId, dayIndex).stream()
+                .anyMatch(w -> !Boolean.TRUE.equals(w.getCompleted()));
+    }
+
+    private LocalDateTime sliceStart(LocalDateTime time) {
+        long minutes = time.toEpochSecond(ZoneOffset.UTC) / 60;
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(minutes, sliceMinutes) * sliceMinutes * 60, 0, ZoneOffset.UTC);
+    }
+
+    private static String eventKey(Long eventId, LocalDateTime start) {
+        return "event:" + eventId + ":" + start;
+    }
+
+    private static String sourceRef(Long planId, Integer dayIndex) {
+        return "plan:" + planId + ":day:" + dayIndex;
+    }
+
+    private static LocalDateTime nowUtc() {
+        return LocalDateTime.now(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,9 @@
+package com.aiagent.main.service;
+
+/**
+ * Published locally when another node reports a change through the cache
+ * coherence bus. topic is a cache region or {@link CacheCoherenceBus#CATALOG};
+ * key is the changed entry, or "*" for everything in the topic.
+ */
+public record RemoteInvalidationEvent(String topic, String key) {
+}
@@ -0,0 +1,304 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.*;
+import com.aiagent.main.repository.CalendarEventRepository;
+import com.aiagent.main.repository.SyncTombstoneRepository;
+import com.aiagent.main.repository.TrainingLogRepository;
+import com.aiagent.main.repository.WeeklyPlanWorkoutRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Delta sync for offline-first clients.
+ *
+ * A cursor carries a position per stream (training logs, workouts, calendar
+ * events, tombstones) and the watermark at which the client's local copy was
+ * last complete. Each position is the (updatedAt, id) of the last row the
+ * client received, tombstones keyed by deletedAt, so rows sharing a timestamp
+ * page correctly however many there are. Each stream returns its rows after
+ * its position up to now - settle lag. If the watermark is older than the
+ * tombstone retention, deletes may have been purged and the client is told
+ * to start over with a full resync.
+ */
+@Service
+@Slf4j
+public class SyncService {
+
+    public static final int DEFAULT_BATCH_SIZE = 200;
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    // Rows stamped in the last moments may belong to transactions that have not committed yet
+    private static final Duration SETTLE_LAG = Duration.ofSeconds(2);
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final TrainingLogRepository trainingLogRepository;
+    private final WeeklyPlanWorkoutRepository weeklyPlanWorkoutRepository;
+    private final CalendarEventRepository calendarEventRepository;
+    private final SyncTombstoneRepository syncTombstoneRepository;
+
+    /**
+     * Keyset position in a stream ordered by (time, id): the next page holds
+     * rows strictly after it
+     */
+    private record Position(LocalDateTime time, long id) {
+
+        // After every row stamped up to time
+        static Position after(LocalDateTime time) {
+            return new Position(time, Long.MAX_VALUE);
+        }
+
+        Position later(Position other) {
+            return other.time.isAfter(time) || (other.time.equals(time) && other.id > id) ? other : this;
+        }
+
+        @Override
+        public String toString() {
+            return time + "," + id;
+        }
+
+        static Position parse(String raw) {
+            String[] parts = raw.split(",");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid sync cursor");
+            }
+            return new Position(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+        }
+    }
+
+    private record Cursor(Position logs, Position workouts, Position events, Position tombstones,
+                          LocalDateTime watermark) {
+    }
+
+    @Value("${sync.tombstone-retention-days:30}")
+    private int tombstoneRetentionDays;
+
+    public SyncService(TrainingLogRepository trainingLogRepository,
+                       WeeklyPlanWorkoutRepository weeklyPlanWorkoutRepository,
+                       CalendarEventRepository calendarEventRepository,
+                       SyncTombstoneRepository syncTombstoneRepository) {
+        this.trainingLogRepository = trainingLogRepository;
+        this.weeklyPlanWorkoutRepository = weeklyPlanWorkoutRepository;
+        this.calendarEventRepository = calendarEventRepository;
+        this.syncTombstoneRepository = syncTombstoneRepository;
+    }
+
+    /**
+     * Record that a synced row was deleted
+     */
+    public void recordDeletion(Long userId, String entityType, Long entityId) {
+        if (userId == null || entityId == null) {
+            return;
+        }
+        syncTombstoneRepository.save(new SyncTombstone(userId, entityType, entityId));
+    }
+
+    /**
+     * Record that several synced rows of one type were deleted
+     */
+    public void recordDeletions(Long userId, String entityType, Collection<Long> entityIds) {
+        if (userId == null || entityIds == null || entityIds.isEmpty()) {
+            return;
+        }
+        List<SyncTombstone> tombstones = entityIds.stream()
+                .filter(Objects::nonNull)
+                .map(id -> new SyncTombstone(userId, entityType, id))
+                .toList();
+        syncTombstoneRepository.saveAll(tombstones);
+    }
+
+    /**
+     * Get everything that changed for a user since the given cursor
+     */
+    public SyncResponse getChanges(Long userId, String cursor, int batchSize) {
+        int limit = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE));
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.minus(SETTLE_LAG);
+
+        Cursor decoded = decodeCursor(cursor);
+        boolean fullResync = decoded == null || decoded.watermark().isBefore(now.minusDays(tombstoneRetentionDays));
+        if (fullResync) {
+            Position start = new Position(EPOCH, 0);
+            decoded = new Cursor(start, start, start, start, until);
+        }
+        LocalDateTime watermark = decoded.watermark();
+        // Deletes from before the client's last complete view are irrelevant to it
+        Position tombstonesFrom = decoded.tombstones().later(Position.after(watermark));
+
+        // One extra row per stream tells whether it has more
+        Pageable page = PageRequest.of(0, limit + 1);
+        List<TrainingLog> logs = trainingLogRepository.findChangedSince(userId,
+                decoded.logs().time(), decoded.logs().id(), until, page);
+        List<WeeklyPlanWorkout> workouts = weeklyPlanWorkoutRepository.findChangedSince(userId,
+                decoded.workouts().time(), decoded.workouts().id(), until, page);
+        List<CalendarEvent> events = calendarEventRepository.findChangedSince(userId,
+                decoded.events().time(), decoded.events().id(), until, page);
+        List<SyncTombstone> tombstones = tombstonesFrom.time().isAfter(until)
+                ? List.of()
+                : syncTombstoneRepository.findChangedSince(userId, tombstonesFrom.time(), tombstonesFrom.id(), until, page);
+
+        // Streams page independently: a full one resumes after its last row,
+        // the others after `until`
+        boolean hasMore = logs.size() > limit || workouts.size() > limit
+                || events.size() > limit || tombstones.size() > limit;
+        Cursor next = new Cursor(
+                nextPosition(logs, limit, until, TrainingLog::getUpdatedAt, TrainingLog::getId),
+                nextPosition(workouts, limit, until, WeeklyPlanWorkout::getUpdatedAt, WeeklyPlanWorkout::getId),
+                nextPosition(events, limit, until, CalendarEvent::getUpdatedAt, CalendarEvent::getId),
+                nextPosition(tombstones, limit, until, SyncTombstone::getDeletedAt, SyncTombstone::getId),
+                // The local copy is only complete once the last page has been applied
+                hasMore ? watermark : until);
+        logs = firstPage(logs, limit);
+        workouts = firstPage(workouts, limit);
+        events = firstPage(events, limit);
+        tombstones = firstPage(tombstones, limit);
+
+        Map<String, List<Long>> deleted = new LinkedHashMap<>();
+        for (SyncTombstone tombstone : tombstones) {
+            deleted.computeIfAbsent(deletedKey(tombstone.getEntityType()), k -> new ArrayList<>())
+                    .add(tombstone.getEntityId());
+        }
+
+        SyncResponse response = new SyncResponse();
+        response.setCursor(encodeCursor(next));
+        response.setHasMore(hasMore);
+        response.setFullResync(fullResync);
+        response.setTrainingLogs(logs.stream().map(this::toSyncRow).toList());
+        response.setWorkouts(workouts.stream().map(this::toSyncRow).toList());
+        response.setCalendarEvents(events.stream().map(this::toSyncRow).toList());
+        response.setDeleted(deleted);
+
+        log.info("Sync for user {}: {} logs, {} workouts, {} events, {} deletes, hasMore={}, fullResync={}",
+                userId, logs.size(), workouts.size(), events.size(), tombstones.size(), hasMore, fullResync);
+        return response;
+    }
+
+    /**
+     * Drop tombstones older than the retention window. Clients whose cursor
+     * predates the window are sent a full resync instead.
+     */
+    @Scheduled(cron = "${sync.tombstone-purge-cron:0 30 3 * * *}")
+    public void purgeExpiredTombstones() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(tombstoneRetentionDays);
+        int removed = syncTombstoneRepository.deleteOlderThan(cutoff);
+        if (removed > 0) {
+            log.info("Purged {} sync tombstones older than {}", removed, cutoff);
+        }
+    }
+
+    private Map<String, Object> toSyncRow(TrainingLog trainingLog) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        putIfPresent(row, "id", trainingLog.getId());
+        putIfPresent(row, "workoutDate", trainingLog.getWorkoutDate());
+        putIfPresent(row, "exerciseName", trainingLog.getExerciseName());
+        putIfPresent(row, "exerciseId", trainingLog.getExerciseId());
+        putIfPresent(row, "sets", trainingLog.getSets());
+        putIfPresent(row, "reps", trainingLog.getReps());
+        putIfPresent(row, "weight", trainingLog.getWeight());
+        putIfPresent(row, "weightUnit", trainingLog.getWeightUnit());
+        putIfPresent(row, "restSeconds", trainingLog.getRestSeconds());
+        putIfPresent(row, "durationMinutes", trainingLog.getDurationMinutes());
+        putIfPresent(row, "caloriesBurned", trainingLog.getCaloriesBurned());
+        putIfPresent(row, "difficultyRating", trainingLog.getDifficultyRating());
+        putIfPresent(row, "notes", trainingLog.getNotes());
+        putIfPresent(row, "updatedAt", trainingLog.getUpdatedAt());
+        return row;
+    }
+
+    private Map<String, Object> toSyncRow(WeeklyPlanWorkout workout) {
+        WeeklyPlan plan = workout.getWeeklyPlan();
+        Map<String, Object> row = new LinkedHashMap<>();
+        putIfPresent(row, "id", workout.getId());
+        putIfPresent(row, "planId", plan.getId());
+        putIfPresent(row, "dayIndex", workout.getDayIndex());
+        putIfPresent(row, "date", plan.getStartDate() != null && workout.getDayIndex() != null
+                ? plan.getStartDate().plusDays(workout.getDayIndex()) : null);
+        putIfPresent(row, "workoutName", workout.getWorkoutName());
+        putIfPresent(row, "sets", workout.getSets());
+        putIfPresent(row, "reps", workout.getReps());
+        putIfPresent(row, "weight", workout.getWeight());
+        putIfPresent(row, "duration", workout.getDuration());
+        putIfPresent(row, "completed", workout.getCompleted());
+        putIfPresent(row, "notes", workout.getNotes());
+        putIfPresent(row, "updatedAt", workout.getUpdatedAt());
+        return row;
+    }
+
+    private Map<String, Object> toSyncRow(CalendarEvent event) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        putIfPresent(row, "id", event.getId());
+        putIfPresent(row, "title", event.getTitle());
+        putIfPresent(row, "description", event.getDescription());
+        putIfPresent(row, "startTime", event.getStartTime());
+        putIfPresent(row, "endTime", event.getEndTime());
+        putIfPresent(row, "location", event.getLocation());
+        putIfPresent(row, "updatedAt", event.getUpdatedAt());
+        return row;
+    }
+
+    private static void putIfPresent(Map<String, Object> row, String key, Object value) {
+        if (value != null) {
+            row.put(key, value);
+        }
+    }
+
+    private static String deletedKey(String entityType) {
+        return switch (entityType) {
+            case SyncTombstone.TRAINING_LOG -> "trainingLogs";
+            case SyncTombstone.WORKOUT -> "workouts";
+            case SyncTombstone.CALENDAR_EVENT -> "calendarEvents";
+            default -> entityType;
+        };
+    }
+
+    private static <T> List<T> firstPage(List<T> rows, int limit) {
+        return rows.size() > limit ? rows.subList(0, limit) : rows;
+    }
+
+    private static <T> Position nextPosition(List<T> rows, int limit, LocalDateTime until,
+                                             Function<T, LocalDateTime> stamp, Function<T, Long> id) {
+        if (rows.size() <= limit) {
+            return Position.after(until);
+        }
+        T last = rows.get(limit - 1);
+        return new Position(stamp.apply(last), id.apply(last));
+    }
+
+    private static String encodeCursor(Cursor cursor) {
+        String raw = cursor.watermark() + "|" + cursor.logs() + "|" + cursor.workouts() + "|" + cursor.events()
+                + "|" + cursor.tombstones();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length == 2) {
+                // Cursor from before per-stream positions: position|watermark, rows strictly after position
+                Position position = Position.after(LocalDateTime.parse(parts[0]));
+                return new Cursor(position, position, position, position, LocalDateTime.parse(parts[1]));
+            }
+            if (parts.length != 5) {
+                throw new IllegalArgumentException("Invalid sync cursor");
+            }
+            return new Cursor(Position.parse(parts[1]), Position.parse(parts[2]), Position.parse(parts[3]),
+                    Position.parse(parts[4]), LocalDateTime.parse(parts[0]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid sync cursor", e);
+        }
+    }
+}
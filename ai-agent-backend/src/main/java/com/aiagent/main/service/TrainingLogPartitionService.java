@@ -0,0 +1,125 @@
+package com.aiagent.main.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of training_logs in shape: creates partitions
+ * ahead of time so inserts never fall into the default partition, and
+ * optionally detaches old months into the archive schema.
+ *
+ * Does nothing until db/migration/002_training_logs_partitioning.sql has
+ * been applied.
+ */
+@Service
+@Slf4j
+public class TrainingLogPartitionService {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("^training_logs_y(\\d{4})m(\\d{2})$");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${training-log.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    // 0 keeps every partition attached
+    @Value("${training-log.partitions.archive-after-months:0}")
+    private int archiveAfterMonths;
+
+    public TrainingLogPartitionService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    /**
+     * Create upcoming partitions and archive expired ones
+     */
+    @Scheduled(cron = "${training-log.partitions.cron:0 0 4 * * *}")
+    public void maintainPartitions() {
+        try {
+            if (!isPartitioned()) {
+                log.debug("training_logs is not partitioned, skipping partition maintenance");
+                return;
+            }
+
+            LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+            for (int i = 0; i <= monthsAhead; i++) {
+                createPartition(currentMonth.plusMonths(i));
+            }
+
+            if (archiveAfterMonths > 0) {
+                archivePartitionsBefore(currentMonth.minusMonths(archiveAfterMonths));
+            }
+        } catch (Exception e) {
+            log.error("Error maintaining training_logs partitions", e);
+        }
+    }
+
+    /**
+     * Create the partition for the month containing the given date
+     */
+    public String createPartition(LocalDate month) {
+        String name = jdbcTemplate.queryForObject("SELECT create_training_logs_partition(?)", String.class, month);
+        log.debug("Ensured training_logs partition {}", name);
+        return name;
+    }
+
+    /**
+     * Detach every monthly partition before the given month into the archive schema
+     */
+    public List<String> archivePartitionsBefore(LocalDate cutoffMonth) {
+        List<String> archived = new ArrayList<>();
+        for (String partition : listMonthlyPartitions()) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue;
+            }
+            LocalDate month = LocalDate.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)), 1);
+            if (month.isBefore(cutoffMonth)) {
+                String archivedName = jdbcTemplate.queryForObject(
+                        "SELECT archive_training_logs_partition(?)", String.class, month);
+                if (archivedName != null) {
+                    log.info("Archived training_logs partition {} to {}", partition, archivedName);
+                    archived.add(archivedName);
+                }
+            }
+        }
+        return archived;
+    }
+
+    private List<String> listMonthlyPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT child.relname FROM pg_inherits i " +
+                "JOIN pg_class parent ON parent.oid = i.inhparent " +
+                "JOIN pg_class child ON child.oid = i.inhrelid " +
+                "JOIN pg_namespace ns ON ns.oid = parent.relnamespace " +
+                "WHERE parent.relname = 'training_logs' AND ns.nspname = current_schema() " +
+                "ORDER BY child.relname",
+                String.class);
+    }
+
+    private boolean isPartitioned() {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table pt " +
+                "JOIN pg_class c ON c.oid = pt.partrelid " +
+                "JOIN pg_namespace ns ON ns.oid = c.relnamespace " +
+                "WHERE c.relname = 'training_logs' AND ns.nspname = current_schema())",
+                Boolean.class);
+        return Boolean.TRUE.equals(partitioned);
+    }
+}
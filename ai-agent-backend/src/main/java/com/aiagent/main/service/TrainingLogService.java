@@ -1,5 +1,6 @@
 package com.aiagent.main.service;
 
+import com.aiagent.main.entity.SyncTombstone;
 import com.aiagent.main.entity.TrainingLog;
 import com.aiagent.main.entity.User;
 import com.aiagent.main.repository.TrainingLogRepository;
@@ -22,6 +23,9 @@ public class TrainingLogService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private SyncService syncService;
+
     /**
      * Save or update a training log
      */
@@ -80,6 +84,8 @@ public class TrainingLogService {
      */
     public void deleteTrainingLog(Long id) {
         log.info("Deleting training log with id: {}", id);
+        trainingLogRepository.findById(id).ifPresent(existing ->
+                syncService.recordDeletion(existing.getUser().getId(), SyncTombstone.TRAINING_LOG, id));
         trainingLogRepository.deleteById(id);
     }
 
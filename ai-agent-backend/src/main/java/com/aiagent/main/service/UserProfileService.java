@@ -1,9 +1,12 @@
 package com.aiagent.main.service;
 
+import com.aiagent.main.config.CacheConfig;
 import com.aiagent.main.entity.User;
 import com.aiagent.main.entity.UserProfile;
 import com.aiagent.main.repository.UserProfileRepository;
 import com.aiagent.main.repository.UserRepository;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
@@ -12,16 +15,22 @@ import java.util.Optional;
 public class UserProfileService {
     private final UserProfileRepository userProfileRepository;
     private final UserRepository userRepository;
+    private final CacheCoherenceBus cacheCoherenceBus;
 
-    public UserProfileService(UserProfileRepository userProfileRepository, UserRepository userRepository) {
+    public UserProfileService(UserProfileRepository userProfileRepository, UserRepository userRepository,
+                              CacheCoherenceBus cacheCoherenceBus) {
         this.userProfileRepository = userProfileRepository;
         this.userRepository = userRepository;
+        this.cacheCoherenceBus = cacheCoherenceBus;
     }
 
+    @Cacheable(cacheNames = CacheConfig.USER_PROFILES)
     public Optional<UserProfile> getByUserId(Long userId) {
         return userProfileRepository.findByUserId(userId);
     }
 
+    // Write-through: the saved profile replaces the cached one
+    @CachePut(cacheNames = CacheConfig.USER_PROFILES, key = "#userId")
     public UserProfile upsert(Long userId, UserProfile payload) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found: " + userId));
@@ -32,7 +41,10 @@ public class UserProfileService {
         profile.setGender(payload.getGender());
         profile.setHeightCm(payload.getHeightCm());
         profile.setWeightKg(payload.getWeightKg());
-        return userProfileRepository.save(profile);
+        UserProfile saved = userProfileRepository.save(profile);
+        // Other nodes drop their copy; this node's cache gets the saved one via @CachePut
+        cacheCoherenceBus.publish(CacheConfig.USER_PROFILES, userId);
+        return saved;
     }
 }
 
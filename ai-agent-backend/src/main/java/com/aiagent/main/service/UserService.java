@@ -1,8 +1,11 @@
 package com.aiagent.main.service;
 
+import com.aiagent.main.config.CacheConfig;
 import com.aiagent.main.entity.User;
 import com.aiagent.main.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import java.util.Optional;
 
@@ -12,6 +15,7 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @CachePut(cacheNames = CacheConfig.USERS, key = "#result.id")
     public User registerUser(User user) {
         if (userRepository.existsByEmail(user.getEmail())) {
             throw new RuntimeException("Email already exists");
@@ -38,6 +42,7 @@ public class UserService {
         throw new RuntimeException("Invalid email or password");
     }
 
+    @Cacheable(cacheNames = CacheConfig.USERS)
     public Optional<User> findById(Long id) {
         return userRepository.findById(id);
     }
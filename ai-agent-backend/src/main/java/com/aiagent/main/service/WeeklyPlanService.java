@@ -7,13 +7,16 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 
@@ -25,7 +28,10 @@ public class WeeklyPlanService {
     private final WeeklyPlanWorkoutRepository weeklyPlanWorkoutRepository;
     private final UserService userService;
     private final GymEquipmentService gymEquipmentService;
-    private final RestTemplate restTemplate;
+    private final SyncService syncService;
+    private final LocalPlanGenerator localPlanGenerator;
+    private final PlanTemplateCache planTemplateCache;
+    private final AiModelClient aiModelClient;
     private final ObjectMapper objectMapper;
 
     @Value("${ai.model.base-url}")
@@ -43,13 +49,19 @@ public class WeeklyPlanService {
                            WeeklyPlanWorkoutRepository weeklyPlanWorkoutRepository,
                            UserService userService,
                            GymEquipmentService gymEquipmentService,
-                           RestTemplate restTemplate,
+                           SyncService syncService,
+                           LocalPlanGenerator localPlanGenerator,
+                           PlanTemplateCache planTemplateCache,
+                           AiModelClient aiModelClient,
                            ObjectMapper objectMapper) {
         this.weeklyPlanRepository = weeklyPlanRepository;
         this.weeklyPlanWorkoutRepository = weeklyPlanWorkoutRepository;
         this.userService = userService;
         this.gymEquipmentService = gymEquipmentService;
-        this.restTemplate = restTemplate;
+        this.syncService = syncService;
+        this.localPlanGenerator = localPlanGenerator;
+        this.planTemplateCache = planTemplateCache;
+        this.aiModelClient = aiModelClient;
         this.objectMapper = objectMapper;
     }
 
@@ -57,6 +69,23 @@ public class WeeklyPlanService {
      * Generate a weekly plan using AI
      */
     public WeeklyPlan generateWeeklyPlan(Long userId) {
+        return generateWeeklyPlan(userId, "ai");
+    }
+
+    public WeeklyPlan generateWeeklyPlan(Long userId, String mode) {
+        return generateWeeklyPlan(userId, mode, false);
+    }
+
+    /**
+     * Generate a weekly plan; mode "local" uses the rule-based planner only,
+     * mode "ai" hands the local draft to the model to refine. regenerate
+     * always asks the model instead of reusing a cached template.
+     */
+    public WeeklyPlan generateWeeklyPlan(Long userId, String mode, boolean regenerate) {
+        boolean local = "local".equalsIgnoreCase(mode);
+        if (!local && !"ai".equalsIgnoreCase(mode)) {
+            throw new RuntimeException("Unknown plan mode: " + mode);
+        }
         try {
             // Get user
             User user = userService.findById(userId)
@@ -69,22 +98,43 @@ public class WeeklyPlanService {
 
             // Check if plan already exists for this week and delete it to overwrite
             Optional<WeeklyPlan> existingPlan = weeklyPlanRepository.findCurrentPlan(userId, today);
+            String currentFingerprint = planTemplateCache.fingerprint(existingPlan.orElse(null));
             if (existingPlan.isPresent()) {
                 // Delete existing plan and its workouts
                 WeeklyPlan oldPlan = existingPlan.get();
+                recordWorkoutDeletions(userId, oldPlan.getWorkouts());
                 weeklyPlanWorkoutRepository.deleteByWeeklyPlanId(oldPlan.getId());
                 weeklyPlanRepository.delete(oldPlan);
             }
 
+            // Rule-based draft: the whole plan in local mode, the starting point otherwise
+            WeeklyPlan draft = localPlanGenerator.generate(user, monday, sunday);
+            if (local) {
+                return weeklyPlanRepository.save(draft);
+            }
+
+            // Users with a similar profile can share a plan the model already wrote
+            String templateKey = planTemplateCache.bucketKey(user, draft);
+            if (!regenerate) {
+                Optional<WeeklyPlan> cachedPlan = planTemplateCache.instantiate(templateKey, user, monday, sunday,
+                        draft, currentFingerprint);
+                if (cachedPlan.isPresent()) {
+                    return weeklyPlanRepository.save(cachedPlan.get());
+                }
+            }
+
             // Get equipment knowledge base
             String equipmentKnowledge = getEquipmentKnowledgeBase();
 
             // Generate weekly plan using AI
-            String prompt = buildWeeklyPlanPrompt(equipmentKnowledge, monday, sunday);
+            String prompt = buildWeeklyPlanPrompt(equipmentKnowledge, monday, sunday, draft);
             String aiResponse = callAiModel(prompt);
 
             // Parse AI response and create plan
-            WeeklyPlan plan = parseAiResponseAndCreatePlan(user, monday, sunday, aiResponse);
+            WeeklyPlan plan = parseAiResponseAndCreatePlan(user, monday, sunday, aiResponse, draft);
+            if (plan != draft) {
+                planTemplateCache.store(templateKey, plan);
+            }
             
             return weeklyPlanRepository.save(plan);
 
@@ -97,7 +147,7 @@ public class WeeklyPlanService {
     /**
      * Build prompt for AI to generate weekly plan
      */
-    private String buildWeeklyPlanPrompt(String equipmentKnowledge, LocalDate startDate, LocalDate endDate) {
+    private String buildWeeklyPlanPrompt(String equipmentKnowledge, LocalDate startDate, LocalDate endDate, WeeklyPlan draft) {
         StringBuilder prompt = new StringBuilder();
         
         prompt.append("You are an expert fitness trainer and nutritionist. ").append(System.lineSeparator());
@@ -116,6 +166,15 @@ public class WeeklyPlanService {
         prompt.append("Equipment Knowledge Base:").append(System.lineSeparator())
               .append(equipmentKnowledge).append(System.lineSeparator())
               .append(System.lineSeparator());
+
+        String draftJson = toPlanJson(draft);
+        if (draftJson != null) {
+            prompt.append("Draft plan built from the user's profile and recent training history. ")
+                  .append("Refine it (exercise choice, loads, notes) rather than starting over, ")
+                  .append("and keep its rest days:").append(System.lineSeparator())
+                  .append(draftJson).append(System.lineSeparator())
+                  .append(System.lineSeparator());
+        }
         
         prompt.append("Return ONLY a JSON array with this exact structure:").append(System.lineSeparator())
               .append("[").append(System.lineSeparator())
@@ -193,9 +252,9 @@ public class WeeklyPlanService {
         }
 
         HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-        String response = restTemplate.postForObject(url, entity, String.class);
+        String response = aiModelClient.post("weekly-plan", url, entity, prompt.length());
 
-        log.info("Raw AI model response: {}", response);
+        log.debug("Raw AI model response: {}", response);
 
         if (response == null) {
             throw new RuntimeException("AI model returned null response");
@@ -258,7 +317,7 @@ public class WeeklyPlanService {
     /**
      * Parse AI response and create WeeklyPlan with workouts
      */
-    private WeeklyPlan parseAiResponseAndCreatePlan(User user, LocalDate startDate, LocalDate endDate, String aiResponse) {
+    private WeeklyPlan parseAiResponseAndCreatePlan(User user, LocalDate startDate, LocalDate endDate, String aiResponse, WeeklyPlan draft) {
         WeeklyPlan plan = new WeeklyPlan();
         plan.setUser(user);
         plan.setStartDate(startDate);
@@ -302,51 +361,40 @@ public class WeeklyPlanService {
             }
             
         } catch (Exception e) {
-            log.error("Error parsing AI response, creating default plan", e);
-            // Create a fallback plan with basic workouts
-            plan = createFallbackPlan(user, startDate, endDate);
+            log.error("Error parsing AI response, using the local draft plan", e);
+            plan = draft;
         }
 
         return plan;
     }
 
     /**
-     * Create a fallback plan if AI fails
+     * Serialize a plan in the same JSON shape the model is asked to return
      */
-    private WeeklyPlan createFallbackPlan(User user, LocalDate startDate, LocalDate endDate) {
-        WeeklyPlan plan = new WeeklyPlan();
-        plan.setUser(user);
-        plan.setStartDate(startDate);
-        plan.setEndDate(endDate);
-
-        // Default weekly plan
-        String[][] defaultWorkouts = {
-            {"Chest & Triceps", "Bench Press, Tricep Dips"},
-            {"Back & Biceps", "Pull-ups, Rows"},
-            {"Cardio", "Running"},
-            {"Legs", "Squats, Lunges"},
-            {"Shoulders", "Shoulder Press"},
-            {"Rest Day", ""},
-            {"Full Body", "Circuit Training"}
-        };
-
+    private String toPlanJson(WeeklyPlan plan) {
+        List<Map<String, Object>> days = new ArrayList<>();
         for (int i = 0; i < DAYS_OF_WEEK.length; i++) {
-            String[] workout = defaultWorkouts[i];
-            if (!workout[1].isEmpty()) {
-                WeeklyPlanWorkout wpWorkout = new WeeklyPlanWorkout();
-                wpWorkout.setWeeklyPlan(plan);
-                wpWorkout.setDayIndex(i);
-                wpWorkout.setWorkoutName(workout[0]);
-                wpWorkout.setSets(3);
-                wpWorkout.setReps(10);
-                wpWorkout.setWeight("Bodyweight/Machine");
-                wpWorkout.setDuration("45 min");
-                wpWorkout.setCompleted(false);
-                plan.getWorkouts().add(wpWorkout);
-            }
+            List<Map<String, Object>> workouts = new ArrayList<>();
+            for (WeeklyPlanWorkout workout : plan.getWorkouts()) {
+                if (workout.getDayIndex() != i) {
+                    continue;
+                }
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("name", workout.getWorkoutName());
+                item.put("sets", workout.getSets());
+                item.put("reps", workout.getReps());
+                item.put("weight", workout.getWeight());
+                item.put("duration", workout.getDuration());
+                workouts.add(item);
+            }
+            days.add(Map.of("day", DAYS_OF_WEEK[i], "workouts", workouts));
+        }
+        try {
+            return objectMapper.writeValueAsString(days);
+        } catch (Exception e) {
+            log.warn("Could not serialize draft plan", e);
+            return null;
         }
-
-        return plan;
     }
 
     /**
@@ -380,15 +428,34 @@ public class WeeklyPlanService {
      * Get weekly plan for user
      */
     public WeeklyPlan getCurrentPlan(Long userId) {
-        Optional<WeeklyPlan> plan = weeklyPlanRepository.findCurrentPlan(userId, LocalDate.now());
+        Optional<WeeklyPlan> plan = weeklyPlanRepository.findCurrentPlanWithWorkouts(userId, LocalDate.now());
         return plan.orElse(null);
     }
 
+    /**
+     * Plan template cache reuse statistics
+     */
+    public Map<String, Object> getTemplateCacheStats() {
+        return planTemplateCache.getStats();
+    }
+
     /**
      * Get all plans for user
      */
     public List<WeeklyPlan> getAllPlans(Long userId) {
-        return weeklyPlanRepository.findByUserIdOrderByStartDateDesc(userId);
+        return weeklyPlanRepository.findWithWorkoutsByUserId(userId);
+    }
+
+    /**
+     * Get one page of plan history, newest first, with workouts loaded
+     */
+    public Slice<WeeklyPlan> getPlanHistory(Long userId, int page, int size) {
+        Slice<Long> ids = weeklyPlanRepository.findIdsByUserId(userId, PageRequest.of(page, size));
+        if (ids.getContent().isEmpty()) {
+            return new SliceImpl<>(List.of(), ids.getPageable(), false);
+        }
+        List<WeeklyPlan> plans = weeklyPlanRepository.findWithWorkoutsByIdIn(ids.getContent());
+        return new SliceImpl<>(plans, ids.getPageable(), ids.hasNext());
     }
 
     /**
@@ -402,7 +469,7 @@ public class WeeklyPlanService {
      * Get plan by ID with user verification
      */
     public Optional<WeeklyPlan> getPlanById(Long planId, Long userId) {
-        Optional<WeeklyPlan> planOpt = weeklyPlanRepository.findById(planId);
+        Optional<WeeklyPlan> planOpt = weeklyPlanRepository.findWithWorkoutsById(planId);
         if (planOpt.isPresent()) {
             WeeklyPlan plan = planOpt.get();
             if (!plan.getUser().getId().equals(userId)) {
@@ -423,19 +490,28 @@ public class WeeklyPlanService {
     }
 
     /**
-     * Toggle workout completion with user verification
+     * Toggle workout completion with user verification, returns the new state
      */
-    public void toggleWorkoutCompletion(Long workoutId, Long userId) {
-        WeeklyPlanWorkout workout = weeklyPlanWorkoutRepository.findById(workoutId)
-                .orElseThrow(() -> new RuntimeException("Workout not found"));
-        
-        // Verify the workout belongs to the user's plan
-        if (!workout.getWeeklyPlan().getUser().getId().equals(userId)) {
-            throw new RuntimeException("Workout does not belong to this user");
+    public boolean toggleWorkoutCompletion(Long workoutId, Long userId) {
+        return weeklyPlanWorkoutRepository.toggleCompleted(workoutId, userId, LocalDateTime.now())
+                .orElseThrow(() -> new RuntimeException("Workout not found or does not belong to this user"));
+    }
+
+    /**
+     * Mark a whole day, or a list of workouts, complete in one statement
+     */
+    public int setWorkoutsCompleted(WorkoutCompletionRequest request, Long userId) {
+        boolean completed = request.getCompleted() == null || request.getCompleted();
+        LocalDateTime now = LocalDateTime.now();
+
+        if (request.getWorkoutIds() != null && !request.getWorkoutIds().isEmpty()) {
+            return weeklyPlanWorkoutRepository.setCompletedForIds(request.getWorkoutIds(), userId, completed, now);
         }
-        
-        workout.setCompleted(!workout.getCompleted());
-        weeklyPlanWorkoutRepository.save(workout);
+        if (request.getPlanId() != null && request.getDayIndex() != null) {
+            return weeklyPlanWorkoutRepository.setCompletedForDay(
+                    request.getPlanId(), request.getDayIndex(), userId, completed, now);
+        }
+        throw new RuntimeException("Either workoutIds or planId and dayIndex are required");
     }
 
     /**
@@ -483,6 +559,7 @@ public class WeeklyPlanService {
             if (nextWeekPlanOpt.isPresent()) {
                 // Delete existing next week plan completely
                 WeeklyPlan existingPlan = nextWeekPlanOpt.get();
+                recordWorkoutDeletions(userId, existingPlan.getWorkouts());
                 weeklyPlanRepository.deleteById(existingPlan.getId());
             }
             
@@ -560,6 +637,8 @@ public class WeeklyPlanService {
      * Delete a weekly plan
      */
     public void deleteWeeklyPlan(Long planId) {
+        weeklyPlanRepository.findById(planId)
+                .ifPresent(plan -> recordWorkoutDeletions(plan.getUser().getId(), plan.getWorkouts()));
         weeklyPlanRepository.deleteById(planId);
     }
 
@@ -575,6 +654,7 @@ public class WeeklyPlanService {
             throw new RuntimeException("Plan does not belong to this user");
         }
         
+        recordWorkoutDeletions(userId, plan.getWorkouts());
         weeklyPlanRepository.deleteById(planId);
     }
     
@@ -628,6 +708,7 @@ public class WeeklyPlanService {
         
         // Delete the workouts
         if (!workoutsToDelete.isEmpty()) {
+            recordWorkoutDeletions(plan.getUser().getId(), workoutsToDelete);
             weeklyPlanWorkoutRepository.deleteAll(workoutsToDelete);
             log.info("Successfully deleted {} workouts", workoutsToDelete.size());
         } else {
@@ -663,6 +744,7 @@ public class WeeklyPlanService {
         
         // Delete the workouts
         if (!workoutsToDelete.isEmpty()) {
+            recordWorkoutDeletions(plan.getUser().getId(), workoutsToDelete);
             weeklyPlanWorkoutRepository.deleteAll(workoutsToDelete);
             log.info("Successfully deleted {} workouts", workoutsToDelete.size());
         } else {
@@ -670,6 +752,14 @@ public class WeeklyPlanService {
         }
     }
 
+    /**
+     * Leave sync tombstones for workouts that are about to be deleted
+     */
+    private void recordWorkoutDeletions(Long userId, Collection<WeeklyPlanWorkout> workouts) {
+        syncService.recordDeletions(userId, SyncTombstone.WORKOUT,
+                workouts.stream().map(WeeklyPlanWorkout::getId).toList());
+    }
+
     /**
      * Add a new workout to a plan
      */
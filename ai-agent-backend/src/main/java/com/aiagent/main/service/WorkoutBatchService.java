@@ -0,0 +1,228 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.SyncTombstone;
+import com.aiagent.main.entity.WorkoutBatchRequest;
+import com.aiagent.main.entity.WorkoutBatchRequest.Operation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Applies a batch of workout edits to one plan: one ownership check, then one
+ * JDBC batch per operation type, all in a single transaction.
+ *
+ * Workouts use IDENTITY ids, which stops Hibernate from batching inserts, so
+ * the statements go through JdbcTemplate instead of the entity manager.
+ */
+@Service
+@Slf4j
+public class WorkoutBatchService {
+
+    public static final int MAX_OPERATIONS = 500;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO weekly_plan_workouts (weekly_plan_id, day_index, workout_name, sets, reps, weight, " +
+            "duration, notes, completed, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL =
+            "UPDATE weekly_plan_workouts SET workout_name = COALESCE(?, workout_name), " +
+            "day_index = COALESCE(?, day_index), sets = ?, reps = ?, weight = ?, duration = ?, notes = ?, " +
+            "completed = COALESCE(?, completed), updated_at = ? WHERE id = ? AND weekly_plan_id = ?";
+
+    private static final String MOVE_SQL =
+            "UPDATE weekly_plan_workouts SET day_index = ?, updated_at = ? WHERE id = ? AND weekly_plan_id = ?";
+
+    private static final String DELETE_SQL =
+            "DELETE FROM weekly_plan_workouts WHERE id = ? AND weekly_plan_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SyncService syncService;
+
+    public WorkoutBatchService(JdbcTemplate jdbcTemplate, SyncService syncService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.syncService = syncService;
+    }
+
+    /**
+     * Apply all operations or none of them
+     */
+    @Transactional
+    public Map<String, Object> applyBatch(Long planId, Long userId, WorkoutBatchRequest request) {
+        List<Operation> operations = request.getOperations() == null ? List.of() : request.getOperations();
+        if (operations.size() > MAX_OPERATIONS) {
+            throw new RuntimeException("Too many operations, at most " + MAX_OPERATIONS + " per batch");
+        }
+        verifyOwnership(planId, userId);
+
+        List<Operation> adds = new ArrayList<>();
+        List<Operation> updates = new ArrayList<>();
+        List<Operation> moves = new ArrayList<>();
+        List<Long> deletes = new ArrayList<>();
+        Set<Long> touched = new HashSet<>();
+
+        for (Operation operation : operations) {
+            String op = operation.getOp() == null ? "" : operation.getOp().toLowerCase(Locale.ROOT);
+            if (!op.equals("add")) {
+                if (operation.getWorkoutId() == null) {
+                    throw new RuntimeException("workoutId is required for " + op);
+                }
+                // Each workout once per batch keeps the result independent of statement order
+                if (!touched.add(operation.getWorkoutId())) {
+                    throw new RuntimeException("Workout " + operation.getWorkoutId() + " appears more than once");
+                }
+            }
+            switch (op) {
+                case "add" -> {
+                    if (operation.getWorkoutName() == null || operation.getWorkoutName().isBlank()) {
+                        throw new RuntimeException("workoutName is required for add");
+                    }
+                    requireDayIndex(operation.getDayIndex(), false);
+                    adds.add(operation);
+                }
+                case "update" -> {
+                    requireDayIndex(operation.getDayIndex(), true);
+                    updates.add(operation);
+                }
+                case "move" -> {
+                    requireDayIndex(operation.getDayIndex(), false);
+                    moves.add(operation);
+                }
+                case "delete" -> deletes.add(operation.getWorkoutId());
+                default -> throw new RuntimeException("Unknown operation: " + operation.getOp());
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        if (!deletes.isEmpty()) {
+            int[][] counts = jdbcTemplate.batchUpdate(DELETE_SQL, deletes, deletes.size(), (ps, workoutId) -> {
+                ps.setLong(1, workoutId);
+                ps.setLong(2, planId);
+            });
+            checkCounts(counts, deletes);
+            syncService.recordDeletions(userId, SyncTombstone.WORKOUT, deletes);
+        }
+
+        if (!updates.isEmpty()) {
+            int[][] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, updates, updates.size(), (ps, operation) -> {
+                ps.setString(1, operation.getWorkoutName());
+                ps.setObject(2, operation.getDayIndex(), Types.INTEGER);
+                ps.setObject(3, operation.getSets(), Types.INTEGER);
+                ps.setObject(4, operation.getReps(), Types.INTEGER);
+                ps.setString(5, blankToNull(operation.getWeight()));
+                ps.setString(6, blankToNull(operation.getDuration()));
+                ps.setString(7, blankToNull(operation.getNotes()));
+                ps.setObject(8, operation.getCompleted(), Types.BOOLEAN);
+                ps.setTimestamp(9, now);
+                ps.setLong(10, operation.getWorkoutId());
+                ps.setLong(11, planId);
+            });
+            checkCounts(counts, updates.stream().map(Operation::getWorkoutId).toList());
+        }
+
+        if (!moves.isEmpty()) {
+            int[][] counts = jdbcTemplate.batchUpdate(MOVE_SQL, moves, moves.size(), (ps, operation) -> {
+                ps.setInt(1, operation.getDayIndex());
+                ps.setTimestamp(2, now);
+                ps.setLong(3, operation.getWorkoutId());
+                ps.setLong(4, planId);
+            });
+            checkCounts(counts, moves.stream().map(Operation::getWorkoutId).toList());
+        }
+
+        List<Map<String, Object>> added = new ArrayList<>();
+        if (!adds.isEmpty()) {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                    connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            Operation operation = adds.get(i);
+                            ps.setLong(1, planId);
+                            ps.setInt(2, operation.getDayIndex());
+                            ps.setString(3, operation.getWorkoutName().trim());
+                            ps.setObject(4, operation.getSets(), Types.INTEGER);
+                            ps.setObject(5, operation.getReps(), Types.INTEGER);
+                            ps.setString(6, blankToNull(operation.getWeight()));
+                            ps.setString(7, blankToNull(operation.getDuration()));
+                            ps.setString(8, blankToNull(operation.getNotes()));
+                            ps.setBoolean(9, Boolean.TRUE.equals(operation.getCompleted()));
+                            ps.setTimestamp(10, now);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return adds.size();
+                        }
+                    },
+                    keyHolder);
+
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            for (int i = 0; i < adds.size(); i++) {
+                Map<String, Object> result = new HashMap<>();
+                result.put("clientRef", adds.get(i).getClientRef());
+                result.put("workoutId", i < keys.size() ? ((Number) keys.get(i).get("id")).longValue() : null);
+                added.add(result);
+            }
+        }
+
+        log.info("Applied workout batch to plan {}: {} added, {} updated, {} moved, {} deleted",
+                planId, adds.size(), updates.size(), moves.size(), deletes.size());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("added", added);
+        response.put("updated", updates.size());
+        response.put("moved", moves.size());
+        response.put("deleted", deletes.size());
+        return response;
+    }
+
+    private void verifyOwnership(Long planId, Long userId) {
+        Long ownerId;
+        try {
+            ownerId = jdbcTemplate.queryForObject("SELECT user_id FROM weekly_plans WHERE id = ?", Long.class, planId);
+        } catch (EmptyResultDataAccessException e) {
+            throw new RuntimeException("Plan not found");
+        }
+        if (!Objects.equals(ownerId, userId)) {
+            throw new RuntimeException("Plan does not belong to this user");
+        }
+    }
+
+    private static void requireDayIndex(Integer dayIndex, boolean optional) {
+        if (dayIndex == null ? !optional : dayIndex < 0 || dayIndex > 6) {
+            throw new RuntimeException("dayIndex must be between 0 and 6");
+        }
+    }
+
+    // A zero count means the workout is missing or belongs to another plan; throwing rolls back the batch
+    private static void checkCounts(int[][] counts, List<Long> workoutIds) {
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == 0) {
+                    throw new RuntimeException("Workout " + workoutIds.get(index) + " not found in this plan");
+                }
+                index++;
+            }
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
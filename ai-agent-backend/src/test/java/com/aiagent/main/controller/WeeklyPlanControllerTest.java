@@ -0,0 +1,178 @@
+package com.aiagent.main.controller;
+
+import com.aiagent.main.entity.User;
+import com.aiagent.main.entity.WeeklyPlan;
+import com.aiagent.main.entity.WeeklyPlanWorkout;
+import com.aiagent.main.repository.UserRepository;
+import com.aiagent.main.repository.WeeklyPlanRepository;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "reminders.enabled=false"
+})
+class WeeklyPlanControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WeeklyPlanRepository weeklyPlanRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * A new user with one weekly plan per week up to and including the current
+     * one, workoutsPerPlan workouts each; returns the user and plan ids, newest plan first
+     */
+    private List<Long> seed(int plans, int workoutsPerPlan) {
+        User user = new User();
+        user.setUsername("plans-" + plans + "-" + workoutsPerPlan);
+        user.setEmail(UUID.randomUUID() + "@example.com");
+        user.setPassword("secret");
+        user = userRepository.save(user);
+
+        List<Long> ids = new ArrayList<>();
+        ids.add(user.getId());
+        LocalDate monday = LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        for (int week = 0; week < plans; week++) {
+            WeeklyPlan plan = new WeeklyPlan();
+            plan.setUser(user);
+            plan.setStartDate(monday.minusWeeks(week));
+            plan.setEndDate(monday.minusWeeks(week).plusDays(6));
+            for (int i = 0; i < workoutsPerPlan; i++) {
+                WeeklyPlanWorkout workout = new WeeklyPlanWorkout();
+                workout.setWeeklyPlan(plan);
+                workout.setDayIndex(i % 7);
+                workout.setWorkoutName("Exercise " + i);
+                workout.setSets(3);
+                workout.setReps(10);
+                plan.getWorkouts().add(workout);
+            }
+            ids.add(weeklyPlanRepository.save(plan).getId());
+        }
+        return ids;
+    }
+
+    private long historyStatements(Long userId, int plans) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/weekly-plan/history").param("userId", userId.toString()).param("size", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.plans.length()").value(plans))
+                .andExpect(jsonPath("$.hasNext").value(false));
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long allPlansStatements(Long userId, int plans, int workoutsPerPlan) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/weekly-plan/all").param("userId", userId.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(plans))
+                .andExpect(jsonPath("$[*].workoutsByDay.*[*].id", hasSize(plans * workoutsPerPlan)));
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long currentPlanStatements(Long userId, Long planId, int workouts) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/weekly-plan/current").param("userId", userId.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(planId))
+                .andExpect(jsonPath("$.workoutsByDay.*[*].id", hasSize(workouts)));
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long planStatements(Long userId, Long planId, int workouts) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/weekly-plan/{planId}", planId).param("userId", userId.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.workoutsByDay.*[*].id", hasSize(workouts)));
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    void historyStatementCountDoesNotGrowWithPlans() throws Exception {
+        List<Long> one = seed(1, 3);
+        List<Long> many = seed(20, 3);
+
+        long oneStatements = historyStatements(one.get(0), 1);
+        long manyStatements = historyStatements(many.get(0), 20);
+
+        // One page of plan ids, then the plans with their workouts
+        assertThat(oneStatements).isEqualTo(2);
+        assertThat(manyStatements).isEqualTo(oneStatements);
+    }
+
+    @Test
+    void allPlansStatementCountDoesNotGrowWithPlans() throws Exception {
+        List<Long> one = seed(1, 3);
+        List<Long> many = seed(20, 3);
+
+        long oneStatements = allPlansStatements(one.get(0), 1, 3);
+        long manyStatements = allPlansStatements(many.get(0), 20, 3);
+
+        assertThat(oneStatements).isEqualTo(1);
+        assertThat(manyStatements).isEqualTo(oneStatements);
+    }
+
+    @Test
+    void currentPlanStatementCountDoesNotGrowWithPlansOrWorkouts() throws Exception {
+        List<Long> one = seed(1, 1);
+        List<Long> many = seed(20, 25);
+
+        long oneStatements = currentPlanStatements(one.get(0), one.get(1), 1);
+        long manyStatements = currentPlanStatements(many.get(0), many.get(1), 25);
+
+        assertThat(oneStatements).isEqualTo(1);
+        assertThat(manyStatements).isEqualTo(oneStatements);
+    }
+
+    @Test
+    void planFetchStatementCountDoesNotGrowWithWorkouts() throws Exception {
+        List<Long> few = seed(1, 1);
+        List<Long> many = seed(20, 25);
+
+        long fewStatements = planStatements(few.get(0), few.get(1), 1);
+        long manyStatements = planStatements(many.get(0), many.get(1), 25);
+
+        assertThat(fewStatements).isEqualTo(1);
+        assertThat(manyStatements).isEqualTo(fewStatements);
+    }
+}
@@ -0,0 +1,107 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.Conversation;
+import com.aiagent.main.entity.Message;
+import com.aiagent.main.entity.MessageSearchHit;
+import com.aiagent.main.entity.User;
+import com.aiagent.main.repository.ConversationRepository;
+import com.aiagent.main.repository.UserRepository;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+@TestPropertySource(properties = "reminders.enabled=false")
+class ArchivedConversationSearchTest {
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private ConversationArchiveService conversationArchiveService;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        // Hibernate creates the tables; search needs the tsvector column and indexes on top
+        new ResourceDatabasePopulator(
+                new FileSystemResource("db/migration/005_messages_fulltext.sql"),
+                new FileSystemResource("db/migration/007_archived_message_search.sql")).execute(dataSource);
+
+        user = new User();
+        user.setUsername("search");
+        user.setEmail(UUID.randomUUID() + "@example.com");
+        user.setPassword("secret");
+        user = userRepository.save(user);
+    }
+
+    private Conversation conversation(LocalDateTime createdAt, String... messages) {
+        Conversation conversation = new Conversation("Knee pain", user);
+        conversation.setCreatedAt(createdAt);
+        conversation.setLastActivityAt(createdAt);
+        conversation = conversationRepository.save(conversation);
+        for (int i = 0; i < messages.length; i++) {
+            Message message = new Message(messages[i], i % 2 == 0, conversation);
+            message.setCreatedAt(createdAt.plusMinutes(i + 1));
+            messageService.saveMessage(message);
+        }
+        return conversation;
+    }
+
+    @Test
+    void archivedConversationsStaySearchableUntilRehydrated() {
+        Conversation idle = conversation(LocalDateTime.now().minusDays(200),
+                "My knee hurts after squats",
+                "Try box squats to a <b>high</b> bench and keep the knees out");
+        conversation(LocalDateTime.now().minusHours(1), "Should I squat today?");
+
+        conversationArchiveService.archiveIdleConversations();
+        assertThat(conversationRepository.findById(idle.getId()).orElseThrow().getArchivedAt()).isNotNull();
+
+        List<MessageSearchHit> hits = messageService.searchMessages(user.getId(), "box squats", 10);
+        assertThat(hits).singleElement().satisfies(hit -> {
+            assertThat(hit.getConversationId()).isEqualTo(idle.getId());
+            // Built from the archive frame, escaped and highlighted like a live hit
+            assertThat(hit.getSnippet()).contains("<mark>box</mark>").contains("&lt;b&gt;high&lt;/b&gt;");
+        });
+        assertThat(messageService.searchMessages(user.getId(), "squats", 10)).hasSize(3);
+
+        conversationService.findById(idle.getId());
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM archived_message_terms WHERE conversation_id = ?", Long.class, idle.getId()))
+                .isZero();
+        assertThat(messageService.searchMessages(user.getId(), "box squats", 10)).singleElement()
+                .satisfies(hit -> assertThat(hit.getSnippet()).contains("<mark>box</mark>"));
+    }
+}
@@ -0,0 +1,106 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.Conversation;
+import com.aiagent.main.entity.ConversationSummary;
+import com.aiagent.main.entity.Message;
+import com.aiagent.main.entity.User;
+import com.aiagent.main.repository.ConversationRepository;
+import com.aiagent.main.repository.UserRepository;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+@TestPropertySource(properties = "reminders.enabled=false")
+class ConversationSummariesTest {
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private ConversationArchiveService conversationArchiveService;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("summaries");
+        user.setEmail(UUID.randomUUID() + "@example.com");
+        user.setPassword("secret");
+        user = userRepository.save(user);
+    }
+
+    private Conversation conversation(String title, LocalDateTime createdAt, int messages) {
+        Conversation conversation = new Conversation(title, user);
+        conversation.setCreatedAt(createdAt);
+        conversation.setLastActivityAt(createdAt);
+        conversation = conversationRepository.save(conversation);
+        for (int i = 0; i < messages; i++) {
+            Message message = new Message(title + " " + i, i % 2 == 0, conversation);
+            message.setCreatedAt(createdAt.plusMinutes(i + 1));
+            messageService.saveMessage(message);
+        }
+        return conversation;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ConversationSummary> summaries(Map<String, Object> page) {
+        return (List<ConversationSummary>) page.get("conversations");
+    }
+
+    @Test
+    void listKeepsCountsAndOrderThroughArchiveAndRehydrate() {
+        LocalDateTime longAgo = LocalDateTime.now().minusDays(200).truncatedTo(ChronoUnit.MICROS);
+        Conversation idle = conversation("idle", longAgo, 3);
+        Conversation recent = conversation("recent", LocalDateTime.now().minusHours(1), 1);
+
+        Map<String, Object> first = conversationService.getConversationSummaries(user.getId(), null, 1);
+        assertThat(summaries(first)).singleElement().satisfies(summary -> {
+            assertThat(summary.getId()).isEqualTo(recent.getId());
+            assertThat(summary.getMessageCount()).isEqualTo(1);
+        });
+        assertThat(first.get("hasMore")).isEqualTo(true);
+
+        conversationArchiveService.archiveIdleConversations();
+        assertThat(conversationRepository.findById(idle.getId()).orElseThrow().getArchivedAt()).isNotNull();
+
+        Map<String, Object> second = conversationService.getConversationSummaries(user.getId(),
+                (String) first.get("nextCursor"), 1);
+        assertThat(summaries(second)).singleElement().satisfies(summary -> {
+            assertThat(summary.getId()).isEqualTo(idle.getId());
+            assertThat(summary.getMessageCount()).isEqualTo(3);
+            assertThat(summary.getLastActivityAt()).isEqualTo(longAgo.plusMinutes(3));
+            assertThat(summary.getLastMessagePreview()).isEqualTo("idle 2");
+        });
+        assertThat(second.get("hasMore")).isEqualTo(false);
+
+        assertThat(conversationService.findById(idle.getId())).isPresent();
+        Conversation restored = conversationRepository.findById(idle.getId()).orElseThrow();
+        assertThat(restored.getArchivedAt()).isNull();
+        assertThat(restored.getMessageCount()).isEqualTo(3);
+        assertThat(restored.getLastActivityAt()).isEqualTo(longAgo.plusMinutes(3));
+    }
+}
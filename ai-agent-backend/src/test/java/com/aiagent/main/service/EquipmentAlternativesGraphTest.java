@@ -0,0 +1,94 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.EquipmentAlternative;
+import com.aiagent.main.entity.GymEquipment;
+import com.aiagent.main.repository.GymEquipmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class EquipmentAlternativesGraphTest {
+
+    private EquipmentAlternativesGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        GymEquipmentRepository repository = mock(GymEquipmentRepository.class);
+        graph = new EquipmentAlternativesGraph(repository, new EquipmentSearchIndex(repository));
+    }
+
+    private static GymEquipment equipment(long id, String name, String muscles, String alternatives) {
+        GymEquipment equipment = new GymEquipment();
+        equipment.setId(id);
+        equipment.setName(name);
+        equipment.setPrimaryMuscles(muscles);
+        equipment.setAlternativeEquipments(alternatives);
+        return equipment;
+    }
+
+    private Map<String, EquipmentAlternative> alternatives(String name, int maxHops) {
+        return graph.findAlternatives(name, maxHops, 10).orElseThrow().stream()
+                .collect(Collectors.toMap(EquipmentAlternative::getName, Function.identity()));
+    }
+
+    @Test
+    void nodeReachedBestAtTheHopLimitStillLeadsOnViaAShorterPath() {
+        // Bench -> Cable Fly -> Pec Deck -> Chest Press is the best way to
+        // Chest Press but uses all three hops; Bench -> Calf Raise -> Chest
+        // Press is weaker but leaves a hop for Dip Station.
+        graph.refresh(List.of(
+                equipment(1, "Bench", "Chest", "Cable Fly, Calf Raise"),
+                equipment(2, "Cable Fly", "Chest", "Pec Deck"),
+                equipment(3, "Pec Deck", "Chest", "Chest Press"),
+                equipment(4, "Calf Raise", "Calves", "Chest Press"),
+                equipment(5, "Chest Press", "Chest", "Dip Station"),
+                equipment(6, "Dip Station", "Chest", null)));
+
+        Map<String, EquipmentAlternative> found = alternatives("Bench", 3);
+
+        EquipmentAlternative chestPress = found.get("Chest Press");
+        assertThat(chestPress.getHops()).isEqualTo(3);
+        assertThat(chestPress.getScore()).isEqualTo(0.64);
+        assertThat(chestPress.getPath()).containsExactly("Bench", "Cable Fly", "Pec Deck", "Chest Press");
+
+        EquipmentAlternative dipStation = found.get("Dip Station");
+        assertThat(dipStation).isNotNull();
+        assertThat(dipStation.getHops()).isEqualTo(3);
+        assertThat(dipStation.getPath()).containsExactly("Bench", "Calf Raise", "Chest Press", "Dip Station");
+    }
+
+    @Test
+    void twoHopPathBeatsWeakDirectEdge() {
+        graph.refresh(List.of(
+                equipment(1, "Bench", "Chest", "Cable Fly, Leg Press"),
+                equipment(2, "Cable Fly", "Chest", "Pec Deck"),
+                equipment(3, "Pec Deck", "Chest", null),
+                equipment(4, "Leg Press", "Quadriceps", "Pec Deck")));
+
+        Map<String, EquipmentAlternative> found = alternatives("Bench", 2);
+
+        assertThat(found.get("Pec Deck").getPath()).containsExactly("Bench", "Cable Fly", "Pec Deck");
+        assertThat(found.get("Pec Deck").getScore()).isEqualTo(0.8);
+        assertThat(found.get("Leg Press").getScore()).isEqualTo(0.5);
+    }
+
+    @Test
+    void resultsStayWithinMaxHopsAndExcludeTheStart() {
+        graph.refresh(List.of(
+                equipment(1, "Bench", "Chest", "Cable Fly"),
+                equipment(2, "Cable Fly", "Chest", "Pec Deck"),
+                equipment(3, "Pec Deck", "Chest", "Bench")));
+
+        Map<String, EquipmentAlternative> found = alternatives("Bench", 1);
+
+        assertThat(found.keySet()).containsExactlyInAnyOrder("Cable Fly", "Pec Deck");
+        assertThat(found.values()).allSatisfy(alternative -> assertThat(alternative.getHops()).isEqualTo(1));
+    }
+}
@@ -0,0 +1,110 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.GymEquipment;
+import com.aiagent.main.repository.GymEquipmentRepository;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+@TestPropertySource(properties = "reminders.enabled=false")
+class EquipmentOccupancyServiceTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheCoherenceBus cacheCoherenceBus;
+
+    @Autowired
+    private GymEquipmentRepository gymEquipmentRepository;
+
+    // Two nodes sharing one database
+    private EquipmentOccupancyService nodeA;
+    private EquipmentOccupancyService nodeB;
+    private GymEquipment rower;
+
+    @BeforeEach
+    void setUp() {
+        nodeA = node();
+        nodeB = node();
+        GymEquipment equipment = new GymEquipment();
+        equipment.setName("Rower " + UUID.randomUUID());
+        rower = gymEquipmentRepository.save(equipment);
+    }
+
+    private EquipmentOccupancyService node() {
+        EquipmentOccupancyService service = new EquipmentOccupancyService(jdbcTemplate, cacheCoherenceBus);
+        ReflectionTestUtils.setField(service, "defaultCapacity", 2);
+        ReflectionTestUtils.setField(service, "defaultSessionMinutes", 10);
+        ReflectionTestUtils.setField(service, "maxSessionMinutes", 90);
+        return service;
+    }
+
+    @Test
+    void nodesShareCountsAndTheSessionQueue() throws InterruptedException {
+        String first = nodeA.checkIn(rower).sessionId();
+        // Sessions are queued by start time in milliseconds
+        Thread.sleep(5);
+        String second = nodeA.checkIn(rower).sessionId();
+        assertThat(nodeB.getOccupancy(rower).getInUse()).isEqualTo(2);
+        assertThat(nodeB.getOccupancy(rower).isAvailable()).isFalse();
+
+        // Without a session id the oldest check-in ends, whichever node made it
+        assertThat(nodeB.checkOut(rower, null).getInUse()).isEqualTo(1);
+        assertThatThrownBy(() -> nodeA.checkOut(rower, first)).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(nodeA.checkOut(rower, second).getInUse()).isZero();
+        assertThat(nodeB.checkOut(rower, null).getInUse()).isZero();
+        assertThat(nodeB.getAllOccupancy()).anySatisfy(occupancy -> {
+            assertThat(occupancy.getEquipmentId()).isEqualTo(rower.getId());
+            assertThat(occupancy.isAvailable()).isTrue();
+        });
+    }
+
+    @Test
+    void concurrentCheckInsOnBothNodesAreAllCounted() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> sessions = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                EquipmentOccupancyService node = i % 2 == 0 ? nodeA : nodeB;
+                sessions.add(executor.submit(() -> node.checkIn(rower).sessionId()));
+            }
+            List<Future<?>> checkOuts = new ArrayList<>();
+            for (int i = 0; i < sessions.size(); i++) {
+                String sessionId = sessions.get(i).get();
+                EquipmentOccupancyService node = i % 2 == 0 ? nodeB : nodeA;
+                if (i % 4 == 0) {
+                    checkOuts.add(executor.submit(() -> node.checkOut(rower, sessionId)));
+                }
+            }
+            for (Future<?> checkOut : checkOuts) {
+                checkOut.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(nodeA.getOccupancy(rower).getInUse()).isEqualTo(30);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM occupancy_sessions WHERE equipment_id = ?",
+                Long.class, rower.getId())).isEqualTo(30);
+    }
+}
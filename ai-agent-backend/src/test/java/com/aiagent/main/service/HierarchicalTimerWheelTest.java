@@ -0,0 +1,128 @@
+package com.aiagent.main.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HierarchicalTimerWheelTest {
+
+    private static final long SECOND = 1000;
+
+    // Seconds, minutes, hours: one day before the overflow map
+    private static HierarchicalTimerWheel<String> dayWheel(long startMs) {
+        return new HierarchicalTimerWheel<>(SECOND, new int[]{60, 60, 24}, startMs);
+    }
+
+    @Test
+    void firesOnItsTickAndNotBefore() {
+        HierarchicalTimerWheel<String> wheel = dayWheel(0);
+        assertThat(wheel.schedule("a", 5 * SECOND, "a")).isTrue();
+
+        assertThat(wheel.advance(4 * SECOND + 999)).isEmpty();
+        assertThat(wheel.advance(5 * SECOND)).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+        assertThat(wheel.contains("a")).isFalse();
+    }
+
+    @Test
+    void cascadesFromMinutesAndHoursDownToSeconds() {
+        HierarchicalTimerWheel<String> wheel = dayWheel(0);
+        wheel.schedule("minutes", 125 * SECOND, "minutes");
+        wheel.schedule("hours", (2 * 3600 + 61) * SECOND, "hours");
+
+        assertThat(wheel.advance(124 * SECOND)).isEmpty();
+        assertThat(wheel.advance(125 * SECOND)).containsExactly("minutes");
+        assertThat(wheel.advance((2 * 3600 + 60) * SECOND)).isEmpty();
+        assertThat(wheel.advance((2 * 3600 + 61) * SECOND)).containsExactly("hours");
+    }
+
+    @Test
+    void timerCascadedIntoTheCurrentTickFiresInThatTick() {
+        HierarchicalTimerWheel<String> wheel = dayWheel(0);
+        // Exactly on a minute and an hour boundary, so both cascades land on the firing tick
+        wheel.schedule("minute", 120 * SECOND, "minute");
+        wheel.schedule("hour", 3600 * SECOND, "hour");
+
+        assertThat(wheel.advance(119 * SECOND)).isEmpty();
+        assertThat(wheel.advance(120 * SECOND)).containsExactly("minute");
+        assertThat(wheel.advance(3599 * SECOND)).isEmpty();
+        assertThat(wheel.advance(3600 * SECOND)).containsExactly("hour");
+    }
+
+    @Test
+    void timersBeyondTheTopLevelWaitInOverflow() {
+        long day = 24 * 3600 * SECOND;
+        HierarchicalTimerWheel<String> wheel = dayWheel(0);
+        wheel.schedule("tomorrow", day + 7 * SECOND, "tomorrow");
+        wheel.schedule("later", 3 * day + 3600 * SECOND, "later");
+        assertThat(wheel.size()).isEqualTo(2);
+
+        assertThat(wheel.advance(day + 6 * SECOND)).isEmpty();
+        assertThat(wheel.advance(day + 7 * SECOND)).containsExactly("tomorrow");
+        assertThat(wheel.advance(3 * day + 3599 * SECOND)).isEmpty();
+        assertThat(wheel.advance(3 * day + 3600 * SECOND)).containsExactly("later");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cancelAndRescheduleWorkInEveryLevelAndOverflow() {
+        long day = 24 * 3600 * SECOND;
+        HierarchicalTimerWheel<String> wheel = dayWheel(0);
+        wheel.schedule("seconds", 10 * SECOND, "seconds");
+        wheel.schedule("minutes", 600 * SECOND, "minutes");
+        wheel.schedule("overflow", 2 * day, "overflow");
+
+        assertThat(wheel.cancel("seconds")).isTrue();
+        assertThat(wheel.cancel("seconds")).isFalse();
+        assertThat(wheel.cancel("overflow")).isTrue();
+        // Rescheduling moves the timer from the minutes level into overflow
+        wheel.schedule("minutes", day + 30 * SECOND, "moved");
+
+        assertThat(wheel.advance(day)).isEmpty();
+        assertThat(wheel.advance(3 * day)).containsExactly("moved");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void pastDueTimersAreNotKept() {
+        HierarchicalTimerWheel<String> wheel = dayWheel(100 * SECOND);
+
+        assertThat(wheel.schedule("late", 99 * SECOND, "late")).isFalse();
+        assertThat(wheel.contains("late")).isFalse();
+        // Inside the current tick still counts as on time
+        assertThat(wheel.schedule("now", 100 * SECOND + 500, "now")).isTrue();
+        assertThat(wheel.advance(100 * SECOND + 999)).containsExactly("now");
+    }
+
+    @Test
+    void everyTimerFiresExactlyOnceOnItsTick() {
+        // Small wheel (span 32 ticks) so timers cascade through both levels and overflow often
+        Random random = new Random(42);
+        long start = 7;
+        HierarchicalTimerWheel<Long> wheel = new HierarchicalTimerWheel<>(1, new int[]{4, 4, 2}, start);
+        Map<String, Long> expected = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            long fireAt = start + random.nextInt(500);
+            expected.put("t" + i, fireAt);
+            wheel.schedule("t" + i, fireAt, fireAt);
+        }
+
+        List<Long> fired = new ArrayList<>();
+        long now = start - 1;
+        while (now < start + 520) {
+            long previous = now;
+            now += 1 + random.nextInt(40);
+            List<Long> due = wheel.advance(now);
+            for (long fireAt : due) {
+                assertThat(fireAt).isGreaterThan(previous).isLessThanOrEqualTo(now);
+            }
+            assertThat(due).isSorted();
+            fired.addAll(due);
+        }
+
+        assertThat(fired).containsExactlyInAnyOrderElementsOf(expected.values());
+        assertThat(wheel.size()).isZero();
+    }
+}
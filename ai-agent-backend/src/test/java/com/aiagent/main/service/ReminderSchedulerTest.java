@@ -0,0 +1,116 @@
+package com.aiagent.main.service;
+
+import com.aiagent.main.entity.CalendarEvent;
+import com.aiagent.main.entity.User;
+import com.aiagent.main.repository.CalendarEventRepository;
+import com.aiagent.main.repository.UserRepository;
+import com.aiagent.main.repository.WeeklyPlanWorkoutRepository;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+@TestPropertySource(properties = "reminders.enabled=false")
+class ReminderSchedulerTest {
+
+    // Day-long slices and lead time: the current slice starts at UTC midnight and loads
+    // everything starting at the next midnight, whose reminder is already due
+    private static final int DAY_MINUTES = 24 * 60;
+
+    @Autowired
+    private CalendarEventRepository calendarEventRepository;
+
+    @Autowired
+    private WeeklyPlanWorkoutRepository weeklyPlanWorkoutRepository;
+
+    @Autowired
+    private CalendarService calendarService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Reminder> sent = new CopyOnWriteArrayList<>();
+    private ReminderScheduler scheduler;
+    private LocalDateTime tomorrow;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM reminder_leases");
+        jdbcTemplate.update("DELETE FROM reminder_deliveries");
+        jdbcTemplate.update("DELETE FROM calendar_events");
+
+        // The context's own scheduler is disabled; this one is driven by hand
+        scheduler = new ReminderScheduler(calendarEventRepository, weeklyPlanWorkoutRepository, calendarService,
+                sent::add, jdbcTemplate);
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+        ReflectionTestUtils.setField(scheduler, "leadMinutes", DAY_MINUTES);
+        ReflectionTestUtils.setField(scheduler, "sliceMinutes", DAY_MINUTES);
+        ReflectionTestUtils.setField(scheduler, "lookaheadMinutes", 1);
+        ReflectionTestUtils.setField(scheduler, "leaseSeconds", 120);
+        ReflectionTestUtils.setField(scheduler, "workoutTime", "08:00");
+        ReflectionTestUtils.setField(scheduler, "configuredNodeId", "test-node");
+
+        tomorrow = LocalDate.now(ZoneOffset.UTC).plusDays(1).atStartOfDay();
+    }
+
+    private CalendarEvent event(String title, LocalDateTime start, LocalDateTime end) {
+        User user = new User();
+        user.setUsername("reminders");
+        user.setEmail(UUID.randomUUID() + "@example.com");
+        user.setPassword("secret");
+        user = userRepository.save(user);
+
+        CalendarEvent event = new CalendarEvent();
+        event.setTitle(title);
+        event.setStartTime(start);
+        event.setEndTime(end);
+        event.setUser(user);
+        return calendarEventRepository.save(event);
+    }
+
+    @Test
+    void remindsZeroLengthEventStartingAtTheWindowStart() {
+        // The frontend sends the same start and end for quick entries
+        CalendarEvent event = event("Check-in", tomorrow, tomorrow);
+
+        scheduler.loadSlices();
+
+        assertThat(sent).singleElement().satisfies(reminder -> {
+            assertThat(reminder.refId()).isEqualTo(event.getId());
+            assertThat(reminder.startTime()).isEqualTo(tomorrow);
+        });
+        assertThat(scheduler.getStats()).containsEntry("sent", 1L).containsEntry("stale", 0L);
+    }
+
+    @Test
+    void selectsByStartRatherThanOverlap() {
+        // Overlaps the window but started before it: reminded by an earlier slice
+        event("Running over", tomorrow.minusHours(1), tomorrow.plusHours(1));
+        // Starts where the window ends: belongs to the next slice
+        event("Next day", tomorrow.plusDays(1), tomorrow.plusDays(1));
+        CalendarEvent inside = event("Inside", tomorrow, tomorrow.plusHours(1));
+
+        scheduler.loadSlices();
+
+        assertThat(sent).extracting(Reminder::refId).containsExactly(inside.getId());
+    }
+}